@@ -0,0 +1,28 @@
+package com.mridang.throttle;
+
+import android.app.AlarmManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Broadcast receiver class that is woken by the inexact alarm while the screen is off to collect the
+ * figures into the history of the monitoring service
+ */
+public class BackgroundReceiver extends BroadcastReceiver {
+
+    /**
+     * Receiver method for the alarm that asks the service to collect the figures. If the service is
+     * no longer running, the alarm is cancelled as there is nothing left to collect the figures into.
+     */
+    @Override
+    public void onReceive(Context appContext, Intent ittIntent) {
+        Log.v("BackgroundReceiver", "Received a background sampling intent");
+        if (!HardwareService.sampleBackground()) {
+            Log.i("BackgroundReceiver", "Service not running. Cancelling the background sampling");
+            AlarmManager mgrAlarms = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+            mgrAlarms.cancel(HardwareService.getBackground(appContext));
+        }
+    }
+}
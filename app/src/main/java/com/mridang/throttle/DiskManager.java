@@ -0,0 +1,297 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Manager class to read the activity of the block devices from the /proc/diskstats file. Only the
+ * real block devices are counted, i.e. the disks that are backed by a device rather than the loop,
+ * the RAM, the compressed swap and the device mapper devices which would otherwise count the same
+ * I/O several times. The devices are found once and their figures are kept in primitive arrays.
+ */
+public class DiskManager {
+
+    /**
+     * The index of the number of reads completed in the window
+     */
+    public static final int READS = 0;
+    /**
+     * The index of the number of writes completed in the window
+     */
+    public static final int WRITES = 1;
+    /**
+     * The index of the number of bytes read in the window
+     */
+    public static final int READ_BYTES = 2;
+    /**
+     * The index of the number of bytes written in the window
+     */
+    public static final int WRITE_BYTES = 3;
+    /**
+     * The index of the time in milliseconds that the reads and the writes of the window took
+     */
+    public static final int SERVICE = 4;
+    /**
+     * The index of the time in milliseconds that the requests of the window spent queued, weighted
+     * by the number of requests in flight
+     */
+    public static final int QUEUED = 5;
+    /**
+     * The index of the number of requests that are currently in flight
+     */
+    public static final int INFLIGHT = 6;
+    /**
+     * The number of the counters of each of the devices
+     */
+    public static final int COUNTERS = 7;
+    /**
+     * The path of the disk statistics file relative to the root of the source
+     */
+    private static final String DISKSTATS = "proc/diskstats";
+    /**
+     * The directory containing the block devices
+     */
+    private static final String BLOCK = "sys/block/";
+    /**
+     * The size in bytes of the sectors in which the kernel counts the transfers
+     */
+    private static final long SECTOR = 512L;
+    /**
+     * The number of columns of a device row that are read after the name of the device
+     */
+    private static final int COLUMNS = 11;
+    /**
+     * The indices of the columns of a device row which are read after the name of the device
+     */
+    private static final int COLUMN_READS = 0, COLUMN_READ_SECTORS = 2, COLUMN_READ_TIME = 3, COLUMN_WRITES = 4,
+            COLUMN_WRITE_SECTORS = 6, COLUMN_WRITE_TIME = 7, COLUMN_INFLIGHT = 8, COLUMN_QUEUED = 10;
+    /**
+     * The names of the real block devices
+     */
+    private final String[] strDevices;
+    /**
+     * The ASCII bytes of the names of the real block devices used to find their rows
+     */
+    private final byte[][] bytDevices;
+    /**
+     * The disk statistics file from which the figures should be read repeatedly or null if the file
+     * couldn't be opened
+     */
+    private FileSource.Handle hndDisks;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsDisks = new ProcfsParser();
+    /**
+     * The columns of the row that was last parsed
+     */
+    private final long[] lngColumns = new long[COLUMNS];
+    /**
+     * The cumulative counters of each of the devices as of the last update, indexed by the device
+     * and the counter
+     */
+    private final long[] lngPrevious;
+    /**
+     * The counters of each of the devices during the last window, indexed by the device and the
+     * counter
+     */
+    private final long[] lngCounters;
+    /**
+     * The counters of all of the devices together during the last window
+     */
+    private final long[] lngTotals = new long[COUNTERS];
+    /**
+     * The flags indicating whether the row of each of the devices was found in the last update
+     */
+    private final boolean[] booFound;
+
+    public DiskManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that finds the real block devices in the given source and opens the disk
+     * statistics file. When there are no such devices or no statistics file, the manager reports no
+     * activity at all.
+     *
+     * @param srcFiles The source from which the block devices and the statistics file are read
+     */
+    public DiskManager(FileSource srcFiles) {
+        List<String> lstDevices = new ArrayList<String>();
+        String[] lstEntries = srcFiles.list(BLOCK);
+        if (lstEntries != null) {
+            Arrays.sort(lstEntries);
+            for (String strEntry : lstEntries) {
+                if (srcFiles.exists(BLOCK + strEntry + "/device")) {
+                    lstDevices.add(strEntry);
+                }
+            }
+        }
+        if (lstDevices.isEmpty()) {
+            Log.w("DiskManager", "Unable to find any block devices under " + BLOCK);
+        }
+
+        strDevices = lstDevices.toArray(new String[lstDevices.size()]);
+        bytDevices = new byte[strDevices.length][];
+        for (int i = 0; i < strDevices.length; i++) {
+            bytDevices[i] = strDevices[i].getBytes();
+        }
+        lngPrevious = new long[strDevices.length * COUNTERS];
+        lngCounters = new long[strDevices.length * COUNTERS];
+        booFound = new boolean[strDevices.length];
+
+        if (strDevices.length > 0) {
+            try {
+                hndDisks = srcFiles.open(DISKSTATS, 16384);
+            } catch (FileNotFoundException e) {
+                Log.w("DiskManager", "Unable to open the disk statistics file", e);
+            }
+        }
+        Log.d("DiskManager", "Found " + strDevices.length + " block devices");
+    }
+
+    /**
+     * Updates the counters of each of the devices with a single read of the statistics file. The
+     * rows of the other devices are skipped after their names. The first update, and any update in
+     * which the counters of a device have wrapped or been reset, only sets the baseline of that
+     * device.
+     */
+    public void update() {
+        for (int i = 0; i < COUNTERS; i++) {
+            lngTotals[i] = 0L;
+        }
+        if (hndDisks == null) {
+            return;
+        }
+
+        try {
+            ByteBuffer bufDisks = hndDisks.read();
+            prsDisks.reset(bufDisks, bufDisks.limit());
+            while (!prsDisks.isFinished()) {
+                prsDisks.nextLong();
+                prsDisks.nextLong();
+                while (prsDisks.peek(0) == ' ') {
+                    prsDisks.skip(1);
+                }
+
+                int intDevice = find();
+                if (intDevice >= 0) {
+                    prsDisks.skip(bytDevices[intDevice].length);
+                    for (int i = 0; i < COLUMNS; i++) {
+                        lngColumns[i] = prsDisks.nextLong();
+                    }
+                    count(intDevice);
+                }
+                prsDisks.skipLine();
+            }
+        } catch (Exception e) {
+            Log.e("DiskManager", "Error reading the disk statistics", e);
+        }
+    }
+
+    /**
+     * Finds the device whose name is at the cursor
+     *
+     * @return The index of the device or -1 if the row isn't that of a real block device
+     */
+    private int find() {
+        for (int i = 0; i < bytDevices.length; i++) {
+            if (prsDisks.startsWith(bytDevices[i]) && prsDisks.peek(bytDevices[i].length) == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Derives the counters of the window of the given device from the columns of its row and adds
+     * them to the totals
+     *
+     * @param intDevice The index of the device
+     */
+    private void count(int intDevice) {
+        boolean booBaseline = !booFound[intDevice];
+        booFound[intDevice] = true;
+        record(intDevice, READS, lngColumns[COLUMN_READS], booBaseline);
+        record(intDevice, WRITES, lngColumns[COLUMN_WRITES], booBaseline);
+        record(intDevice, READ_BYTES, lngColumns[COLUMN_READ_SECTORS] * SECTOR, booBaseline);
+        record(intDevice, WRITE_BYTES, lngColumns[COLUMN_WRITE_SECTORS] * SECTOR, booBaseline);
+        record(intDevice, SERVICE, lngColumns[COLUMN_READ_TIME] + lngColumns[COLUMN_WRITE_TIME], booBaseline);
+        record(intDevice, QUEUED, lngColumns[COLUMN_QUEUED], booBaseline);
+
+        lngCounters[intDevice * COUNTERS + INFLIGHT] = lngColumns[COLUMN_INFLIGHT];
+        lngTotals[INFLIGHT] = lngTotals[INFLIGHT] + lngColumns[COLUMN_INFLIGHT];
+    }
+
+    /**
+     * Records the difference of the given cumulative counter of the given device since the last
+     * update and adds it to the total
+     *
+     * @param intDevice   The index of the device
+     * @param intCounter  The index of the counter
+     * @param lngValue    The cumulative value of the counter
+     * @param booBaseline A boolean value indicating whether the value only sets the baseline
+     */
+    private void record(int intDevice, int intCounter, long lngValue, boolean booBaseline) {
+        int intIndex = intDevice * COUNTERS + intCounter;
+        long lngDifference = lngValue - lngPrevious[intIndex];
+        lngCounters[intIndex] = booBaseline || lngDifference < 0L ? 0L : lngDifference;
+        lngPrevious[intIndex] = lngValue;
+        lngTotals[intCounter] = lngTotals[intCounter] + lngCounters[intIndex];
+    }
+
+    /**
+     * Returns the given counter of all of the devices together as of the last update
+     *
+     * @param intCounter The index of the counter
+     * @return The value of the counter over the window or the current value for the requests in flight
+     */
+    public long getTotal(int intCounter) {
+        return lngTotals[intCounter];
+    }
+
+    /**
+     * Returns the given counter of the given device as of the last update
+     *
+     * @param intDevice  The index of the device
+     * @param intCounter The index of the counter
+     * @return The value of the counter over the window or the current value for the requests in flight
+     */
+    public long getCounter(int intDevice, int intCounter) {
+        return lngCounters[intDevice * COUNTERS + intCounter];
+    }
+
+    /**
+     * Returns the number of the real block devices
+     *
+     * @return The number of devices
+     */
+    public int getDevices() {
+        return strDevices.length;
+    }
+
+    /**
+     * Returns the name of the given device
+     *
+     * @param intDevice The index of the device
+     * @return The name of the device
+     */
+    public String getDevice(int intDevice) {
+        return strDevices[intDevice];
+    }
+
+    /**
+     * Closes the disk statistics file from which the figures are be read repeatedly
+     */
+    public void destroy() {
+
+        if (hndDisks != null) {
+            hndDisks.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Source of the files that reads them from the filesystem under a given root directory. The root of
+ * the filesystem is used on the device while a directory of copied files can be used elsewhere.
+ */
+public class DiskSource implements FileSource {
+
+    /**
+     * The root directory ending with a slash under which the files are read
+     */
+    private final String strRoot;
+
+    /**
+     * Creates a source that reads the files under the root of the filesystem
+     */
+    public DiskSource() {
+        this("/");
+    }
+
+    /**
+     * Creates a source that reads the files under the given root directory
+     *
+     * @param strRoot The root directory ending with a slash
+     */
+    public DiskSource(String strRoot) {
+        this.strRoot = strRoot;
+    }
+
+    @Override
+    public Handle open(String strPath, int intCapacity) throws FileNotFoundException {
+        return new DiskHandle(access(strPath), intCapacity);
+    }
+
+    /**
+     * Opens the given file for reading so that the sampling engine can read it straight into its own
+     * buffer instead of through a handle
+     *
+     * @param strPath The path of the file relative to the root of the source
+     * @return The opened file
+     * @throws FileNotFoundException If the file doesn't exist
+     */
+    RandomAccessFile access(String strPath) throws FileNotFoundException {
+        return new RandomAccessFile(strRoot + strPath, "r");
+    }
+
+    @Override
+    public String[] list(String strPath) {
+        return new File(strRoot + strPath).list();
+    }
+
+    @Override
+    public boolean exists(String strPath) {
+        return new File(strRoot + strPath).exists();
+    }
+
+    /**
+     * Handle of a file of the filesystem that reads the whole file with a single positional read
+     */
+    private static class DiskHandle implements Handle {
+
+        /**
+         * The file from which the contents are read repeatedly
+         */
+        private final RandomAccessFile rafFile;
+        /**
+         * The channel of the file used for the positional reads
+         */
+        private final FileChannel chnFile;
+        /**
+         * The reusable buffer into which the contents of the file are read
+         */
+        private final ByteBuffer bufContents;
+
+        /**
+         * Creates a handle reading the given file
+         *
+         * @param rafFile     The opened file
+         * @param intCapacity The maximum number of bytes of the file that are read
+         */
+        DiskHandle(RandomAccessFile rafFile, int intCapacity) {
+            this.rafFile = rafFile;
+            this.chnFile = rafFile.getChannel();
+            this.bufContents = ByteBuffer.allocate(intCapacity);
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            bufContents.clear();
+            chnFile.read(bufContents, 0);
+            bufContents.flip();
+            return bufContents;
+        }
+
+        @Override
+        public void close() {
+            try {
+                rafFile.close();
+            } catch (IOException e) {
+                Log.w("DiskSource", "Unable to successfully close the file");
+            }
+        }
+    }
+}
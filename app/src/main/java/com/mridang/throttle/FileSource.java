@@ -0,0 +1,60 @@
+package com.mridang.throttle;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Source of the procfs and sysfs files read by the managers. The paths are relative to the root of
+ * the source, e.g. "proc/stat", so that the same managers can read the files of the device, a copy
+ * of the files in another directory or a recorded trace of the files.
+ */
+public interface FileSource {
+
+    /**
+     * Opens the given file so that it can be read repeatedly
+     *
+     * @param strPath     The path of the file relative to the root of the source
+     * @param intCapacity The maximum number of bytes of the file that are read
+     * @return The handle of the opened file
+     * @throws FileNotFoundException If the file doesn't exist
+     */
+    Handle open(String strPath, int intCapacity) throws FileNotFoundException;
+
+    /**
+     * Lists the names of the entries of the given directory
+     *
+     * @param strPath The path of the directory relative to the root of the source
+     * @return The names of the entries or null if the directory doesn't exist
+     */
+    String[] list(String strPath);
+
+    /**
+     * Checks whether the given file or directory exists
+     *
+     * @param strPath The path of the file relative to the root of the source
+     * @return True if the file exists
+     */
+    boolean exists(String strPath);
+
+    /**
+     * Handle of an opened file of the source whose whole contents are read again on every read. The
+     * handle owns the buffer holding the contents, which is reused by every read.
+     */
+    interface Handle {
+
+        /**
+         * Reads the contents of the file from its very beginning. The contents are truncated if they
+         * exceed the capacity of the handle.
+         *
+         * @return The buffer holding the contents from index zero up to its limit
+         * @throws IOException If the file can no longer be read
+         */
+        ByteBuffer read() throws IOException;
+
+        /**
+         * Closes the file after which it can no longer be read
+         */
+        void close();
+    }
+}
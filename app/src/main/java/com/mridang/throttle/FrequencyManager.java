@@ -4,59 +4,706 @@ import android.util.Log;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
- * Manager class to read the processor usage from the cpufreq file and return the processor frequency
+ * Manager class to read the processor frequency from the cpufreq files and return the processor
+ * frequency. Heterogeneous processors have several clusters of cores which are clocked independently
+ * so the frequency of each of the cpufreq policies is read separately. Where the kernel keeps the
+ * cpufreq statistics, the time spent at each frequency is read instead of the current frequency so
+ * that the frequency of each window is the exact average over the window rather than a point sample.
+ * The number of frequency transitions is only read every few updates so that each of the clusters
+ * still costs a single read in every update.
  */
 public class FrequencyManager {
 
     /**
-     * The frequency statistics file from which the figures should be read repeatedly
+     * The directory containing the processor devices and the cpufreq policies
      */
-    private RandomAccessFile rafFrequency;
+    private static final String CPU = "sys/devices/system/cpu/";
+    /**
+     * The number of updates after which the file of an unavailable cluster is opened again
+     */
+    private static final int RETRY = 5;
+    /**
+     * The number of ticks per second in which the cpufreq statistics count the time
+     */
+    private static final long HERTZ = 100L;
+    /**
+     * The number of updates between two reads of the number of frequency transitions of a cluster
+     */
+    private static final int COUNTING = 10;
+    /**
+     * The cores belonging to each of the clusters whose cpufreq files may be used for the cluster
+     */
+    private final int[][] intMembers;
+    /**
+     * The frequency statistics file of each of the clusters from which the figures should be read
+     * repeatedly or null if the cluster is currently unavailable
+     */
+    private final FileSource.Handle[] hndClusters;
+    /**
+     * The flags indicating whether the file of each of the clusters is the time spent at each of the
+     * frequencies rather than the current frequency
+     */
+    private final boolean[] booStates;
+    /**
+     * The flags indicating whether the next statistics of each of the clusters are only to be used
+     * as the baseline of the following window
+     */
+    private final boolean[] booBaseline;
+    /**
+     * The number of frequency transitions file of each of the clusters which is read every few
+     * updates or null if the kernel doesn't keep the statistics
+     */
+    private final FileSource.Handle[] hndTransitions;
+    /**
+     * The cpufreq directory of each of the clusters from which the files are read
+     */
+    private final String[] strPaths;
+    /**
+     * The frequencies in kHz of the table of the statistics of each of the clusters
+     */
+    private final long[][] lngStates;
+    /**
+     * The cumulative time spent at each of the frequencies of each of the clusters as of the last
+     * update
+     */
+    private final long[][] lngTimes;
+    /**
+     * The time spent at each of the frequencies of each of the clusters during the last window
+     */
+    private final long[][] lngDeltas;
+    /**
+     * The share of the last window spent at each of the frequencies of each of the clusters
+     */
+    private final float[][] fltResidencies;
+    /**
+     * The time of each of the clusters in ticks of the statistics since the number of transitions
+     * was last read
+     */
+    private final long[] lngElapsed;
+    /**
+     * The number of updates of each of the clusters since the number of transitions was last read
+     */
+    private final int[] intCounted;
+    /**
+     * The length in ticks of the statistics of the span over which the transitions of each of the
+     * clusters were last counted
+     */
+    private final long[] lngSpans;
+    /**
+     * The cumulative number of frequency transitions of each of the clusters as of the last read
+     */
+    private final long[] lngSwitches;
+    /**
+     * The number of frequency transitions of each of the clusters during the last span
+     */
+    private final long[] lngChanges;
+    /**
+     * The number of updates remaining until the file of an unavailable cluster is opened again
+     */
+    private final int[] intRetries;
+    /**
+     * The minimum frequency of each of the clusters
+     */
+    private final long[] lngMinimums;
+    /**
+     * The maximum frequency of each of the clusters
+     */
+    private final long[] lngMaximums;
+    /**
+     * The current frequency of each of the clusters as of the last update
+     */
+    private final long[] lngCurrents;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsFrequency = new ProcfsParser();
+    /**
+     * The source from which the cpufreq files are read
+     */
+    private final FileSource srcFiles;
+    /**
+     * The source from which the files that are read far less often than every update are read
+     */
+    private final FileSource srcDirect;
 
     public FrequencyManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that reads the cpufreq files from the given source so that copied or
+     * recorded files can be used instead of the ones of the device. When no cpufreq files exist, the
+     * manager has no clusters and reports no frequency at all.
+     *
+     * @param srcFiles The source from which the cpufreq files are read
+     */
+    public FrequencyManager(FileSource srcFiles) {
+        this(srcFiles, srcFiles);
+    }
+
+    /**
+     * Creates a manager that reads the cpufreq files from the given source and the number of the
+     * frequency transitions from the other source. When the files are read in a single batch on
+     * every tick, the transitions should be read directly so that they aren't read in every batch.
+     *
+     * @param srcFiles  The source from which the cpufreq files are read
+     * @param srcDirect The source from which the number of the frequency transitions is read
+     */
+    public FrequencyManager(FileSource srcFiles, FileSource srcDirect) {
+        this.srcFiles = srcFiles;
+        this.srcDirect = srcDirect;
+        List<int[]> lstClusters = findPolicies();
+        if (lstClusters.isEmpty()) {
+            lstClusters = findCores();
+        }
+        if (lstClusters.isEmpty()) {
+            Log.w("FrequencyManager", "Unable to find any cpufreq files under " + CPU);
+        }
+
+        intMembers = lstClusters.toArray(new int[lstClusters.size()][]);
+        hndClusters = new FileSource.Handle[intMembers.length];
+        booStates = new boolean[intMembers.length];
+        booBaseline = new boolean[intMembers.length];
+        hndTransitions = new FileSource.Handle[intMembers.length];
+        strPaths = new String[intMembers.length];
+        lngStates = new long[intMembers.length][0];
+        lngTimes = new long[intMembers.length][0];
+        lngDeltas = new long[intMembers.length][0];
+        fltResidencies = new float[intMembers.length][0];
+        lngElapsed = new long[intMembers.length];
+        intCounted = new int[intMembers.length];
+        lngSpans = new long[intMembers.length];
+        lngSwitches = new long[intMembers.length];
+        lngChanges = new long[intMembers.length];
+        intRetries = new int[intMembers.length];
+        lngMinimums = new long[intMembers.length];
+        lngMaximums = new long[intMembers.length];
+        lngCurrents = new long[intMembers.length];
+        for (int i = 0; i < intMembers.length; i++) {
+            open(i);
+        }
+        Log.d("FrequencyManager", "Found " + intMembers.length + " frequency clusters");
+    }
+
+    /**
+     * Finds the clusters using the cpufreq policy directories which are available on newer kernels
+     * and which remain present even when all the cores of the cluster are offline
+     *
+     * @return The list of the cores belonging to each of the clusters
+     */
+    private List<int[]> findPolicies() {
+        List<int[]> lstClusters = new ArrayList<int[]>();
+        String[] lstPolicies = srcFiles.list(CPU + "cpufreq");
+        if (lstPolicies == null) {
+            return lstClusters;
+        }
+
+        Arrays.sort(lstPolicies);
+        for (String strPolicy : lstPolicies) {
+            if (strPolicy.matches("policy\\d+")) {
+                int[] intCores = readCores(CPU + "cpufreq/" + strPolicy + "/related_cpus");
+                if (intCores.length > 0) {
+                    lstClusters.add(intCores);
+                }
+            }
+        }
+        return lstClusters;
+    }
+
+    /**
+     * Finds the clusters using the cpufreq directories of the individual cores which are grouped by
+     * their related cores. This is used on older kernels that don't have the policy directories.
+     *
+     * @return The list of the cores belonging to each of the clusters
+     */
+    private List<int[]> findCores() {
+        List<int[]> lstClusters = new ArrayList<int[]>();
+        String[] lstCores = srcFiles.list(CPU);
+        if (lstCores == null) {
+            return lstClusters;
+        }
+
+        boolean[] booGrouped = new boolean[lstCores.length * 2];
+        for (String strCore : lstCores) {
+            if (!strCore.matches("cpu\\d+")) {
+                continue;
+            }
+
+            int intCore = Integer.parseInt(strCore.substring(3));
+            if (intCore < booGrouped.length && booGrouped[intCore]) {
+                continue;
+            }
+
+            int[] intCores = readCores(CPU + strCore + "/cpufreq/related_cpus");
+            if (intCores.length == 0) {
+                if (srcFiles.exists(CPU + strCore + "/cpufreq/scaling_cur_freq")) {
+                    intCores = new int[]{intCore};
+                } else {
+                    continue;
+                }
+            }
+
+            for (int intRelated : intCores) {
+                if (intRelated < booGrouped.length) {
+                    booGrouped[intRelated] = true;
+                }
+            }
+            lstClusters.add(intCores);
+        }
+        return lstClusters;
+    }
+
+    /**
+     * Reads the list of the cores from the given file of space separated core numbers
+     *
+     * @param strPath The path of the file containing the list of the cores
+     * @return The sorted core numbers or an empty array if the file couldn't be read
+     */
+    private int[] readCores(String strPath) {
+        int[] intCores = new int[0];
+        try {
+            FileSource.Handle hndCores = srcFiles.open(strPath, 512);
+            try {
+                ByteBuffer bufCores = hndCores.read();
+                prsFrequency.reset(bufCores, bufCores.limit());
+                while (prsFrequency.hasNumber()) {
+                    intCores = Arrays.copyOf(intCores, intCores.length + 1);
+                    intCores[intCores.length - 1] = (int) prsFrequency.nextLong();
+                }
+            } finally {
+                hndCores.close();
+            }
+        } catch (IOException e) {
+            Log.v("FrequencyManager", "Unable to read the related cores from " + strPath);
+        }
+
+        Arrays.sort(intCores);
+        return intCores;
+    }
+
+    /**
+     * Opens the current frequency file of the given cluster using the first of the cores of the
+     * cluster that is online and reads the minimum and maximum frequencies of the cluster. If the
+     * kernel keeps the cpufreq statistics, the current frequency file is swapped for the file of the
+     * time spent at each of the frequencies along with the file of the number of transitions.
+     *
+     * @param intCluster The index of the cluster
+     */
+    private void open(int intCluster) {
+        for (int intCore : intMembers[intCluster]) {
+            String strPath = CPU + "cpu" + intCore + "/cpufreq/";
+            try {
+                hndClusters[intCluster] = srcFiles.open(strPath + "scaling_cur_freq", 64);
+                strPaths[intCluster] = strPath;
+                booBaseline[intCluster] = true;
+                if (lngMaximums[intCluster] == 0L) {
+                    lngMinimums[intCluster] = readValue(strPath + "cpuinfo_min_freq");
+                    lngMaximums[intCluster] = readValue(strPath + "cpuinfo_max_freq");
+                }
+                openStates(intCluster, strPath);
+                return;
+            } catch (FileNotFoundException e) {
+                Log.v("FrequencyManager", "Core " + intCore + " is currently unavailable");
+            }
+        }
+        intRetries[intCluster] = RETRY;
+    }
+
+    /**
+     * Opens the cpufreq statistics of the given cluster in place of its current frequency file. If
+     * the kernel doesn't keep the statistics, the current frequency file is kept.
+     *
+     * @param intCluster The index of the cluster
+     * @param strPath    The cpufreq directory of the cluster
+     */
+    private void openStates(int intCluster, String strPath) {
+        try {
+            FileSource.Handle hndStates = srcFiles.open(strPath + "stats/time_in_state", 4096);
+            hndClusters[intCluster].close();
+            hndClusters[intCluster] = hndStates;
+            booStates[intCluster] = true;
+        } catch (FileNotFoundException e) {
+            Log.v("FrequencyManager", "No cpufreq statistics for cluster " + intCluster);
+            return;
+        }
+
         try {
-            rafFrequency = new RandomAccessFile("/sys/devices/system/cpu/cpu0/cpufreq/scaling_cur_freq", "r");
+            hndTransitions[intCluster] = srcDirect.open(strPath + "stats/total_trans", 64);
         } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+            Log.v("FrequencyManager", "No frequency transitions for cluster " + intCluster);
         }
     }
 
     /**
-     * Returns the current CPU frequency in a human readable format by converting it into a Hz
+     * Reads a single value from the given frequency file
      *
-     * @return The current CPU frequency
+     * @param strPath The path of the file containing the value
+     * @return The value of the file or zero if the file couldn't be read
      */
-    public String getFrequency() {
+    private long readValue(String strPath) {
         try {
-            rafFrequency.seek(0);
-            int hz = Integer.valueOf(rafFrequency.readLine());
-            if (hz < 1000 * 1000) {
-                return (hz / 1000) + " MHz";
+            FileSource.Handle hndValue = srcFiles.open(strPath, 64);
+            try {
+                return read(hndValue);
+            } finally {
+                hndValue.close();
+            }
+        } catch (IOException e) {
+            Log.w("FrequencyManager", "Unable to read the frequency from " + strPath);
+            return 0L;
+        }
+    }
+
+    /**
+     * Reads the value of the given frequency file with a single positional read
+     *
+     * @param hndValue The file from which the value is to be read
+     * @return The value of the file
+     * @throws IOException If the file couldn't be read
+     */
+    private long read(FileSource.Handle hndValue) throws IOException {
+        ByteBuffer bufFrequency = hndValue.read();
+        if (bufFrequency.limit() == 0) {
+            throw new IOException("The frequency file is empty");
+        }
+        prsFrequency.reset(bufFrequency, bufFrequency.limit());
+        return prsFrequency.nextLong();
+    }
+
+    /**
+     * Reads the time spent at each of the frequencies of the given cluster and derives the share of
+     * the window spent at each of them along with their average. The first read after the files are
+     * opened, or after the table or the counters have been reset, only sets the baseline so the
+     * current frequency is read once instead.
+     *
+     * @param intCluster The index of the cluster
+     * @return The average frequency in kHz over the window
+     * @throws IOException If the statistics couldn't be read
+     */
+    private long readStates(int intCluster) throws IOException {
+        ByteBuffer bufStates = hndClusters[intCluster].read();
+        if (bufStates.limit() == 0) {
+            throw new IOException("The statistics file is empty");
+        }
+
+        long[] lngTable = lngStates[intCluster];
+        int intRows = 0;
+        boolean booMatches = true;
+        prsFrequency.reset(bufStates, bufStates.limit());
+        while (prsFrequency.hasNumber()) {
+            long lngState = prsFrequency.nextLong();
+            prsFrequency.skipLine();
+            booMatches = booMatches && intRows < lngTable.length && lngTable[intRows] == lngState;
+            intRows++;
+        }
+        if (!booMatches || intRows != lngTable.length) {
+            Log.d("FrequencyManager", "Found " + intRows + " frequencies for cluster " + intCluster);
+            lngStates[intCluster] = new long[intRows];
+            lngTimes[intCluster] = new long[intRows];
+            lngDeltas[intCluster] = new long[intRows];
+            fltResidencies[intCluster] = new float[intRows];
+            booBaseline[intCluster] = true;
+        }
+
+        long[] lngPrevious = lngTimes[intCluster];
+        long[] lngDelta = lngDeltas[intCluster];
+        long lngWindow = 0L;
+        double dblWeighted = 0D;
+        prsFrequency.reset(bufStates, bufStates.limit());
+        for (int i = 0; i < intRows; i++) {
+            long lngState = prsFrequency.nextLong();
+            long lngTime = prsFrequency.nextLong();
+            prsFrequency.skipLine();
+            lngStates[intCluster][i] = lngState;
+            lngDelta[i] = lngTime - lngPrevious[i];
+            lngPrevious[i] = lngTime;
+            booBaseline[intCluster] = booBaseline[intCluster] || lngDelta[i] < 0L;
+            lngWindow = lngWindow + lngDelta[i];
+            dblWeighted = dblWeighted + (double) lngState * lngDelta[i];
+        }
+
+        if (booBaseline[intCluster]) {
+            booBaseline[intCluster] = false;
+            lngSwitches[intCluster] = count(intCluster);
+            lngElapsed[intCluster] = 0L;
+            intCounted[intCluster] = 0;
+            lngSpans[intCluster] = 0L;
+            lngChanges[intCluster] = 0L;
+            for (int i = 0; i < intRows; i++) {
+                fltResidencies[intCluster][i] = 0F;
             }
+            return readValue(strPaths[intCluster] + "scaling_cur_freq");
+        }
 
-            final int a = (hz / 1000 / 1000);
-            final int b = (hz / 1000 / 100) % 10;
-            return a + "." + b + " GHz";
+        lngElapsed[intCluster] = lngElapsed[intCluster] + lngWindow;
+        if (++intCounted[intCluster] >= COUNTING) {
+            long lngTransitions = count(intCluster);
+            lngChanges[intCluster] = Math.max(0L, lngTransitions - lngSwitches[intCluster]);
+            lngSwitches[intCluster] = lngTransitions;
+            lngSpans[intCluster] = lngElapsed[intCluster];
+            lngElapsed[intCluster] = 0L;
+            intCounted[intCluster] = 0;
+        }
+        for (int i = 0; i < intRows; i++) {
+            fltResidencies[intCluster][i] = lngWindow > 0L ? 100F * lngDelta[i] / lngWindow : 0F;
+        }
+        return lngWindow > 0L ? Math.round(dblWeighted / lngWindow) : lngCurrents[intCluster];
+    }
+
+    /**
+     * Reads the cumulative number of frequency transitions of the given cluster. If the file can no
+     * longer be read, the transitions of the cluster are no longer counted.
+     *
+     * @param intCluster The index of the cluster
+     * @return The number of transitions or the number as of the last read if it couldn't be read
+     */
+    private long count(int intCluster) {
+        if (hndTransitions[intCluster] == null) {
+            return lngSwitches[intCluster];
+        }
+
+        try {
+            return read(hndTransitions[intCluster]);
         } catch (IOException e) {
-            Log.w("FrequencyManager", "Error reading the CPU frequency", e);
-            return "";
+            Log.v("FrequencyManager", "Unable to read the frequency transitions of cluster " + intCluster);
+            hndTransitions[intCluster].close();
+            hndTransitions[intCluster] = null;
+            return lngSwitches[intCluster];
         }
     }
 
     /**
-     * Closes the processor statistics file from which the figures are be read repeatedly
+     * Updates the current frequency of each of the clusters with a single read per cluster. When the
+     * file of a cluster disappears because all of its cores have been taken offline, the cluster is
+     * marked as unavailable and its file is periodically opened again. Where the kernel keeps the
+     * cpufreq statistics, the frequency of the cluster is the average over the window.
      */
-    public void destroy() {
+    public void update() {
+        for (int i = 0; i < hndClusters.length; i++) {
+            if (hndClusters[i] == null) {
+                lngCurrents[i] = 0L;
+                if (--intRetries[i] <= 0) {
+                    open(i);
+                }
+                if (hndClusters[i] == null) {
+                    continue;
+                }
+            }
 
-        if (rafFrequency != null) {
             try {
-                rafFrequency.close();
+                lngCurrents[i] = booStates[i] ? readStates(i) : read(hndClusters[i]);
             } catch (IOException e) {
-                Log.w("FrequencyManager", "Unable to successfully close the file");
+                Log.d("FrequencyManager", "Cluster " + i + " is currently unavailable");
+                close(i);
+                lngCurrents[i] = 0L;
+                intRetries[i] = RETRY;
             }
         }
     }
+
+    /**
+     * Returns the current frequency of the fastest cluster in a human readable format by converting
+     * it into a Hz
+     *
+     * @return The current CPU frequency
+     */
+    public String getFrequency() {
+        update();
+
+        long lngFastest = getFastest();
+        if (lngFastest == 0L) {
+            Log.w("FrequencyManager", "Error reading the CPU frequency");
+            return "";
+        }
+        return format(lngFastest);
+    }
+
+    /**
+     * Returns the current frequency of the fastest cluster in kHz as of the last update, which is the
+     * average over the window where the kernel keeps the cpufreq statistics
+     *
+     * @return The current frequency of the fastest cluster or zero if none could be read
+     */
+    public long getFastest() {
+        long lngFastest = 0L;
+        for (long lngCurrent : lngCurrents) {
+            lngFastest = Math.max(lngFastest, lngCurrent);
+        }
+        return lngFastest;
+    }
+
+    /**
+     * Returns the number of frequencies in the table of the cpufreq statistics of the given cluster
+     *
+     * @param intCluster The index of the cluster
+     * @return The number of frequencies or zero if the kernel doesn't keep the statistics
+     */
+    public int getStates(int intCluster) {
+        return lngStates[intCluster].length;
+    }
+
+    /**
+     * Returns the given frequency of the table of the cpufreq statistics of the given cluster
+     *
+     * @param intCluster The index of the cluster
+     * @param intState   The index of the frequency in the table
+     * @return The frequency in kHz
+     */
+    public long getState(int intCluster, int intState) {
+        return lngStates[intCluster][intState];
+    }
+
+    /**
+     * Returns the share of the last window that the given cluster spent at the given frequency
+     *
+     * @param intCluster The index of the cluster
+     * @param intState   The index of the frequency in the table
+     * @return The residency as a percentage or zero if the window is unknown
+     */
+    public float getResidency(int intCluster, int intState) {
+        return fltResidencies[intCluster][intState];
+    }
+
+    /**
+     * Returns the rate of the frequency transitions of the given cluster over the span in which they
+     * were last counted, which covers the last few updates
+     *
+     * @param intCluster The index of the cluster
+     * @return The number of transitions per second or zero if the span or the count is unknown
+     */
+    public double getTransitions(int intCluster) {
+        if (lngSpans[intCluster] <= 0L) {
+            return 0D;
+        }
+        return lngChanges[intCluster] * (double) HERTZ / lngSpans[intCluster];
+    }
+
+    /**
+     * Returns the ratio of the current to the maximum frequency of the cluster with the highest
+     * maximum frequency that is online as of the last update. The kernel caps the fastest cluster
+     * first when the processor heats up while the slower clusters often keep running at their own
+     * maximum, so only the ratio of the fastest cluster tells whether the processor is capped.
+     *
+     * @return The ratio of the fastest cluster or zero if no cluster is online
+     */
+    public double getRatio() {
+        int intFastest = -1;
+        for (int i = 0; i < lngCurrents.length; i++) {
+            if (lngCurrents[i] > 0L && lngMaximums[i] > 0L
+                    && (intFastest < 0 || lngMaximums[i] > lngMaximums[intFastest])) {
+                intFastest = i;
+            }
+        }
+        return intFastest < 0 ? 0D : (double) lngCurrents[intFastest] / lngMaximums[intFastest];
+    }
+
+    /**
+     * Formats the given frequency in a human readable format by converting it into a Hz
+     *
+     * @param lngFrequency The frequency in kHz as reported by cpufreq
+     * @return The formatted frequency
+     */
+    public static String format(long lngFrequency) {
+        if (lngFrequency < 1000 * 1000) {
+            return (lngFrequency / 1000) + " MHz";
+        }
+
+        final long a = (lngFrequency / 1000 / 1000);
+        final long b = (lngFrequency / 1000 / 100) % 10;
+        return a + "." + b + " GHz";
+    }
+
+    /**
+     * Returns the number of clusters whose frequencies are read
+     *
+     * @return The number of clusters
+     */
+    public int getClusters() {
+        return lngCurrents.length;
+    }
+
+    /**
+     * Returns the cores belonging to the given cluster
+     *
+     * @param intCluster The index of the cluster
+     * @return The core numbers of the cluster
+     */
+    public int[] getCores(int intCluster) {
+        return intMembers[intCluster].clone();
+    }
+
+    /**
+     * Returns whether the frequency of the given cluster could be read in the last update
+     *
+     * @param intCluster The index of the cluster
+     * @return True if the cluster is available
+     */
+    public boolean isOnline(int intCluster) {
+        return lngCurrents[intCluster] > 0L;
+    }
+
+    /**
+     * Returns the current frequency of the given cluster in kHz as of the last update, which is the
+     * average over the window where the kernel keeps the cpufreq statistics
+     *
+     * @param intCluster The index of the cluster
+     * @return The current frequency of the cluster
+     */
+    public long getCurrent(int intCluster) {
+        return lngCurrents[intCluster];
+    }
+
+    /**
+     * Returns the minimum frequency of the given cluster in kHz
+     *
+     * @param intCluster The index of the cluster
+     * @return The minimum frequency of the cluster
+     */
+    public long getMinimum(int intCluster) {
+        return lngMinimums[intCluster];
+    }
+
+    /**
+     * Returns the maximum frequency of the given cluster in kHz
+     *
+     * @param intCluster The index of the cluster
+     * @return The maximum frequency of the cluster
+     */
+    public long getMaximum(int intCluster) {
+        return lngMaximums[intCluster];
+    }
+
+    /**
+     * Closes the frequency statistics file of the given cluster
+     *
+     * @param intCluster The index of the cluster
+     */
+    private void close(int intCluster) {
+
+        if (hndClusters[intCluster] != null) {
+            hndClusters[intCluster].close();
+            hndClusters[intCluster] = null;
+        }
+        if (hndTransitions[intCluster] != null) {
+            hndTransitions[intCluster].close();
+            hndTransitions[intCluster] = null;
+        }
+        booStates[intCluster] = false;
+    }
+
+    /**
+     * Closes the frequency statistics files from which the figures are be read repeatedly
+     */
+    public void destroy() {
+
+        for (int i = 0; i < hndClusters.length; i++) {
+            close(i);
+        }
+    }
 }
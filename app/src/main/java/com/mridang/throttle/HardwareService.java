@@ -1,6 +1,6 @@
 package com.mridang.throttle;
 
-import android.app.NotificationManager;
+import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.app.Service;
 import android.content.BroadcastReceiver;
@@ -12,8 +12,11 @@ import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Binder;
 import android.os.Build;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
@@ -36,9 +39,9 @@ public class HardwareService extends Service {
      */
     private static NotificationHandler hndNotifier;
     /**
-     * The instance of the manager of the notification services
+     * The thread on which the figures are collected and the notification is updated
      */
-    private static NotificationManager mgrNotifications;
+    private static HandlerThread thrSampler;
     /**
      * The instance of the notification builder to rebuild the notification
      */
@@ -55,6 +58,10 @@ public class HardwareService extends Service {
      * The instance of the broadcast receiver to handle screen on/off intents
      */
     private BroadcastReceiver recScreen;
+    /**
+     * The instance of the manager of the alarms that drive the sampling while the screen is off
+     */
+    private AlarmManager mgrAlarms;
 
     /**
      * Initializes the service by getting instances of service managers and mainly setting up the
@@ -82,13 +89,14 @@ public class HardwareService extends Service {
         visibilityPublic(settings.getBoolean("lockscreen", true));
 
         Log.d("HardwareService", "Setting up the service manager and the broadcast receiver");
-        mgrNotifications = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-        hndNotifier = new NotificationHandler(getApplicationContext(), notBuilder);
+        thrSampler = new HandlerThread("SamplerThread", Process.THREAD_PRIORITY_BACKGROUND);
+        thrSampler.start();
+        hndNotifier = new NotificationHandler(thrSampler.getLooper(), getApplicationContext(), notBuilder);
+        mgrAlarms = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
 
         if (settings.getBoolean("enabled", true)) {
             Log.d("HardwareService", "Screen on; showing the notification");
-            hndNotifier.sendEmptyMessage(1);
-            hndNotifier.sendEmptyMessage(2);
+            hndNotifier.sendEmptyMessage(NotificationHandler.START);
         }
         recScreen = new BroadcastReceiver() {
 
@@ -102,13 +110,16 @@ public class HardwareService extends Service {
                 if (ittIntent.getAction().equalsIgnoreCase(Intent.ACTION_SCREEN_OFF)) {
 
                     Log.d("HardwareService", "Screen off; hiding the notification");
-                    hndNotifier.removeMessages(1);
-                    mgrNotifications.cancel(ID);
+                    hndNotifier.removeMessages(NotificationHandler.UPDATE);
+                    hndNotifier.sendEmptyMessage(NotificationHandler.HIDE);
+                    if (settings.getBoolean("enabled", true)) {
+                        startBackground(Long.parseLong(settings.getString("background", "0")));
+                    }
                 } else {
 
+                    stopBackground();
                     if (settings.getBoolean("enabled", true)) {
                         Log.d("HardwareService", "Screen on; showing the notification");
-                        hndNotifier = new NotificationHandler(ctxContext, notBuilder);
                         showNotification();
                     }
                 }
@@ -137,10 +148,9 @@ public class HardwareService extends Service {
         Log.d("HardwareService", "Stopping the hardware service");
         unregisterReceiver(recScreen);
         unregisterReceiver(recSaver);
-        hndNotifier.removeMessages(1);
-        hndNotifier.removeMessages(2);
-        mgrNotifications.cancel(ID);
-        hndNotifier.destroy();
+        stopBackground();
+        hndNotifier.removeMessages(NotificationHandler.UPDATE);
+        hndNotifier.sendEmptyMessage(NotificationHandler.DESTROY);
     }
 
     /**
@@ -150,9 +160,57 @@ public class HardwareService extends Service {
     public void showNotification() {
 
         Log.d("HardwareService", "Showing the notification");
-        mgrNotifications.notify(ID, notBuilder.build());
-        hndNotifier.removeMessages(1);
-        hndNotifier.sendEmptyMessage(1);
+        hndNotifier.removeMessages(NotificationHandler.UPDATE);
+        hndNotifier.sendEmptyMessage(NotificationHandler.START);
+    }
+
+    /**
+     * Helper method that schedules the sampling while the screen is off. The alarm is inexact and
+     * doesn't wake the device so the system batches it with the other alarms and defers it while the
+     * device dozes, which means that the samples are collected whenever the device is awake anyway.
+     *
+     * @param interval The interval between the samples in milliseconds or zero to not sample at all
+     */
+    private void startBackground(long interval) {
+
+        if (interval > 0L) {
+            Log.d("HardwareService", "Sampling every " + interval + "ms while the screen is off");
+            mgrAlarms.setInexactRepeating(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + interval,
+                    interval, getBackground(this));
+        }
+    }
+
+    /**
+     * Helper method that cancels the sampling while the screen is off
+     */
+    private void stopBackground() {
+        mgrAlarms.cancel(getBackground(this));
+    }
+
+    /**
+     * Helper method that returns the intent that the alarm sends to the receiver which collects the
+     * figures while the screen is off
+     *
+     * @param ctxContext The context used to create the intent
+     * @return The pending intent of the background sampling alarm
+     */
+    public static PendingIntent getBackground(Context ctxContext) {
+        return PendingIntent.getBroadcast(ctxContext, 0, new Intent(ctxContext, BackgroundReceiver.class), 0);
+    }
+
+    /**
+     * Helper method that asks the handler to collect the figures into the history without posting
+     * the notification. This is invoked by the receiver of the background sampling alarm.
+     *
+     * @return True if the service is running and the figures will be collected
+     */
+    public static boolean sampleBackground() {
+        NotificationHandler hndHandler = hndNotifier;
+        if (hndHandler == null || !thrSampler.isAlive()) {
+            return false;
+        }
+        hndHandler.sendEmptyMessage(NotificationHandler.BACKGROUND);
+        return true;
     }
 
     /**
@@ -162,8 +220,8 @@ public class HardwareService extends Service {
     public void hideNotification() {
 
         Log.d("HardwareService", "Hiding the notification");
-        mgrNotifications.cancel(ID);
-        hndNotifier.removeMessages(1);
+        hndNotifier.removeMessages(NotificationHandler.UPDATE);
+        hndNotifier.sendEmptyMessage(NotificationHandler.HIDE);
     }
 
     /**
@@ -174,11 +232,37 @@ public class HardwareService extends Service {
      *                   lockscreen
      */
     public void visibilityPublic(Boolean visibility) {
-        if (visibility) {
-            notBuilder.setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
-        } else {
-            notBuilder.setVisibility(NotificationCompat.VISIBILITY_SECRET);
+        synchronized (notBuilder) {
+            if (visibility) {
+                notBuilder.setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+            } else {
+                notBuilder.setVisibility(NotificationCompat.VISIBILITY_SECRET);
+            }
         }
+        if (hndNotifier != null) {
+            hndNotifier.invalidate();
+        }
+    }
+
+    /**
+     * Helper method that toggles whether the usage of the busiest core is shown in the notification
+     * alongside the average usage depending on the value of the preference in the activity
+     *
+     * @param busiest A boolean value indicating whether the busiest core should be shown
+     */
+    public void showBusiest(Boolean busiest) {
+        hndNotifier.setBusiest(busiest);
+    }
+
+    /**
+     * Helper method that sets whether the small icon shows the static usage levels, a sparkline of the
+     * recent usage or a bar graph of the usage of the cores depending on the value of the preference
+     * in the activity
+     *
+     * @param mode The mode of the icon as defined by the icon renderer
+     */
+    public void setGraph(Integer mode) {
+        hndNotifier.setGraph(mode);
     }
 
     /**
@@ -188,7 +272,133 @@ public class HardwareService extends Service {
      * @param color The internal int representation of the RGB color to set as the background colour
      */
     public void setColor(Integer color) {
-        notBuilder.setColor(color);
+        synchronized (notBuilder) {
+            notBuilder.setColor(color);
+        }
+        if (hndNotifier != null) {
+            hndNotifier.invalidate();
+        }
+    }
+
+    /**
+     * Helper method that sets the minimum interval between two posts of the notification depending
+     * on the value of the preference in the activity
+     *
+     * @param interval The minimum interval in milliseconds
+     */
+    public void setMinimum(Long interval) {
+        hndNotifier.setMinimum(interval);
+    }
+
+    /**
+     * Helper method that toggles whether the polling interval adapts to how quickly the figures are
+     * changing depending on the value of the preference in the activity
+     *
+     * @param adaptive A boolean value indicating whether the polling interval should adapt
+     */
+    public void setAdaptive(Boolean adaptive) {
+        hndNotifier.setAdaptive(adaptive);
+    }
+
+    /**
+     * Helper method that sets the bounds of the adaptive polling interval depending on the values of
+     * the preferences in the activity
+     *
+     * @param fastest The shortest polling interval in milliseconds
+     * @param slowest The longest polling interval in milliseconds
+     */
+    public void setBounds(Long fastest, Long slowest) {
+        hndNotifier.setBounds(fastest, slowest);
+    }
+
+    /**
+     * Helper method that sets the half-life of the smoothing of the usage shown by the icon depending
+     * on the value of the preference in the activity
+     *
+     * @param halflife The half-life in milliseconds or zero to disable the smoothing
+     */
+    public void setSmoothing(Long halflife) {
+        hndNotifier.setSmoothing(halflife);
+    }
+
+    /**
+     * Helper method that shows or hides the disk activity below the memory usage depending on
+     * whether the preference in the activity is toggled or not
+     *
+     * @param show A boolean value indicating whether the disk activity should be shown
+     */
+    public void showDisk(Boolean show) {
+        hndNotifier.setDisk(show);
+    }
+
+    /**
+     * Helper method that shows or hides the 95th percentile of the usage over the last five minutes
+     * depending on whether the preference in the activity is toggled or not
+     *
+     * @param show A boolean value indicating whether the percentile should be shown
+     */
+    public void showPercentile(Boolean show) {
+        hndNotifier.setPercentile(show);
+    }
+
+    /**
+     * Helper method that returns the statistics of the usage over the last one and five minutes so
+     * that the activity can show them without collecting the figures again
+     *
+     * @return The usage statistics
+     */
+    public UsageStatistics getStatistics() {
+        return hndNotifier.getStatistics();
+    }
+
+    /**
+     * Helper method that sets how often the busiest processes are scanned depending on the value of
+     * the preference in the activity
+     *
+     * @param interval The interval in milliseconds or zero to disable the scans
+     */
+    public void setProcesses(Long interval) {
+        hndNotifier.setProcesses(interval);
+    }
+
+    /**
+     * Helper method that returns the figures collected in the last update so that the activity can
+     * show them without collecting the figures again
+     *
+     * @return The latest snapshot of the figures or null if none have been collected yet
+     */
+    public Snapshot getSnapshot() {
+        return hndNotifier.getLatest();
+    }
+
+    /**
+     * Helper method that returns the store of the recent history of the collected figures so that
+     * the activity can show the trends without collecting the figures again
+     *
+     * @return The history store or null if the sampler hasn't been set up yet
+     */
+    public HistoryStore getHistory() {
+        return hndNotifier.getHistory();
+    }
+
+    /**
+     * Helper method that returns the histogram of the lateness of the updates so that it can be
+     * checked whether the sampler keeps its period under load
+     *
+     * @return The jitter histogram in microseconds
+     */
+    public JitterHistogram getJitter() {
+        return hndNotifier.getJitter();
+    }
+
+    /**
+     * Helper method that returns the monitor of what the monitor itself costs so that the activity
+     * can show and export the overhead
+     *
+     * @return The overhead monitor or null if the sampler hasn't been set up yet
+     */
+    public OverheadMonitor getOverhead() {
+        return hndNotifier.getOverhead();
     }
 
     /**
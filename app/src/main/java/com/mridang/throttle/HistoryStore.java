@@ -0,0 +1,268 @@
+package com.mridang.throttle;
+
+/**
+ * Store class that keeps the recent history of the collected figures in memory so that the trends
+ * can be shown without collecting the figures again. The figures are kept in several tiers of
+ * increasingly coarse resolution, each of which is a fixed-capacity ring of primitive arrays holding
+ * the minimum, average and maximum of every series in each of its buckets. All the tiers are updated
+ * incrementally on every insert so nothing needs to be recomputed when the history is read.
+ *
+ * With the default capacities and sixteen cores the store takes a little over half a megabyte.
+ */
+public class HistoryStore {
+
+    /**
+     * The index of the tier with a resolution of one second, holding the last fifteen minutes
+     */
+    public static final int SECONDS = 0;
+    /**
+     * The index of the tier with a resolution of ten seconds, holding the last three hours
+     */
+    public static final int TENS = 1;
+    /**
+     * The index of the tier with a resolution of one minute, holding the last six hours
+     */
+    public static final int MINUTES = 2;
+    /**
+     * The index of the series holding the cumulative processor usage in percent
+     */
+    public static final int USAGE = 0;
+    /**
+     * The index of the series holding the frequency of the fastest cluster in MHz
+     */
+    public static final int FREQUENCY = 1;
+    /**
+     * The index of the series holding the free memory in megabytes
+     */
+    public static final int MEMORY = 2;
+    /**
+     * The index of the series holding the usage of the first core in percent. The usage of the other
+     * cores follows in consecutive series.
+     */
+    public static final int CORES = 3;
+    /**
+     * The maximum number of cores whose usage is kept
+     */
+    private static final int MAXIMUM = 16;
+    /**
+     * The tiers of the history in the increasing order of their resolution
+     */
+    private final Tier[] lstTiers;
+    /**
+     * The number of series in each of the tiers
+     */
+    private final int intSeries;
+    /**
+     * The reusable array into which the figures of a snapshot are copied before they are inserted
+     */
+    private final float[] fltValues;
+
+    /**
+     * Tier class that holds the buckets of a single resolution in a ring of primitive arrays
+     */
+    private static final class Tier {
+
+        /**
+         * The length of each of the buckets in milliseconds
+         */
+        private final long lngResolution;
+        /**
+         * The start time of each of the buckets in milliseconds
+         */
+        private final long[] lngStarts;
+        /**
+         * The number of samples in each of the buckets
+         */
+        private final int[] intCounts;
+        /**
+         * The minimum of each of the series in each of the buckets
+         */
+        private final float[] fltMinimums;
+        /**
+         * The average of each of the series in each of the buckets
+         */
+        private final float[] fltAverages;
+        /**
+         * The maximum of each of the series in each of the buckets
+         */
+        private final float[] fltMaximums;
+        /**
+         * The index of the newest bucket in the ring
+         */
+        private int intHead = -1;
+        /**
+         * The number of buckets in the ring that hold samples
+         */
+        private int intSize = 0;
+
+        private Tier(long lngResolution, int intCapacity, int intSeries) {
+            this.lngResolution = lngResolution;
+            this.lngStarts = new long[intCapacity];
+            this.intCounts = new int[intCapacity];
+            this.fltMinimums = new float[intCapacity * intSeries];
+            this.fltAverages = new float[intCapacity * intSeries];
+            this.fltMaximums = new float[intCapacity * intSeries];
+        }
+
+        /**
+         * Adds the given values into the bucket covering the given time, starting a new bucket and
+         * overwriting the oldest one if the time lies beyond the newest bucket
+         *
+         * @param lngTime   The time of the sample in milliseconds
+         * @param fltValues The values of each of the series
+         * @param intSeries The number of series
+         */
+        private void insert(long lngTime, float[] fltValues, int intSeries) {
+            long lngStart = lngTime - lngTime % lngResolution;
+            if (intHead < 0 || lngStart > lngStarts[intHead]) {
+                intHead = (intHead + 1) % lngStarts.length;
+                intSize = Math.min(intSize + 1, lngStarts.length);
+                lngStarts[intHead] = lngStart;
+                intCounts[intHead] = 0;
+            }
+
+            int intCount = ++intCounts[intHead];
+            int intOffset = intHead * intSeries;
+            for (int i = 0; i < intSeries; i++) {
+                float fltValue = fltValues[i];
+                if (intCount == 1) {
+                    fltMinimums[intOffset + i] = fltValue;
+                    fltAverages[intOffset + i] = fltValue;
+                    fltMaximums[intOffset + i] = fltValue;
+                } else {
+                    fltMinimums[intOffset + i] = Math.min(fltMinimums[intOffset + i], fltValue);
+                    fltAverages[intOffset + i] += (fltValue - fltAverages[intOffset + i]) / intCount;
+                    fltMaximums[intOffset + i] = Math.max(fltMaximums[intOffset + i], fltValue);
+                }
+            }
+        }
+
+        /**
+         * Returns the position in the ring of the bucket with the given age-ordered index
+         *
+         * @param intIndex The index of the bucket where zero is the oldest bucket
+         * @return The position of the bucket in the ring
+         */
+        private int slot(int intIndex) {
+            if (intIndex < 0 || intIndex >= intSize) {
+                throw new IndexOutOfBoundsException("Index " + intIndex + " of " + intSize);
+            }
+            return (intHead - intSize + 1 + intIndex + lngStarts.length) % lngStarts.length;
+        }
+    }
+
+    /**
+     * Creates a store for the given number of cores
+     *
+     * @param intCores The number of processor cores whose usage should be kept
+     */
+    public HistoryStore(int intCores) {
+        this.intSeries = CORES + Math.min(Math.max(intCores, 0), MAXIMUM);
+        this.fltValues = new float[intSeries];
+        this.lstTiers = new Tier[]{
+                new Tier(1000L, 900, intSeries),
+                new Tier(10000L, 1080, intSeries),
+                new Tier(60000L, 360, intSeries)
+        };
+    }
+
+    /**
+     * Inserts the figures of the given snapshot into all the tiers
+     *
+     * @param snpFigures The snapshot of the collected figures
+     */
+    public synchronized void insert(Snapshot snpFigures) {
+        fltValues[USAGE] = (float) snpFigures.getUsage();
+        fltValues[FREQUENCY] = snpFigures.getFrequency() / 1000F;
+        fltValues[MEMORY] = snpFigures.getFree();
+        for (int i = CORES; i < intSeries; i++) {
+            fltValues[i] = (float) snpFigures.getUsage(i - CORES);
+        }
+
+        for (Tier tieTier : lstTiers) {
+            tieTier.insert(snpFigures.getTime(), fltValues, intSeries);
+        }
+    }
+
+    /**
+     * Returns the number of series in the store including one series for each of the cores
+     *
+     * @return The number of series
+     */
+    public int getSeries() {
+        return intSeries;
+    }
+
+    /**
+     * Returns the number of buckets of the given tier that hold samples
+     *
+     * @param intTier The index of the tier
+     * @return The number of buckets
+     */
+    public synchronized int getSize(int intTier) {
+        return lstTiers[intTier].intSize;
+    }
+
+    /**
+     * Returns the start time of the given bucket of the given tier
+     *
+     * @param intTier  The index of the tier
+     * @param intIndex The index of the bucket where zero is the oldest bucket
+     * @return The start time of the bucket in milliseconds
+     */
+    public synchronized long getTime(int intTier, int intIndex) {
+        Tier tieTier = lstTiers[intTier];
+        return tieTier.lngStarts[tieTier.slot(intIndex)];
+    }
+
+    /**
+     * Returns the number of samples in the given bucket of the given tier
+     *
+     * @param intTier  The index of the tier
+     * @param intIndex The index of the bucket where zero is the oldest bucket
+     * @return The number of samples in the bucket
+     */
+    public synchronized int getCount(int intTier, int intIndex) {
+        Tier tieTier = lstTiers[intTier];
+        return tieTier.intCounts[tieTier.slot(intIndex)];
+    }
+
+    /**
+     * Returns the minimum of the given series in the given bucket of the given tier
+     *
+     * @param intTier   The index of the tier
+     * @param intSeries The index of the series
+     * @param intIndex  The index of the bucket where zero is the oldest bucket
+     * @return The minimum of the series in the bucket
+     */
+    public synchronized float getMinimum(int intTier, int intSeries, int intIndex) {
+        Tier tieTier = lstTiers[intTier];
+        return tieTier.fltMinimums[tieTier.slot(intIndex) * this.intSeries + intSeries];
+    }
+
+    /**
+     * Returns the average of the given series in the given bucket of the given tier
+     *
+     * @param intTier   The index of the tier
+     * @param intSeries The index of the series
+     * @param intIndex  The index of the bucket where zero is the oldest bucket
+     * @return The average of the series in the bucket
+     */
+    public synchronized float getAverage(int intTier, int intSeries, int intIndex) {
+        Tier tieTier = lstTiers[intTier];
+        return tieTier.fltAverages[tieTier.slot(intIndex) * this.intSeries + intSeries];
+    }
+
+    /**
+     * Returns the maximum of the given series in the given bucket of the given tier
+     *
+     * @param intTier   The index of the tier
+     * @param intSeries The index of the series
+     * @param intIndex  The index of the bucket where zero is the oldest bucket
+     * @return The maximum of the series in the bucket
+     */
+    public synchronized float getMaximum(int intTier, int intSeries, int intIndex) {
+        Tier tieTier = lstTiers[intTier];
+        return tieTier.fltMaximums[tieTier.slot(intIndex) * this.intSeries + intSeries];
+    }
+}
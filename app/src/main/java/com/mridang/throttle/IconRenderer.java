@@ -0,0 +1,241 @@
+package com.mridang.throttle;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Icon;
+import android.os.Build;
+
+/**
+ * Renderer class that draws the small icon of the notification as a sparkline of the recent usage or
+ * as a bar graph of the usage of the cores. The figures are quantised into a few levels per column
+ * and the levels of all the columns are packed into a key, so that the icons are cached by their key
+ * in a small pool of bitmaps and identical frames are never drawn again. The bitmaps, the canvases
+ * and the icons of the pool are created once, so nothing is allocated once the pool is warm.
+ */
+public class IconRenderer {
+
+    /**
+     * The mode in which the static drawables of the usage levels are used instead of a rendered icon
+     */
+    public static final int LEVELS = 0;
+    /**
+     * The mode in which the icon is a sparkline of the recent usage
+     */
+    public static final int SPARKLINE = 1;
+    /**
+     * The mode in which the icon is a bar graph of the usage of the cores
+     */
+    public static final int CORES = 2;
+    /**
+     * The number of columns of the graph
+     */
+    private static final int COLUMNS = 8;
+    /**
+     * The number of levels to which the figure of each of the columns is quantised
+     */
+    private static final int STEPS = 8;
+    /**
+     * The number of bits of the key taken up by each of the columns
+     */
+    private static final int BITS = 3;
+    /**
+     * The number of bitmaps in the pool
+     */
+    private static final int POOL = 8;
+    /**
+     * The width and height of the icon in pixels
+     */
+    private final int intSize;
+    /**
+     * The keys of the icons held by each of the bitmaps of the pool or -1 if a bitmap is unused
+     */
+    private final long[] lngKeys = new long[POOL];
+    /**
+     * The counter value at which each of the bitmaps of the pool was last used
+     */
+    private final long[] lngUsed = new long[POOL];
+    /**
+     * The bitmaps of the pool which are created when they are first needed
+     */
+    private final Bitmap[] bmpPool = new Bitmap[POOL];
+    /**
+     * The canvases drawing into each of the bitmaps of the pool
+     */
+    private final Canvas[] cnvPool = new Canvas[POOL];
+    /**
+     * The icons wrapping each of the bitmaps of the pool
+     */
+    private final Object[] icnPool = new Object[POOL];
+    /**
+     * The paint used to draw the columns of the graph
+     */
+    private final Paint pntGraph = new Paint();
+    /**
+     * The quantised usage of the last updates in the order in which they were collected
+     */
+    private final int[] intHistory = new int[COLUMNS];
+    /**
+     * The quantised figures of the columns of the icon that is about to be rendered
+     */
+    private final int[] intColumns = new int[COLUMNS];
+    /**
+     * The number of lookups so far used to find the least recently used bitmap of the pool
+     */
+    private long lngCounter = 0L;
+    /**
+     * The index of the bitmap of the pool holding the last rendered icon or -1 if there is none
+     */
+    private int intCurrent = -1;
+    /**
+     * The number of icons that had to be drawn because they weren't in the pool
+     */
+    private long lngDrawn = 0L;
+
+    /**
+     * Creates a renderer that draws icons of the given size
+     *
+     * @param intSize The width and height of the icon in pixels
+     */
+    public IconRenderer(int intSize) {
+        this.intSize = Math.max(intSize, COLUMNS);
+        this.pntGraph.setColor(Color.WHITE);
+        this.pntGraph.setAntiAlias(false);
+        for (int i = 0; i < POOL; i++) {
+            lngKeys[i] = -1L;
+        }
+    }
+
+    /**
+     * Adds the usage of the given snapshot to the sparkline and renders the icon of the given mode
+     * unless an identical icon is already in the pool. The sparkline is updated in every mode so that
+     * it is complete when the mode is switched.
+     *
+     * @param intMode    The mode of the icon
+     * @param snpFigures The snapshot of the figures to be shown
+     * @return The key of the rendered icon or zero if the static drawables should be used
+     */
+    public long update(int intMode, Snapshot snpFigures) {
+        System.arraycopy(intHistory, 1, intHistory, 0, COLUMNS - 1);
+        intHistory[COLUMNS - 1] = quantise(snpFigures.getUsage());
+        if (intMode == SPARKLINE) {
+            System.arraycopy(intHistory, 0, intColumns, 0, COLUMNS);
+        } else if (intMode == CORES && snpFigures.getCores() > 0) {
+            fillCores(snpFigures);
+        } else {
+            intCurrent = -1;
+            return 0L;
+        }
+
+        long lngKey = intMode;
+        for (int i = 0; i < COLUMNS; i++) {
+            lngKey = (lngKey << BITS) | intColumns[i];
+        }
+        intCurrent = lookup(lngKey);
+        return lngKey;
+    }
+
+    /**
+     * Fills the columns with the usage of the cores. When there are more cores than columns, each
+     * column shows the busiest of the cores that fall into it, and when there are fewer cores, each
+     * core spans several columns.
+     *
+     * @param snpFigures The snapshot of the figures holding the usage of the cores
+     */
+    private void fillCores(Snapshot snpFigures) {
+        int intCores = snpFigures.getCores();
+        for (int i = 0; i < COLUMNS; i++) {
+            intColumns[i] = 0;
+        }
+        for (int i = 0; i < intCores; i++) {
+            int intLevel = quantise(snpFigures.getUsage(i));
+            int intFirst = i * COLUMNS / intCores;
+            int intLast = Math.max(intFirst, (i + 1) * COLUMNS / intCores - 1);
+            for (int j = intFirst; j <= intLast && j < COLUMNS; j++) {
+                intColumns[j] = Math.max(intColumns[j], intLevel);
+            }
+        }
+    }
+
+    /**
+     * Quantises the given usage into one of the levels of a column
+     *
+     * @param dblUsage The usage in percent
+     * @return The level of the usage
+     */
+    private static int quantise(double dblUsage) {
+        return Math.max(0, Math.min(STEPS - 1, (int) Math.round(dblUsage * (STEPS - 1) / 100D)));
+    }
+
+    /**
+     * Finds the bitmap of the pool holding the icon with the given key. If there is none, the least
+     * recently used bitmap is cleared and the icon is drawn into it.
+     *
+     * @param lngKey The key of the icon
+     * @return The index of the bitmap of the pool holding the icon
+     */
+    private int lookup(long lngKey) {
+        lngCounter++;
+        int intOldest = 0;
+        for (int i = 0; i < POOL; i++) {
+            if (lngKeys[i] == lngKey) {
+                lngUsed[i] = lngCounter;
+                return i;
+            }
+            if (lngUsed[i] < lngUsed[intOldest]) {
+                intOldest = i;
+            }
+        }
+
+        if (bmpPool[intOldest] == null) {
+            bmpPool[intOldest] = Bitmap.createBitmap(intSize, intSize, Bitmap.Config.ARGB_8888);
+            cnvPool[intOldest] = new Canvas(bmpPool[intOldest]);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                icnPool[intOldest] = Icon.createWithBitmap(bmpPool[intOldest]);
+            }
+        }
+        draw(cnvPool[intOldest], bmpPool[intOldest]);
+        lngKeys[intOldest] = lngKey;
+        lngUsed[intOldest] = lngCounter;
+        lngDrawn++;
+        return intOldest;
+    }
+
+    /**
+     * Draws the columns into the given bitmap from the bottom up. Only the alpha channel of the
+     * small icon is used by the status bar so the columns are drawn in plain white.
+     *
+     * @param cnvIcon The canvas drawing into the bitmap
+     * @param bmpIcon The bitmap of the icon
+     */
+    private void draw(Canvas cnvIcon, Bitmap bmpIcon) {
+        bmpIcon.eraseColor(Color.TRANSPARENT);
+        float fltWidth = (float) intSize / COLUMNS;
+        for (int i = 0; i < COLUMNS; i++) {
+            float fltHeight = intSize * (intColumns[i] + 1F) / STEPS;
+            cnvIcon.drawRect(i * fltWidth + 0.5F, intSize - fltHeight, (i + 1) * fltWidth - 0.5F, intSize,
+                    pntGraph);
+        }
+    }
+
+    /**
+     * Returns the icon that was rendered in the last update
+     *
+     * @return The rendered icon or null if the static drawables should be used
+     */
+    @TargetApi(Build.VERSION_CODES.M)
+    public Icon getIcon() {
+        return intCurrent < 0 ? null : (Icon) icnPool[intCurrent];
+    }
+
+    /**
+     * Returns the number of icons that had to be drawn because they weren't in the pool
+     *
+     * @return The number of drawn icons
+     */
+    public long getDrawn() {
+        return lngDrawn;
+    }
+}
@@ -0,0 +1,140 @@
+package com.mridang.throttle;
+
+/**
+ * Histogram class that records the scheduling jitter of the sampler in logarithmic buckets with a
+ * fixed relative precision, in the manner of an HDR histogram. The small values are recorded exactly
+ * while the larger values are recorded with a precision of about six percent.
+ */
+public class JitterHistogram {
+
+    /**
+     * The number of sub-buckets into which each power of two is divided
+     */
+    private static final int SUBBUCKETS = 16;
+    /**
+     * The number of powers of two that the histogram can hold before the values are clamped
+     */
+    private static final int MAGNITUDES = 36;
+    /**
+     * The counts of the recorded values in each of the buckets
+     */
+    private final long[] lngCounts = new long[SUBBUCKETS * 2 + MAGNITUDES * SUBBUCKETS];
+    /**
+     * The number of values that have been recorded
+     */
+    private long lngCount = 0L;
+    /**
+     * The sum of all the values that have been recorded
+     */
+    private long lngSum = 0L;
+    /**
+     * The largest value that has been recorded
+     */
+    private long lngMaximum = 0L;
+
+    /**
+     * Returns the index of the bucket into which the given value falls
+     *
+     * @param lngValue The non-negative value
+     * @return The index of the bucket
+     */
+    private static int indexOf(long lngValue) {
+        if (lngValue < SUBBUCKETS * 2) {
+            return (int) lngValue;
+        }
+
+        int intShift = 63 - Long.numberOfLeadingZeros(lngValue) - 4;
+        int intIndex = SUBBUCKETS * 2 + (intShift - 1) * SUBBUCKETS + (int) (lngValue >>> intShift) - SUBBUCKETS;
+        return Math.min(intIndex, SUBBUCKETS * 2 + MAGNITUDES * SUBBUCKETS - 1);
+    }
+
+    /**
+     * Returns the largest value that falls into the bucket with the given index
+     *
+     * @param intIndex The index of the bucket
+     * @return The upper bound of the bucket
+     */
+    private static long valueOf(int intIndex) {
+        if (intIndex < SUBBUCKETS * 2) {
+            return intIndex;
+        }
+
+        int intShift = (intIndex - SUBBUCKETS * 2) / SUBBUCKETS + 1;
+        long lngBase = (intIndex - SUBBUCKETS * 2) % SUBBUCKETS + SUBBUCKETS;
+        return ((lngBase + 1) << intShift) - 1;
+    }
+
+    /**
+     * Records the given value in the histogram. Negative values are recorded as zero.
+     *
+     * @param lngValue The value to record
+     */
+    public synchronized void record(long lngValue) {
+        lngValue = Math.max(lngValue, 0L);
+        lngCounts[indexOf(lngValue)]++;
+        lngCount++;
+        lngSum += lngValue;
+        lngMaximum = Math.max(lngMaximum, lngValue);
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall
+     *
+     * @param dblPercentile The percentile between 0 and 100
+     * @return The value at the percentile or zero if nothing has been recorded
+     */
+    public synchronized long getPercentile(double dblPercentile) {
+        if (lngCount == 0L) {
+            return 0L;
+        }
+
+        long lngTarget = Math.max(1L, (long) Math.ceil(lngCount * dblPercentile / 100D));
+        long lngSeen = 0L;
+        for (int i = 0; i < lngCounts.length; i++) {
+            lngSeen += lngCounts[i];
+            if (lngSeen >= lngTarget) {
+                return Math.min(valueOf(i), lngMaximum);
+            }
+        }
+        return lngMaximum;
+    }
+
+    /**
+     * Returns the number of values that have been recorded
+     *
+     * @return The number of values
+     */
+    public synchronized long getCount() {
+        return lngCount;
+    }
+
+    /**
+     * Returns the mean of all the values that have been recorded
+     *
+     * @return The mean value or zero if nothing has been recorded
+     */
+    public synchronized double getMean() {
+        return lngCount == 0L ? 0D : (double) lngSum / lngCount;
+    }
+
+    /**
+     * Returns the largest value that has been recorded
+     *
+     * @return The largest value
+     */
+    public synchronized long getMaximum() {
+        return lngMaximum;
+    }
+
+    /**
+     * Clears all the values that have been recorded
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < lngCounts.length; i++) {
+            lngCounts[i] = 0L;
+        }
+        lngCount = 0L;
+        lngSum = 0L;
+        lngMaximum = 0L;
+    }
+}
@@ -0,0 +1,217 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+
+/**
+ * Manager class to read the memory usage from the /proc/meminfo file. The offsets of the rows that
+ * are needed are found in the first update and cached so that the following updates jump straight to
+ * those rows instead of scanning the whole file. The rows only move when a value outgrows its column,
+ * in which case the file is scanned again.
+ */
+public class MemoryManager {
+
+    /**
+     * The path of the memory statistics file relative to the root of the source
+     */
+    private static final String MEMINFO = "proc/meminfo";
+    /**
+     * The index of the total usable memory
+     */
+    public static final int TOTAL = 0;
+    /**
+     * The index of the completely unused memory
+     */
+    public static final int FREE = 1;
+    /**
+     * The index of the memory available for starting new applications without swapping
+     */
+    public static final int AVAILABLE = 2;
+    /**
+     * The index of the memory used by the block device buffers
+     */
+    public static final int BUFFERS = 3;
+    /**
+     * The index of the memory used by the page cache
+     */
+    public static final int CACHED = 4;
+    /**
+     * The index of the total swap space, which is backed by zram on most devices
+     */
+    public static final int SWAP_TOTAL = 5;
+    /**
+     * The index of the unused swap space
+     */
+    public static final int SWAP_FREE = 6;
+    /**
+     * The index of the shared memory including the tmpfs and ashmem regions
+     */
+    public static final int SHMEM = 7;
+    /**
+     * The keys of the rows that are read in the order of their indices
+     */
+    private static final byte[][] KEYS = {
+            "MemTotal:".getBytes(), "MemFree:".getBytes(), "MemAvailable:".getBytes(), "Buffers:".getBytes(),
+            "Cached:".getBytes(), "SwapTotal:".getBytes(), "SwapFree:".getBytes(), "Shmem:".getBytes()
+    };
+    /**
+     * The memory statistics file from which the figures should be read repeatedly or null if the
+     * file couldn't be opened
+     */
+    private FileSource.Handle hndMemory;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsMemory = new ProcfsParser();
+    /**
+     * The offset of the row of each of the keys or -1 if the key isn't present in the file
+     */
+    private final int[] intOffsets = new int[KEYS.length];
+    /**
+     * The value of each of the keys in kilobytes as of the last update
+     */
+    private final long[] lngValues = new long[KEYS.length];
+    /**
+     * The flag indicating whether the offsets of the rows have been found
+     */
+    private boolean booScanned = false;
+
+    public MemoryManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that reads the statistics file from the given source. When the file is
+     * missing, the manager reports no memory at all.
+     *
+     * @param srcFiles The source from which the statistics file is read
+     */
+    public MemoryManager(FileSource srcFiles) {
+        try {
+            hndMemory = srcFiles.open(MEMINFO, 8192);
+        } catch (FileNotFoundException e) {
+            Log.w("MemoryManager", "Unable to open the memory statistics file", e);
+        }
+    }
+
+    /**
+     * Updates the memory figures with a single read of the statistics file. Only the cached rows are
+     * parsed unless one of them has moved.
+     */
+    public void update() {
+        if (hndMemory == null) {
+            return;
+        }
+
+        try {
+            ByteBuffer bufMemory = hndMemory.read();
+            prsMemory.reset(bufMemory, bufMemory.limit());
+            if (booScanned && readCached()) {
+                return;
+            }
+            scan();
+        } catch (Exception e) {
+            Log.e("MemoryManager", "Error reading the memory statistics", e);
+        }
+    }
+
+    /**
+     * Reads the values at the cached offsets of the rows
+     *
+     * @return False if any of the rows is no longer at its cached offset
+     */
+    private boolean readCached() {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (intOffsets[i] < 0) {
+                continue;
+            }
+
+            prsMemory.setPosition(intOffsets[i]);
+            if (!prsMemory.startsWith(KEYS[i])) {
+                return false;
+            }
+            prsMemory.skip(KEYS[i].length);
+            lngValues[i] = prsMemory.nextLong();
+        }
+        return true;
+    }
+
+    /**
+     * Scans all the rows of the statistics file, reading the values of the keys and caching the
+     * offsets of their rows
+     */
+    private void scan() {
+        for (int i = 0; i < KEYS.length; i++) {
+            intOffsets[i] = -1;
+            lngValues[i] = 0L;
+        }
+
+        prsMemory.setPosition(0);
+        while (!prsMemory.isFinished()) {
+            for (int i = 0; i < KEYS.length; i++) {
+                if (intOffsets[i] < 0 && prsMemory.startsWith(KEYS[i])) {
+                    intOffsets[i] = prsMemory.getPosition();
+                    prsMemory.skip(KEYS[i].length);
+                    lngValues[i] = prsMemory.nextLong();
+                    break;
+                }
+            }
+            prsMemory.skipLine();
+        }
+        booScanned = true;
+    }
+
+    /**
+     * Returns the value of the given key in kilobytes as of the last update
+     *
+     * @param intKey The index of the key
+     * @return The value of the key or zero if the key isn't present
+     */
+    public long getValue(int intKey) {
+        return lngValues[intKey];
+    }
+
+    /**
+     * Returns the total usable memory in kilobytes as of the last update
+     *
+     * @return The total memory
+     */
+    public long getTotal() {
+        return lngValues[TOTAL];
+    }
+
+    /**
+     * Returns the memory available for starting new applications in kilobytes as of the last update.
+     * Older kernels don't report it, in which case the free memory and the reclaimable caches are
+     * summed instead.
+     *
+     * @return The available memory
+     */
+    public long getAvailable() {
+        if (intOffsets[AVAILABLE] >= 0) {
+            return lngValues[AVAILABLE];
+        }
+        return lngValues[FREE] + lngValues[BUFFERS] + lngValues[CACHED];
+    }
+
+    /**
+     * Returns the swap space in use in kilobytes as of the last update
+     *
+     * @return The used swap space
+     */
+    public long getSwapUsed() {
+        return Math.max(0L, lngValues[SWAP_TOTAL] - lngValues[SWAP_FREE]);
+    }
+
+    /**
+     * Closes the memory statistics file from which the figures are be read repeatedly
+     */
+    public void destroy() {
+
+        if (hndMemory != null) {
+            hndMemory.close();
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Manager class to read the traffic of the network interfaces from the /proc/net/dev file. The
+ * interface that was found on each of the lines is remembered so that each line is usually matched
+ * with a single comparison. Interfaces that appear are given a slot which is kept while they are
+ * present and reused once they have disappeared, so nothing is allocated unless the interfaces
+ * change.
+ */
+public class NetworkManager {
+
+    /**
+     * The index of the number of bytes received in the window
+     */
+    public static final int RX_BYTES = 0;
+    /**
+     * The index of the number of packets received in the window
+     */
+    public static final int RX_PACKETS = 1;
+    /**
+     * The index of the number of bytes transmitted in the window
+     */
+    public static final int TX_BYTES = 2;
+    /**
+     * The index of the number of packets transmitted in the window
+     */
+    public static final int TX_PACKETS = 3;
+    /**
+     * The number of the counters of each of the interfaces
+     */
+    public static final int COUNTERS = 4;
+    /**
+     * The path of the network statistics file relative to the root of the source
+     */
+    private static final String DEV = "proc/net/dev";
+    /**
+     * The name of the loopback interface which isn't counted in the totals
+     */
+    private static final byte[] LOOPBACK = {'l', 'o'};
+    /**
+     * The number of columns of an interface row that are read after the name of the interface
+     */
+    private static final int COLUMNS = 10;
+    /**
+     * The indices of the columns of an interface row which are read after the name of the interface
+     */
+    private static final int COLUMN_RX_BYTES = 0, COLUMN_RX_PACKETS = 1, COLUMN_TX_BYTES = 8, COLUMN_TX_PACKETS = 9;
+    /**
+     * The network statistics file from which the figures should be read repeatedly or null if the
+     * file couldn't be opened
+     */
+    private FileSource.Handle hndNetwork;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsNetwork = new ProcfsParser();
+    /**
+     * The columns of the row that was last parsed
+     */
+    private final long[] lngColumns = new long[COLUMNS];
+    /**
+     * The ASCII bytes of the name of the interface in each of the slots
+     */
+    private byte[][] bytNames = new byte[0][];
+    /**
+     * The name of the interface in each of the slots
+     */
+    private String[] strNames = new String[0];
+    /**
+     * The flags indicating whether the interface in each of the slots was present in the last update
+     */
+    private boolean[] booPresent = new boolean[0];
+    /**
+     * The flags indicating whether the interface in each of the slots was found in the current update
+     */
+    private boolean[] booFound = new boolean[0];
+    /**
+     * The cumulative counters of the interface in each of the slots as of the last update, indexed
+     * by the slot and the counter
+     */
+    private long[] lngPrevious = new long[0];
+    /**
+     * The counters of the interface in each of the slots during the last window, indexed by the
+     * slot and the counter
+     */
+    private long[] lngCounters = new long[0];
+    /**
+     * The slot of the interface that was found on each of the lines in the last update
+     */
+    private int[] intLines = new int[0];
+    /**
+     * The slots of the interfaces that are present in the order of the slots
+     */
+    private int[] intPresent = new int[0];
+    /**
+     * The counters of all of the interfaces except the loopback interface during the last window
+     */
+    private final long[] lngTotals = new long[COUNTERS];
+    /**
+     * The number of times that the interfaces have appeared or disappeared
+     */
+    private long lngChanges = 0L;
+
+    public NetworkManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that opens the network statistics file from the given source. When the file
+     * is missing, the manager reports no traffic at all.
+     *
+     * @param srcFiles The source from which the network statistics file is read
+     */
+    public NetworkManager(FileSource srcFiles) {
+        try {
+            hndNetwork = srcFiles.open(DEV, 8192);
+        } catch (FileNotFoundException e) {
+            Log.w("NetworkManager", "Unable to open the network statistics file", e);
+        }
+    }
+
+    /**
+     * Updates the counters of each of the interfaces with a single read of the statistics file. The
+     * two header lines are skipped and the interface of each of the following lines is first looked
+     * for in the slot that was found on the same line in the last update. Interfaces that appear
+     * only set their baseline in their first update.
+     */
+    public void update() {
+        for (int i = 0; i < COUNTERS; i++) {
+            lngTotals[i] = 0L;
+        }
+        if (hndNetwork == null) {
+            return;
+        }
+
+        try {
+            ByteBuffer bufNetwork = hndNetwork.read();
+            prsNetwork.reset(bufNetwork, bufNetwork.limit());
+            prsNetwork.skipLine();
+            prsNetwork.skipLine();
+            for (int i = 0; i < booFound.length; i++) {
+                booFound[i] = false;
+            }
+
+            int intLine = 0;
+            while (!prsNetwork.isFinished()) {
+                while (prsNetwork.peek(0) == ' ') {
+                    prsNetwork.skip(1);
+                }
+
+                int intSlot = find(intLine, bufNetwork);
+                if (intSlot >= 0) {
+                    prsNetwork.skip(bytNames[intSlot].length + 1);
+                    for (int i = 0; i < COLUMNS; i++) {
+                        lngColumns[i] = prsNetwork.nextLong();
+                    }
+                    count(intSlot);
+                    if (intLine >= intLines.length) {
+                        intLines = Arrays.copyOf(intLines, intLine + 1);
+                    }
+                    intLines[intLine++] = intSlot;
+                }
+                prsNetwork.skipLine();
+            }
+            expire();
+        } catch (Exception e) {
+            Log.e("NetworkManager", "Error reading the network statistics", e);
+        }
+    }
+
+    /**
+     * Finds the slot of the interface whose name is at the cursor. The slot that was found on the
+     * same line in the last update is checked first and all the other slots only if it doesn't match.
+     * If the interface has just appeared, it is given a slot.
+     *
+     * @param intLine    The index of the line among the interface lines
+     * @param bufNetwork The buffer containing the raw contents of the file
+     * @return The slot of the interface or -1 if the line isn't that of an interface
+     */
+    private int find(int intLine, ByteBuffer bufNetwork) {
+        if (intLine < intLines.length && matches(intLines[intLine])) {
+            return intLines[intLine];
+        }
+        for (int i = 0; i < bytNames.length; i++) {
+            if (matches(i)) {
+                return i;
+            }
+        }
+
+        int intLength = 0;
+        while (prsNetwork.peek(intLength) != ':') {
+            if (prsNetwork.peek(intLength) < 0 || prsNetwork.peek(intLength) == '\n') {
+                return -1;
+            }
+            intLength++;
+        }
+        byte[] bytName = new byte[intLength];
+        for (int i = 0; i < intLength; i++) {
+            bytName[i] = bufNetwork.get(prsNetwork.getPosition() + i);
+        }
+        return allocate(bytName);
+    }
+
+    /**
+     * Checks whether the name of the interface in the given slot is at the cursor and hasn't been
+     * found yet in the current update
+     *
+     * @param intSlot The slot of the interface
+     * @return True if the line is that of the interface
+     */
+    private boolean matches(int intSlot) {
+        return intSlot < bytNames.length && bytNames[intSlot] != null && !booFound[intSlot]
+                && prsNetwork.startsWith(bytNames[intSlot]) && prsNetwork.peek(bytNames[intSlot].length) == ':';
+    }
+
+    /**
+     * Gives a slot to the interface with the given name, reusing the slot of an interface that has
+     * disappeared if there is one
+     *
+     * @param bytName The ASCII bytes of the name of the interface
+     * @return The slot of the interface
+     */
+    private int allocate(byte[] bytName) {
+        int intSlot = -1;
+        for (int i = 0; i < bytNames.length && intSlot < 0; i++) {
+            if (bytNames[i] == null) {
+                intSlot = i;
+            }
+        }
+        if (intSlot < 0) {
+            intSlot = bytNames.length;
+            bytNames = Arrays.copyOf(bytNames, intSlot + 1);
+            strNames = Arrays.copyOf(strNames, intSlot + 1);
+            booPresent = Arrays.copyOf(booPresent, intSlot + 1);
+            booFound = Arrays.copyOf(booFound, intSlot + 1);
+            lngPrevious = Arrays.copyOf(lngPrevious, (intSlot + 1) * COUNTERS);
+            lngCounters = Arrays.copyOf(lngCounters, (intSlot + 1) * COUNTERS);
+        }
+
+        bytNames[intSlot] = bytName;
+        strNames[intSlot] = new String(bytName);
+        booPresent[intSlot] = false;
+        Log.d("NetworkManager", "Interface " + strNames[intSlot] + " appeared");
+        return intSlot;
+    }
+
+    /**
+     * Derives the counters of the window of the interface in the given slot from the columns of its
+     * row and adds them to the totals unless it is the loopback interface
+     *
+     * @param intSlot The slot of the interface
+     */
+    private void count(int intSlot) {
+        boolean booBaseline = !booPresent[intSlot];
+        boolean booLoopback = Arrays.equals(bytNames[intSlot], LOOPBACK);
+        booFound[intSlot] = true;
+        record(intSlot, RX_BYTES, lngColumns[COLUMN_RX_BYTES], booBaseline, booLoopback);
+        record(intSlot, RX_PACKETS, lngColumns[COLUMN_RX_PACKETS], booBaseline, booLoopback);
+        record(intSlot, TX_BYTES, lngColumns[COLUMN_TX_BYTES], booBaseline, booLoopback);
+        record(intSlot, TX_PACKETS, lngColumns[COLUMN_TX_PACKETS], booBaseline, booLoopback);
+    }
+
+    /**
+     * Records the difference of the given cumulative counter of the interface in the given slot
+     * since the last update and adds it to the total
+     *
+     * @param intSlot     The slot of the interface
+     * @param intCounter  The index of the counter
+     * @param lngValue    The cumulative value of the counter
+     * @param booBaseline A boolean value indicating whether the value only sets the baseline
+     * @param booLoopback A boolean value indicating whether the interface is the loopback interface
+     */
+    private void record(int intSlot, int intCounter, long lngValue, boolean booBaseline, boolean booLoopback) {
+        int intIndex = intSlot * COUNTERS + intCounter;
+        long lngDifference = lngValue - lngPrevious[intIndex];
+        lngCounters[intIndex] = booBaseline || lngDifference < 0L ? 0L : lngDifference;
+        lngPrevious[intIndex] = lngValue;
+        if (!booLoopback) {
+            lngTotals[intCounter] = lngTotals[intCounter] + lngCounters[intIndex];
+        }
+    }
+
+    /**
+     * Frees the slots of the interfaces that have disappeared and rebuilds the list of the present
+     * interfaces if any have appeared or disappeared
+     */
+    private void expire() {
+        boolean booChanged = false;
+        int intCount = 0;
+        for (int i = 0; i < bytNames.length; i++) {
+            if (bytNames[i] != null && !booFound[i]) {
+                Log.d("NetworkManager", "Interface " + strNames[i] + " disappeared");
+                bytNames[i] = null;
+                strNames[i] = null;
+            }
+            booChanged = booChanged || booPresent[i] != booFound[i];
+            booPresent[i] = booFound[i];
+            intCount = booFound[i] ? intCount + 1 : intCount;
+        }
+
+        if (booChanged) {
+            lngChanges++;
+            intPresent = new int[intCount];
+            for (int i = 0, j = 0; i < bytNames.length; i++) {
+                if (booPresent[i]) {
+                    intPresent[j++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the given counter of all of the interfaces except the loopback interface as of the
+     * last update
+     *
+     * @param intCounter The index of the counter
+     * @return The value of the counter over the window
+     */
+    public long getTotal(int intCounter) {
+        return lngTotals[intCounter];
+    }
+
+    /**
+     * Returns the number of the interfaces that were present in the last update
+     *
+     * @return The number of interfaces
+     */
+    public int getInterfaces() {
+        return intPresent.length;
+    }
+
+    /**
+     * Returns the name of the given interface
+     *
+     * @param intInterface The index of the interface among the present interfaces
+     * @return The name of the interface
+     */
+    public String getInterface(int intInterface) {
+        return strNames[intPresent[intInterface]];
+    }
+
+    /**
+     * Returns the given counter of the given interface as of the last update
+     *
+     * @param intInterface The index of the interface among the present interfaces
+     * @param intCounter   The index of the counter
+     * @return The value of the counter over the window
+     */
+    public long getCounter(int intInterface, int intCounter) {
+        return lngCounters[intPresent[intInterface] * COUNTERS + intCounter];
+    }
+
+    /**
+     * Returns the number of times that the interfaces have appeared or disappeared so that the
+     * consumers can tell when the list of the interfaces has to be copied again
+     *
+     * @return The number of changes
+     */
+    public long getChanges() {
+        return lngChanges;
+    }
+
+    /**
+     * Closes the network statistics file from which the figures are be read repeatedly
+     */
+    public void destroy() {
+
+        if (hndNetwork != null) {
+            hndNetwork.close();
+        }
+    }
+}
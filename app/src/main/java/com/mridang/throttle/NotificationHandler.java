@@ -1,38 +1,90 @@
 package com.mridang.throttle;
 
-import android.app.ActivityManager;
-import android.app.ActivityManager.MemoryInfo;
+import android.annotation.TargetApi;
+import android.app.Notification;
 import android.app.NotificationManager;
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Debug;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
 import android.support.v4.app.NotificationCompat.Builder;
+import android.support.v4.app.NotificationCompat.InboxStyle;
+import android.text.format.Formatter;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
- * Handler class that runs every second to update the notification with the processor usage.
+ * Handler class that runs every second on the sampler thread to collect the figures and update the
+ * notification with the processor usage.
  */
 public class NotificationHandler extends Handler {
 
     /**
-     * The object for holding the memory usage information and other stats
+     * The message that collects the figures and updates the notification
+     */
+    public static final int UPDATE = 1;
+    /**
+     * The message that stops the updates and hides the notification
+     */
+    public static final int HIDE = 2;
+    /**
+     * The message that closes all the files and stops the sampler thread
+     */
+    public static final int DESTROY = 3;
+    /**
+     * The message that starts a fresh schedule of the updates and updates the notification
+     */
+    public static final int START = 4;
+    /**
+     * The message that collects the figures into the history while the screen is off without
+     * touching the notification
      */
-    private final MemoryInfo memInformation = new MemoryInfo();
+    public static final int BACKGROUND = 5;
+    /**
+     * The message that applies the interval between the scans of the busiest processes
+     */
+    private static final int INTERVAL = 6;
+    /**
+     * The period between the updates in milliseconds
+     */
+    private static final long PERIOD = 2000L;
+    /**
+     * The size of the small icon of the notification in density independent pixels
+     */
+    private static final int SIZE = 24;
     /**
      * The instance of the context of the parent service
      */
     private final Context ctxContext;
     /**
-     * The instance of the manager of the activity services
+     * The instance of the sampler that collects the figures or null until it has been set up on the
+     * sampler thread
+     */
+    private volatile Sampler smpSampler;
+    /**
+     * The instance of the scheduler that keeps the updates at a fixed rate
      */
-    private final ActivityManager mgrActivity;
+    private final TickScheduler schTicker = new TickScheduler(PERIOD);
     /**
-     * The instance of the manager of the processor usage
+     * The instance of the store that keeps the recent history of the collected figures or null until
+     * the sampler has been set up
      */
-    private final ProcessorManager mgrProcessor;
+    private volatile HistoryStore hstHistory;
     /**
-     * The instance of the manager of the clock frequency
+     * The instance of the statistics that smooth the usage and keep its distribution over time
      */
-    private final FrequencyManager mgrFrequency;
+    private final UsageStatistics stsUsage = new UsageStatistics();
+    /**
+     * The instance of the log that persists the collected figures or null if it is unavailable
+     */
+    private SampleLog logSamples;
     /**
      * The instance of the manager of the notification services
      */
@@ -41,44 +93,446 @@ public class NotificationHandler extends Handler {
      * The instance of the notification builder to rebuild the notification
      */
     private final Builder notBuilder;
+    /**
+     * The instance of the renderer that turns the figures into the state of the notification
+     */
+    private final NotificationRenderer ntrRenderer = new NotificationRenderer(R.drawable.i0, stsUsage);
+    /**
+     * The instance of the renderer that draws the sparkline and the bar graph icons
+     */
+    private final IconRenderer icnRenderer;
+    /**
+     * The mode of the small icon which is one of the modes of the icon renderer
+     */
+    private volatile int intGraph;
+    /**
+     * The flag indicating whether the notification must be posted even if its state hasn't changed
+     */
+    private volatile boolean booInvalid = true;
+    /**
+     * The minimum interval in milliseconds between two posts of the notification
+     */
+    private volatile long lngMinimum;
+    /**
+     * The processor usage of the previous update used to tell how quickly the usage is changing
+     */
+    private double dblPrevious = 0D;
+    /**
+     * The flag indicating whether the usage of the busiest core should be shown alongside the average
+     */
+    private volatile boolean booBusiest;
+    /**
+     * The flag indicating whether the disk activity should be shown below the memory usage
+     */
+    private volatile boolean booDisk;
+    /**
+     * The flag indicating whether the 95th percentile of the usage over the last five minutes should
+     * be shown alongside the current usage
+     */
+    private volatile boolean booPercentile;
+    /**
+     * The snapshot of the figures collected in the last update
+     */
+    private volatile Snapshot snpLatest;
+    /**
+     * The interval in milliseconds between two scans of the busiest processes
+     */
+    private volatile long lngProcesses;
 
     /**
-     * Simple constructor to initialize the initial value of the previous
+     * Simple constructor to initialize the initial value of the previous. The sampler and the sample
+     * log open their files, so they are only set up on the sampler thread when the first message is
+     * handled.
      */
-    public NotificationHandler(Context ctxContext, Builder notBuilder) {
-        this.mgrActivity = (ActivityManager) ctxContext.getSystemService(Context.ACTIVITY_SERVICE);
+    public NotificationHandler(Looper looSampler, Context ctxContext, Builder notBuilder) {
+        super(looSampler);
         this.mgrNotifications = (NotificationManager) ctxContext.getSystemService(Context.NOTIFICATION_SERVICE);
-        this.mgrProcessor = new ProcessorManager();
-        this.mgrFrequency = new FrequencyManager();
         this.ctxContext = ctxContext;
         this.notBuilder = notBuilder;
+        this.icnRenderer = new IconRenderer(Math.round(SIZE * ctxContext.getResources().getDisplayMetrics().density));
+        SharedPreferences spfSettings = PreferenceManager.getDefaultSharedPreferences(ctxContext);
+        this.intGraph = Integer.parseInt(spfSettings.getString("icon", "0"));
+        this.booBusiest = spfSettings.getBoolean("busiest", false);
+        this.lngMinimum = Long.parseLong(spfSettings.getString("posting", "0"));
+        this.schTicker.setBounds(Long.parseLong(spfSettings.getString("fastest", "250")),
+                Long.parseLong(spfSettings.getString("slowest", "5000")));
+        this.schTicker.setAdaptive(spfSettings.getBoolean("adaptive", false));
+        this.stsUsage.setHalfLife(Long.parseLong(spfSettings.getString("smoothing", "0")));
+        this.booDisk = spfSettings.getBoolean("disk", false);
+        this.booPercentile = spfSettings.getBoolean("percentile", false);
+        this.lngProcesses = Long.parseLong(spfSettings.getString("processes", "10000"));
+    }
+
+    /**
+     * Sets up the sampler, the history store and the sample log on the sampler thread. Creating the
+     * sampler opens and reads the files of all the collectors and opening the log maps a segment, so
+     * none of it is done on the main thread that creates the handler.
+     */
+    private void setup() {
+        Sampler smpCreated = new Sampler(new SamplingEngine(), new Sampler.Clock() {
+
+            /**
+             * Clock method that returns the time since the boot including the time spent in deep
+             * sleep, which is the time against which the background samples measure their window
+             */
+            @Override
+            public long now() {
+                return SystemClock.elapsedRealtime();
+            }
+        });
+        smpCreated.setInterval(lngProcesses);
+        hstHistory = new HistoryStore(smpCreated.getCores());
+        try {
+            logSamples = new SampleLog(new File(ctxContext.getFilesDir(), "samples"));
+        } catch (IOException e) {
+            Log.w("NotificationHandler", "Unable to open the sample log", e);
+        }
+        smpSampler = smpCreated;
     }
 
     /**
      * Handler method that updates the notification icon with the current processor usage. It does
-     * this by reading the /proc/stat file and specifically the of the first CPU row as are only
-     * concerned with the cumulative processor utilization.
+     * this by collecting a snapshot of the figures and rendering it into the notification. The files
+     * and the binder calls are all handled on the sampler thread so the main thread is never blocked.
      */
     @Override
     public void handleMessage(Message msgMessage) {
-        sendEmptyMessageDelayed(1, 2000L);
+        if (smpSampler == null && msgMessage.what != DESTROY) {
+            setup();
+        }
+
+        switch (msgMessage.what) {
+            case START:
+                schTicker.reset();
+                booInvalid = true;
+                update();
+                break;
+            case UPDATE:
+                update();
+                break;
+            case HIDE:
+                removeMessages(UPDATE);
+                schTicker.reset();
+                mgrNotifications.cancel(HardwareService.ID);
+                break;
+            case BACKGROUND:
+                if (!hasMessages(UPDATE)) {
+                    background();
+                }
+                break;
+            case INTERVAL:
+                smpSampler.setInterval(lngProcesses);
+                break;
+            case DESTROY:
+                removeMessages(UPDATE);
+                mgrNotifications.cancel(HardwareService.ID);
+                if (smpSampler != null) {
+                    smpSampler.destroy();
+                }
+                if (logSamples != null) {
+                    try {
+                        logSamples.close();
+                    } catch (IOException e) {
+                        Log.w("NotificationHandler", "Unable to finish archiving the sample log", e);
+                    }
+                }
+                getLooper().quit();
+                break;
+        }
+    }
+
+    /**
+     * Collects the figures over the measured window, schedules the next update at the next deadline
+     * of the schedule and then renders the figures into the notification. The period is adapted to
+     * the collected figures before the next deadline is computed so a spike is followed up quickly.
+     */
+    private void update() {
+        long lngStart = System.nanoTime();
+        long lngCpu = Debug.threadCpuTimeNanos();
+        schTicker.tick();
+        snpLatest = smpSampler.sample(schTicker.getWindow());
+        schTicker.adapt(Math.abs(snpLatest.getUsage() - dblPrevious));
+        dblPrevious = snpLatest.getUsage();
+        stsUsage.insert(snpLatest.getTime(), snpLatest.getUsage());
+        hstHistory.insert(snpLatest);
+        persist(snpLatest);
+
+        removeMessages(UPDATE);
+        sendEmptyMessageAtTime(UPDATE, schTicker.next());
+        long lngSampled = System.nanoTime();
+        long lngCpuSampled = Debug.threadCpuTimeNanos();
+        render(snpLatest);
+        smpSampler.getOverhead().record(lngSampled - lngStart, lngCpuSampled - lngCpu,
+                System.nanoTime() - lngSampled, Debug.threadCpuTimeNanos() - lngCpuSampled, getCollections());
+    }
+
+    /**
+     * Collects the figures while the screen is off and only writes them into the history and the
+     * persistent log. The notification isn't posted and no further update is scheduled as the
+     * samples are driven by an inexact alarm. The window spans the time since the last sample of
+     * either kind, so the usage is the average over the whole gap including any deep sleep.
+     */
+    private void background() {
+        long lngStart = System.nanoTime();
+        long lngCpu = Debug.threadCpuTimeNanos();
+        long lngWindow = snpLatest == null ? 0L : (SystemClock.elapsedRealtime() - snpLatest.getTime()) * 1000000L;
+        snpLatest = smpSampler.sample(lngWindow);
+        hstHistory.insert(snpLatest);
+        persist(snpLatest);
+        smpSampler.getOverhead().record(System.nanoTime() - lngStart, Debug.threadCpuTimeNanos() - lngCpu,
+                0L, 0L, getCollections());
+    }
+
+    /**
+     * Returns the number of garbage collections of the runtime so far. The runtime only reports the
+     * count from Marshmallow onwards.
+     *
+     * @return The number of garbage collections or -1 if unknown
+     */
+    private static long getCollections() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            String strCount = Debug.getRuntimeStat("art.gc.gc-count");
+            if (strCount != null) {
+                try {
+                    return Long.parseLong(strCount);
+                } catch (NumberFormatException e) {
+                    Log.w("NotificationHandler", "Unable to parse the garbage collection count " + strCount);
+                }
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * Appends the given snapshot to the persistent log. If the log fails it is abandoned so that the
+     * updates aren't disrupted.
+     *
+     * @param snpFigures The snapshot of the figures to be persisted
+     */
+    private void persist(Snapshot snpFigures) {
+        if (logSamples != null) {
+            try {
+                logSamples.append(System.currentTimeMillis(), snpFigures);
+            } catch (IOException e) {
+                Log.w("NotificationHandler", "Unable to append to the sample log", e);
+                logSamples = null;
+            }
+        }
+    }
 
-        mgrActivity.getMemoryInfo(memInformation);
-        long lngFree = memInformation.availMem / 1048576L;
-        long lngTotal = memInformation.totalMem / 1048576L;
-        int intLevel = (int) ((100.0 * (lngFree / (lngTotal + 0.01))) / 25);
-        Double dblPercent = mgrProcessor.getUsage();
-        String strClock = mgrFrequency.getFrequency();
+    /**
+     * Renders the given snapshot of the figures into the notification and posts it if the renderer
+     * finds that something visible has changed. The sparkline and the bar graph icons can only be
+     * handed to the notification from Nougat onwards, so the static drawables are used on older
+     * versions.
+     *
+     * @param snpFigures The snapshot of the figures to be shown
+     */
+    private void render(Snapshot snpFigures) {
+        ntrRenderer.render(snpFigures, booBusiest, booPercentile, booDisk, icnRenderer.update(
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? intGraph : IconRenderer.LEVELS, snpFigures));
+
+        long lngNow = SystemClock.uptimeMillis();
+        if (!ntrRenderer.isDue(booInvalid, lngNow, lngMinimum)) {
+            return;
+        }
 
-        notBuilder.setSmallIcon(R.drawable.i0 + (int) (dblPercent / 10));
-        notBuilder.setContentTitle(ctxContext.getResources().getStringArray(R.array.usage)[intLevel]);
-        notBuilder.setContentInfo(dblPercent.intValue() + "% @ " + strClock);
-        notBuilder.setContentText(ctxContext.getString(R.string.memory, lngFree, lngTotal));
-        mgrNotifications.notify(HardwareService.ID, notBuilder.build());
+        RenderState rdsCurrent = ntrRenderer.getState();
+        synchronized (notBuilder) {
+            booInvalid = false;
+            notBuilder.setSmallIcon(rdsCurrent.getIcon());
+            notBuilder.setContentTitle(ctxContext.getResources().getStringArray(R.array.usage)[rdsCurrent.getTitle()]);
+            notBuilder.setContentInfo(rdsCurrent.getInfo());
+            notBuilder.setContentText(ctxContext.getString(R.string.memory, rdsCurrent.getFree(), rdsCurrent.getTotal()));
+            if (rdsCurrent.hasDisk()) {
+                notBuilder.setSubText(ctxContext.getString(R.string.disk,
+                        Formatter.formatShortFileSize(ctxContext, rdsCurrent.getRead()),
+                        Formatter.formatShortFileSize(ctxContext, rdsCurrent.getWrite()),
+                        rdsCurrent.getOperations(), rdsCurrent.getLatency(), rdsCurrent.getQueue()));
+            } else {
+                notBuilder.setSubText(null);
+            }
+            if (rdsCurrent.getProcesses() > 0) {
+                InboxStyle stlProcesses = new InboxStyle();
+                for (int i = 0; i < rdsCurrent.getProcesses(); i++) {
+                    stlProcesses.addLine(rdsCurrent.getProcess(i));
+                }
+                notBuilder.setStyle(stlProcesses);
+            } else {
+                notBuilder.setStyle(null);
+            }
+            Notification notBuilt = notBuilder.build();
+            if (rdsCurrent.getGraph() != 0L) {
+                notBuilt = withIcon(notBuilt);
+            }
+            mgrNotifications.notify(HardwareService.ID, notBuilt);
+        }
+        ntrRenderer.posted(lngNow);
     }
 
-    public void destroy() {
-        mgrProcessor.destroy();
-        mgrFrequency.destroy();
+    /**
+     * Replaces the small icon of the given notification with the icon that was last rendered. The
+     * compatibility builder only takes drawable resources, so the notification is recovered into a
+     * platform builder which takes the icon.
+     *
+     * @param notBuilt The notification built with the static drawable
+     * @return The notification showing the rendered icon
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    private Notification withIcon(Notification notBuilt) {
+        return Notification.Builder.recoverBuilder(ctxContext, notBuilt).setSmallIcon(icnRenderer.getIcon()).build();
+    }
+
+    /**
+     * Sets the mode of the small icon which is either the static drawables of the usage levels, a
+     * sparkline of the recent usage or a bar graph of the usage of the cores
+     *
+     * @param intGraph The mode of the icon as defined by the icon renderer
+     */
+    public void setGraph(int intGraph) {
+        this.intGraph = intGraph;
+        this.booInvalid = true;
+    }
+
+    /**
+     * Enables or disables the adaptive polling interval
+     *
+     * @param booAdaptive A boolean value indicating whether the polling interval should adapt
+     */
+    public void setAdaptive(boolean booAdaptive) {
+        schTicker.setAdaptive(booAdaptive);
+    }
+
+    /**
+     * Sets the bounds of the adaptive polling interval
+     *
+     * @param lngFastest The shortest polling interval in milliseconds
+     * @param lngSlowest The longest polling interval in milliseconds
+     */
+    public void setBounds(long lngFastest, long lngSlowest) {
+        schTicker.setBounds(lngFastest, lngSlowest);
+    }
+
+    /**
+     * Sets the half-life of the smoothing of the usage shown by the icon
+     *
+     * @param lngHalfLife The half-life in milliseconds or zero to disable the smoothing
+     */
+    public void setSmoothing(long lngHalfLife) {
+        stsUsage.setHalfLife(lngHalfLife);
+    }
+
+    /**
+     * Sets whether the disk throughput, operations, service time and queue depth should be shown
+     * below the memory usage
+     *
+     * @param booDisk A boolean value indicating whether the disk activity should be shown
+     */
+    public void setDisk(boolean booDisk) {
+        this.booDisk = booDisk;
+        this.booInvalid = true;
+    }
+
+    /**
+     * Sets whether the 95th percentile of the usage over the last five minutes should be shown
+     * alongside the current usage
+     *
+     * @param booPercentile A boolean value indicating whether the percentile should be shown
+     */
+    public void setPercentile(boolean booPercentile) {
+        this.booPercentile = booPercentile;
+        this.booInvalid = true;
+    }
+
+    /**
+     * Returns the statistics that smooth the usage and keep its distribution over the last one and
+     * five minutes. This may be called from any thread.
+     *
+     * @return The usage statistics
+     */
+    public UsageStatistics getStatistics() {
+        return stsUsage;
+    }
+
+    /**
+     * Sets the interval between two scans of the busiest processes that are shown in the expanded
+     * notification
+     *
+     * @param lngInterval The interval in milliseconds or zero to disable the scans
+     */
+    public void setProcesses(long lngInterval) {
+        lngProcesses = lngInterval;
+        sendEmptyMessage(INTERVAL);
+        booInvalid = true;
+    }
+
+    /**
+     * Marks the posted notification as stale so that it is posted again on the next update even if
+     * none of the figures have changed. This must be called whenever the builder is modified.
+     */
+    public void invalidate() {
+        booInvalid = true;
+    }
+
+    /**
+     * Sets the minimum interval between two posts of the notification. Changes that happen within
+     * the interval are posted once the interval has elapsed if they are still visible.
+     *
+     * @param lngMinimum The minimum interval in milliseconds
+     */
+    public void setMinimum(long lngMinimum) {
+        this.lngMinimum = lngMinimum;
+    }
+
+    /**
+     * Sets whether the usage of the busiest core should be shown alongside the average usage of all
+     * the cores. A single pegged core is otherwise hidden by the average on devices with many cores.
+     *
+     * @param booBusiest A boolean value indicating whether the busiest core should be shown
+     */
+    public void setBusiest(boolean booBusiest) {
+        this.booBusiest = booBusiest;
+        this.booInvalid = true;
+    }
+
+    /**
+     * Returns the histogram of the lateness of the updates in microseconds which shows whether the
+     * sampler keeps its period under load. This may be called from any thread.
+     *
+     * @return The jitter histogram
+     */
+    public JitterHistogram getJitter() {
+        return schTicker.getJitter();
+    }
+
+    /**
+     * Returns the store that keeps the recent history of the collected figures. This may be called
+     * from any thread.
+     *
+     * @return The history store or null if the sampler hasn't been set up yet
+     */
+    public HistoryStore getHistory() {
+        return hstHistory;
+    }
+
+    /**
+     * Returns the monitor that measures what the monitor itself costs. This may be called from any
+     * thread.
+     *
+     * @return The overhead monitor or null if the sampler hasn't been set up yet
+     */
+    public OverheadMonitor getOverhead() {
+        Sampler smpCurrent = smpSampler;
+        return smpCurrent == null ? null : smpCurrent.getOverhead();
+    }
+
+    /**
+     * Returns the snapshot of the figures collected in the last update. This may be called from any
+     * thread as the snapshot is never modified.
+     *
+     * @return The latest snapshot or null if no figures have been collected yet
+     */
+    public Snapshot getLatest() {
+        return snpLatest;
     }
 }
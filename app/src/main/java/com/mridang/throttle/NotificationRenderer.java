@@ -0,0 +1,117 @@
+package com.mridang.throttle;
+
+/**
+ * Renderer class that turns a snapshot of the figures into the state of the notification and tells
+ * whether the state needs to be posted. It holds the render step of the notification handler that
+ * doesn't depend on the notification itself, so it only depends on the JVM and can be benchmarked
+ * and tested off the device. The handler draws the icon, calls this renderer and only builds and
+ * posts the notification when the renderer says so.
+ */
+public class NotificationRenderer {
+
+    /**
+     * The number of the static drawables of the usage levels
+     */
+    private static final int LEVELS = 10;
+    /**
+     * The resource of the static drawable of the lowest usage level which is followed by the
+     * drawables of the higher levels
+     */
+    private final int intIcons;
+    /**
+     * The instance of the statistics that smooth the usage and keep its distribution over time
+     */
+    private final UsageStatistics stsUsage;
+    /**
+     * The state of the notification that is about to be rendered
+     */
+    private final RenderState rdsCurrent = new RenderState();
+    /**
+     * The state of the notification that was last posted
+     */
+    private final RenderState rdsPosted = new RenderState();
+    /**
+     * The uptime in milliseconds at which the notification was last posted
+     */
+    private long lngPosted = 0L;
+
+    /**
+     * Creates a renderer for the static drawables starting at the given resource
+     *
+     * @param intIcons The resource of the static drawable of the lowest usage level
+     * @param stsUsage The statistics of the usage from which the smoothed usage and the percentile
+     *                 are shown
+     */
+    public NotificationRenderer(int intIcons, UsageStatistics stsUsage) {
+        this.intIcons = intIcons;
+        this.stsUsage = stsUsage;
+    }
+
+    /**
+     * Renders the given snapshot of the figures into the current state. The icon shows the smoothed
+     * usage so that it doesn't flicker between the levels while the text shows the current usage.
+     * Where the kernel reports the memory pressure, the memory usage is only shown as high while the
+     * tasks are actually stalling on memory, as the free memory alone is usually low on a device that
+     * caches aggressively.
+     *
+     * @param snpFigures    The snapshot of the figures to be shown
+     * @param booBusiest    A boolean value indicating whether the busiest core should be shown
+     * @param booPercentile A boolean value indicating whether the percentile should be shown
+     * @param booDisk       A boolean value indicating whether the disk activity should be shown
+     * @param lngGraph      The fingerprint of the rendered icon or zero for the static drawables
+     */
+    public void render(Snapshot snpFigures, boolean booBusiest, boolean booPercentile, boolean booDisk,
+                       long lngGraph) {
+        long lngFree = snpFigures.getFree();
+        long lngTotal = snpFigures.getTotal();
+        int intLevel = (int) ((100.0 * (lngFree / (lngTotal + 0.01))) / 25);
+        float fltSome = snpFigures.getPressure(PressureManager.MEMORY, PressureManager.SOME);
+        if (!Float.isNaN(fltSome)) {
+            float fltFull = snpFigures.getPressure(PressureManager.MEMORY, PressureManager.FULL);
+            intLevel = PressureManager.isHigh(fltSome, fltFull) ? 0 : Math.max(intLevel, 1);
+        }
+        double dblPercent = snpFigures.getUsage();
+        int intIcon = intIcons + Math.min((int) (stsUsage.getSmoothed() / 10), LEVELS - 1);
+        int intBusiest = booBusiest ? (int) snpFigures.getBusiest() : -1;
+        rdsCurrent.set(intIcon, intLevel, (int) dblPercent, intBusiest, snpFigures.getFrequency(), lngFree,
+                lngTotal);
+        rdsCurrent.setPercentile(booPercentile ? stsUsage.getPercentile(UsageStatistics.FIVE_MINUTES, 0.95D) : -1);
+        rdsCurrent.setProcesses(snpFigures);
+        rdsCurrent.setThermal(snpFigures);
+        rdsCurrent.setDisk(booDisk ? snpFigures : null);
+        rdsCurrent.setGraph(lngGraph);
+    }
+
+    /**
+     * Checks whether the current state should be posted. Posting is a binder call that also makes
+     * the system UI redraw, so the state is only posted when something visible has changed since the
+     * last post and the minimum interval has elapsed, unless the posted notification is stale.
+     *
+     * @param booInvalid A boolean value indicating whether the posted notification is stale
+     * @param lngNow     The uptime in milliseconds
+     * @param lngMinimum The minimum interval in milliseconds between two posts
+     * @return True if the current state should be posted
+     */
+    public boolean isDue(boolean booInvalid, long lngNow, long lngMinimum) {
+        return booInvalid || (!rdsCurrent.matches(rdsPosted) && lngNow - lngPosted >= lngMinimum);
+    }
+
+    /**
+     * Records that the current state has been posted
+     *
+     * @param lngNow The uptime in milliseconds at which the state was posted
+     */
+    public void posted(long lngNow) {
+        rdsPosted.copy(rdsCurrent);
+        lngPosted = lngNow;
+    }
+
+    /**
+     * Returns the state of the notification that was last rendered
+     *
+     * @return The current state
+     */
+    public RenderState getState() {
+        return rdsCurrent;
+    }
+}
@@ -0,0 +1,337 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Monitor class that measures what the monitor itself costs. The time spent sampling and rendering
+ * is recorded on every update along with the processor time of the whole process from
+ * /proc/self/stat, its resident memory from /proc/self/status and the number of garbage collections. The figures of the most recent
+ * updates are kept so that they can be exported, while the totals since the monitor was created give
+ * the share of the processor that the process has used.
+ */
+public class OverheadMonitor {
+
+    /**
+     * The path of the statistics file of the process relative to the root of the source
+     */
+    private static final String SELF = "proc/self/stat";
+    /**
+     * The number of clock ticks per second in which the processor times are reported
+     */
+    private static final long HERTZ = 100L;
+    /**
+     * The path of the status file of the process relative to the root of the source
+     */
+    private static final String STATUS = "proc/self/status";
+    /**
+     * The key of the row of the status file holding the resident memory in kilobytes, which unlike
+     * the page count of the statistics file doesn't depend on the size of the pages of the device
+     */
+    private static final byte[] RESIDENT = "VmRSS:".getBytes();
+    /**
+     * The number of the most recent updates whose figures are kept
+     */
+    private static final int CAPACITY = 900;
+    /**
+     * The statistics file of the process or null if the file couldn't be opened
+     */
+    private FileSource.Handle hndSelf;
+    /**
+     * The status file of the process or null if the file couldn't be opened
+     */
+    private FileSource.Handle hndStatus;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsSelf = new ProcfsParser();
+    /**
+     * The wall clock time of each of the recent updates in milliseconds
+     */
+    private final long[] lngTimes = new long[CAPACITY];
+    /**
+     * The wall time spent sampling in each of the recent updates in microseconds
+     */
+    private final int[] intSampleWalls = new int[CAPACITY];
+    /**
+     * The thread processor time spent sampling in each of the recent updates in microseconds
+     */
+    private final int[] intSampleCpus = new int[CAPACITY];
+    /**
+     * The wall time spent rendering in each of the recent updates in microseconds
+     */
+    private final int[] intRenderWalls = new int[CAPACITY];
+    /**
+     * The thread processor time spent rendering in each of the recent updates in microseconds
+     */
+    private final int[] intRenderCpus = new int[CAPACITY];
+    /**
+     * The user and system time of the process as of each of the recent updates in clock ticks
+     */
+    private final long[] lngProcesses = new long[CAPACITY];
+    /**
+     * The resident memory of the process as of each of the recent updates in kilobytes
+     */
+    private final long[] lngResidents = new long[CAPACITY];
+    /**
+     * The number of garbage collections as of each of the recent updates or -1 if unknown
+     */
+    private final long[] lngCollections = new long[CAPACITY];
+    /**
+     * The number of updates that have been recorded
+     */
+    private long lngUpdates = 0L;
+    /**
+     * The total wall time spent sampling and rendering in nanoseconds
+     */
+    private long lngWall = 0L;
+    /**
+     * The total thread processor time spent sampling and rendering in nanoseconds
+     */
+    private long lngCpu = 0L;
+    /**
+     * The user time of the process as of the last read in clock ticks
+     */
+    private long lngUser = 0L;
+    /**
+     * The system time of the process as of the last read in clock ticks
+     */
+    private long lngSystem = 0L;
+    /**
+     * The resident memory of the process as of the last read in kilobytes
+     */
+    private long lngResident = 0L;
+    /**
+     * The monotonic time in nanoseconds when the first update was recorded
+     */
+    private long lngStart = 0L;
+    /**
+     * The processor time of the process in clock ticks when the first update was recorded
+     */
+    private long lngBaseline = 0L;
+    /**
+     * The number of garbage collections when the first update was recorded or -1 if unknown
+     */
+    private long lngCollected = -1L;
+
+    /**
+     * Creates a monitor that reads the statistics and the status files of the process from the given
+     * source
+     *
+     * @param srcFiles The source from which the statistics and the status files are read
+     */
+    public OverheadMonitor(FileSource srcFiles) {
+        try {
+            hndSelf = srcFiles.open(SELF, 1024);
+        } catch (FileNotFoundException e) {
+            Log.w("OverheadMonitor", "Unable to open the process statistics file", e);
+        }
+        try {
+            hndStatus = srcFiles.open(STATUS, 4096);
+        } catch (FileNotFoundException e) {
+            Log.w("OverheadMonitor", "Unable to open the process status file", e);
+        }
+    }
+
+    /**
+     * Reads the user and system time and the resident memory of the process
+     */
+    public synchronized void update() {
+        readTimes();
+        readResident();
+    }
+
+    /**
+     * Reads the user and system time of the process from the statistics file. The name of the
+     * process may contain spaces and parentheses so the fields are counted from the last closing
+     * parenthesis.
+     */
+    private void readTimes() {
+        if (hndSelf == null) {
+            return;
+        }
+
+        try {
+            ByteBuffer bufSelf = hndSelf.read();
+            int intClosing = bufSelf.limit() - 1;
+            while (intClosing >= 0 && bufSelf.get(intClosing) != ')') {
+                intClosing--;
+            }
+            if (intClosing < 0) {
+                return;
+            }
+
+            prsSelf.reset(bufSelf, bufSelf.limit());
+            prsSelf.setPosition(intClosing + 2);
+            prsSelf.skipToken();
+            for (int i = 4; i < 14; i++) {
+                prsSelf.nextLong();
+            }
+            lngUser = prsSelf.nextLong();
+            lngSystem = prsSelf.nextLong();
+        } catch (Exception e) {
+            Log.e("OverheadMonitor", "Error reading the process statistics", e);
+        }
+    }
+
+    /**
+     * Reads the resident memory of the process from the status file
+     */
+    private void readResident() {
+        if (hndStatus == null) {
+            return;
+        }
+
+        try {
+            ByteBuffer bufStatus = hndStatus.read();
+            prsSelf.reset(bufStatus, bufStatus.limit());
+            while (!prsSelf.isFinished()) {
+                if (prsSelf.startsWith(RESIDENT)) {
+                    prsSelf.skip(RESIDENT.length);
+                    lngResident = prsSelf.nextLong();
+                    return;
+                }
+                prsSelf.skipLine();
+            }
+        } catch (Exception e) {
+            Log.e("OverheadMonitor", "Error reading the process status", e);
+        }
+    }
+
+    /**
+     * Records the cost of an update along with the figures of the process as of the last read
+     *
+     * @param lngSampleWall The wall time spent sampling in nanoseconds
+     * @param lngSampleCpu  The thread processor time spent sampling in nanoseconds
+     * @param lngRenderWall The wall time spent rendering in nanoseconds
+     * @param lngRenderCpu  The thread processor time spent rendering in nanoseconds
+     * @param lngCollection The number of garbage collections so far or -1 if unknown
+     */
+    public synchronized void record(long lngSampleWall, long lngSampleCpu, long lngRenderWall, long lngRenderCpu,
+                                    long lngCollection) {
+        if (lngUpdates == 0L) {
+            lngStart = System.nanoTime();
+            lngBaseline = lngUser + lngSystem;
+            lngCollected = lngCollection;
+        }
+
+        int intIndex = (int) (lngUpdates % CAPACITY);
+        lngTimes[intIndex] = System.currentTimeMillis();
+        intSampleWalls[intIndex] = (int) Math.min(lngSampleWall / 1000L, Integer.MAX_VALUE);
+        intSampleCpus[intIndex] = (int) Math.min(lngSampleCpu / 1000L, Integer.MAX_VALUE);
+        intRenderWalls[intIndex] = (int) Math.min(lngRenderWall / 1000L, Integer.MAX_VALUE);
+        intRenderCpus[intIndex] = (int) Math.min(lngRenderCpu / 1000L, Integer.MAX_VALUE);
+        lngProcesses[intIndex] = lngUser + lngSystem;
+        lngResidents[intIndex] = lngResident;
+        lngCollections[intIndex] = lngCollection;
+
+        lngUpdates++;
+        lngWall = lngWall + lngSampleWall + lngRenderWall;
+        lngCpu = lngCpu + lngSampleCpu + lngRenderCpu;
+    }
+
+    /**
+     * Returns the share of a single processor core that the whole process has used since the first
+     * update was recorded
+     *
+     * @return The processor usage of the process as a percentage
+     */
+    public synchronized double getUsage() {
+        long lngElapsed = System.nanoTime() - lngStart;
+        if (lngUpdates == 0L || lngElapsed <= 0L) {
+            return 0D;
+        }
+        double dblBusy = (lngUser + lngSystem - lngBaseline) * 1e9D / HERTZ;
+        return 100D * dblBusy / lngElapsed;
+    }
+
+    /**
+     * Returns the average thread processor time spent sampling and rendering a single update
+     *
+     * @return The average processor time per update in microseconds
+     */
+    public synchronized long getAverageCpu() {
+        return lngUpdates > 0L ? lngCpu / lngUpdates / 1000L : 0L;
+    }
+
+    /**
+     * Returns the average wall time spent sampling and rendering a single update
+     *
+     * @return The average wall time per update in microseconds
+     */
+    public synchronized long getAverageWall() {
+        return lngUpdates > 0L ? lngWall / lngUpdates / 1000L : 0L;
+    }
+
+    /**
+     * Returns the resident memory of the process as of the last read
+     *
+     * @return The resident memory in kilobytes
+     */
+    public synchronized long getResident() {
+        return lngResident;
+    }
+
+    /**
+     * Returns the number of garbage collections since the first update was recorded
+     *
+     * @return The number of collections or -1 if unknown
+     */
+    public synchronized long getCollections() {
+        if (lngUpdates == 0L || lngCollected < 0L) {
+            return -1L;
+        }
+        return lngCollections[(int) ((lngUpdates - 1) % CAPACITY)] - lngCollected;
+    }
+
+    /**
+     * Returns the number of updates that have been recorded
+     *
+     * @return The number of updates
+     */
+    public synchronized long getUpdates() {
+        return lngUpdates;
+    }
+
+    /**
+     * Exports the totals and the figures of the most recent updates as comma separated values so
+     * that they can be shared and compared across devices
+     *
+     * @return The comma separated values with a header row
+     */
+    public synchronized String export() {
+        StringBuilder sbdExport = new StringBuilder();
+        sbdExport.append(String.format(Locale.US, "# updates=%d usage=%.4f%% cpu=%dus wall=%dus rss=%dkB gcs=%d%n",
+                lngUpdates, getUsage(), getAverageCpu(), getAverageWall(), lngResident, getCollections()));
+        sbdExport.append("time,sample_wall_us,sample_cpu_us,render_wall_us,render_cpu_us,process_ticks,rss_kb,gcs\n");
+        long lngFirst = Math.max(0L, lngUpdates - CAPACITY);
+        for (long i = lngFirst; i < lngUpdates; i++) {
+            int intIndex = (int) (i % CAPACITY);
+            sbdExport.append(lngTimes[intIndex]).append(',');
+            sbdExport.append(intSampleWalls[intIndex]).append(',');
+            sbdExport.append(intSampleCpus[intIndex]).append(',');
+            sbdExport.append(intRenderWalls[intIndex]).append(',');
+            sbdExport.append(intRenderCpus[intIndex]).append(',');
+            sbdExport.append(lngProcesses[intIndex]).append(',');
+            sbdExport.append(lngResidents[intIndex]).append(',');
+            sbdExport.append(lngCollections[intIndex]).append('\n');
+        }
+        return sbdExport.toString();
+    }
+
+    /**
+     * Closes the statistics and the status files of the process
+     */
+    public void destroy() {
+
+        if (hndSelf != null) {
+            hndSelf.close();
+        }
+        if (hndStatus != null) {
+            hndStatus.close();
+        }
+    }
+}
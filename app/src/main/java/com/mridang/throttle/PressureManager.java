@@ -0,0 +1,288 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Manager class to read the pressure stall information of the processor, the memory and the I/O from
+ * the /proc/pressure files. The files are only available on newer kernels so the support is detected
+ * once and the files that exist are kept open so that they are read in the same batch as all the
+ * other files.
+ */
+public class PressureManager {
+
+    /**
+     * The index of the pressure of the processor
+     */
+    public static final int CPU = 0;
+    /**
+     * The index of the pressure of the memory
+     */
+    public static final int MEMORY = 1;
+    /**
+     * The index of the pressure of the I/O
+     */
+    public static final int IO = 2;
+    /**
+     * The number of the resources whose pressure is read
+     */
+    public static final int RESOURCES = 3;
+    /**
+     * The index of the line of the time in which some of the tasks were stalled
+     */
+    public static final int SOME = 0;
+    /**
+     * The index of the line of the time in which all of the tasks were stalled
+     */
+    public static final int FULL = 1;
+    /**
+     * The number of the lines of each of the files
+     */
+    public static final int LINES = 2;
+    /**
+     * The paths of the pressure files relative to the root of the source in the order of the
+     * indices of the resources
+     */
+    private static final String[] PATHS = {"proc/pressure/cpu", "proc/pressure/memory", "proc/pressure/io"};
+    /**
+     * The prefixes of the lines in the order of the indices of the lines
+     */
+    private static final byte[][] PREFIXES = {{'s', 'o', 'm', 'e', ' '}, {'f', 'u', 'l', 'l', ' '}};
+    /**
+     * The share of the last ten seconds in which some of the tasks were stalled on memory from which
+     * the memory usage is considered to be high
+     */
+    private static final double SOME_HIGH = 10D;
+    /**
+     * The share of the last ten seconds in which all of the tasks were stalled on memory from which
+     * the memory usage is considered to be high
+     */
+    private static final double FULL_HIGH = 2D;
+    /**
+     * The pressure file of each of the resources which is read repeatedly or null if it isn't
+     * supported
+     */
+    private final FileSource.Handle[] hndResources = new FileSource.Handle[RESOURCES];
+    /**
+     * The share of the last ten seconds in which the tasks were stalled, indexed by the resource and
+     * the line, or NaN if it isn't supported
+     */
+    private final float[] fltAverages10 = new float[RESOURCES * LINES];
+    /**
+     * The share of the last minute in which the tasks were stalled, indexed by the resource and the
+     * line, or NaN if it isn't supported
+     */
+    private final float[] fltAverages60 = new float[RESOURCES * LINES];
+    /**
+     * The cumulative stall time in microseconds as of the last update, indexed by the resource and
+     * the line
+     */
+    private final long[] lngTotals = new long[RESOURCES * LINES];
+    /**
+     * The stall time in microseconds during the last window, indexed by the resource and the line
+     */
+    private final long[] lngStalls = new long[RESOURCES * LINES];
+    /**
+     * The flags indicating whether the next read of each of the resources is only to be used as the
+     * baseline of the following window
+     */
+    private final boolean[] booBaseline = new boolean[RESOURCES];
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsPressure = new ProcfsParser();
+
+    public PressureManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that opens the pressure files from the given source. When the kernel doesn't
+     * support the pressure stall information, the manager reports no pressure at all.
+     *
+     * @param srcFiles The source from which the pressure files are read
+     */
+    public PressureManager(FileSource srcFiles) {
+        int intSupported = 0;
+        for (int i = 0; i < RESOURCES; i++) {
+            booBaseline[i] = true;
+            clear(i);
+            try {
+                hndResources[i] = srcFiles.open(PATHS[i], 256);
+                intSupported++;
+            } catch (FileNotFoundException e) {
+                Log.v("PressureManager", "No pressure stall information in " + PATHS[i]);
+            }
+        }
+        if (intSupported == 0) {
+            Log.w("PressureManager", "The kernel doesn't support the pressure stall information");
+        }
+    }
+
+    /**
+     * Updates the pressure of each of the supported resources with a single read per resource. If a
+     * file can't be read because the pressure stall information has been disabled, the resource is
+     * considered to be unsupported from then on.
+     */
+    public void update() {
+        for (int i = 0; i < RESOURCES; i++) {
+            if (hndResources[i] == null) {
+                continue;
+            }
+
+            try {
+                read(i);
+            } catch (IOException e) {
+                Log.w("PressureManager", "Unable to read the pressure from " + PATHS[i], e);
+                hndResources[i].close();
+                hndResources[i] = null;
+                clear(i);
+            }
+        }
+    }
+
+    /**
+     * Reads the pressure file of the given resource. The processor file of older kernels has no line
+     * for the time in which all of the tasks were stalled, so that line is simply left at zero.
+     *
+     * @param intResource The index of the resource
+     * @throws IOException If the file couldn't be read
+     */
+    private void read(int intResource) throws IOException {
+        ByteBuffer bufPressure = hndResources[intResource].read();
+        if (bufPressure.limit() == 0) {
+            throw new IOException("The pressure file is empty");
+        }
+
+        prsPressure.reset(bufPressure, bufPressure.limit());
+        while (!prsPressure.isFinished()) {
+            for (int i = 0; i < LINES; i++) {
+                if (prsPressure.startsWith(PREFIXES[i])) {
+                    prsPressure.skip(PREFIXES[i].length);
+                    readLine(intResource * LINES + i, booBaseline[intResource]);
+                    break;
+                }
+            }
+            prsPressure.skipLine();
+        }
+        booBaseline[intResource] = false;
+    }
+
+    /**
+     * Reads the averages and the total stall time of the line at the cursor. Each value follows its
+     * name and an equals sign and the names are skipped as they contain digits themselves.
+     *
+     * @param intIndex    The index of the resource and the line
+     * @param booBaseline A boolean value indicating whether the total only sets the baseline
+     */
+    private void readLine(int intIndex, boolean booBaseline) {
+        skipName();
+        fltAverages10[intIndex] = (float) prsPressure.nextDecimal();
+        skipName();
+        fltAverages60[intIndex] = (float) prsPressure.nextDecimal();
+        skipName();
+        prsPressure.nextDecimal();
+        skipName();
+        long lngTotal = prsPressure.nextLong();
+
+        long lngDifference = lngTotal - lngTotals[intIndex];
+        lngStalls[intIndex] = booBaseline || lngDifference < 0L ? 0L : lngDifference;
+        lngTotals[intIndex] = lngTotal;
+    }
+
+    /**
+     * Moves the cursor past the next equals sign on the current line
+     */
+    private void skipName() {
+        while (!prsPressure.isFinished() && prsPressure.peek(0) != '=' && prsPressure.peek(0) != '\n') {
+            prsPressure.skip(1);
+        }
+        if (prsPressure.peek(0) == '=') {
+            prsPressure.skip(1);
+        }
+    }
+
+    /**
+     * Clears the figures of the given resource so that it is reported as unsupported
+     *
+     * @param intResource The index of the resource
+     */
+    private void clear(int intResource) {
+        for (int i = intResource * LINES; i < (intResource + 1) * LINES; i++) {
+            fltAverages10[i] = Float.NaN;
+            fltAverages60[i] = Float.NaN;
+            lngTotals[i] = 0L;
+            lngStalls[i] = 0L;
+        }
+    }
+
+    /**
+     * Returns whether the pressure of the given resource is available
+     *
+     * @param intResource The index of the resource
+     * @return True if the kernel supports the pressure of the resource
+     */
+    public boolean isSupported(int intResource) {
+        return hndResources[intResource] != null;
+    }
+
+    /**
+     * Returns the share of the last ten seconds in which the tasks were stalled on the given resource
+     *
+     * @param intResource The index of the resource
+     * @param intLine     The index of the line
+     * @return The share as a percentage or NaN if it isn't supported
+     */
+    public float getAverage10(int intResource, int intLine) {
+        return fltAverages10[intResource * LINES + intLine];
+    }
+
+    /**
+     * Returns the share of the last minute in which the tasks were stalled on the given resource
+     *
+     * @param intResource The index of the resource
+     * @param intLine     The index of the line
+     * @return The share as a percentage or NaN if it isn't supported
+     */
+    public float getAverage60(int intResource, int intLine) {
+        return fltAverages60[intResource * LINES + intLine];
+    }
+
+    /**
+     * Returns the time in which the tasks were stalled on the given resource during the last window
+     *
+     * @param intResource The index of the resource
+     * @param intLine     The index of the line
+     * @return The stall time in microseconds or zero for the first update
+     */
+    public long getStall(int intResource, int intLine) {
+        return lngStalls[intResource * LINES + intLine];
+    }
+
+    /**
+     * Checks whether the given shares of the last ten seconds in which the tasks were stalled on
+     * memory mean that the memory usage is high
+     *
+     * @param dblSome The share in which some of the tasks were stalled as a percentage
+     * @param dblFull The share in which all of the tasks were stalled as a percentage
+     * @return True if the memory usage is high
+     */
+    public static boolean isHigh(double dblSome, double dblFull) {
+        return dblSome >= SOME_HIGH || dblFull >= FULL_HIGH;
+    }
+
+    /**
+     * Closes the pressure files from which the figures are be read repeatedly
+     */
+    public void destroy() {
+
+        for (FileSource.Handle hndResource : hndResources) {
+            if (hndResource != null) {
+                hndResource.close();
+            }
+        }
+    }
+}
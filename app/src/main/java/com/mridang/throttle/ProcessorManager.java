@@ -3,18 +3,115 @@ package com.mridang.throttle;
 import android.util.Log;
 
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Manager class to read the processor usage from the /proc/stat file and return the processor usage
+ * of all the cores as well as the cumulative usage. The system counters which follow the processor
+ * rows are read in the same pass so that a busy processor can be told apart from a thrashing
+ * scheduler or from tasks waiting on I/O.
  */
 public class ProcessorManager {
 
     /**
-     * The processor statistics file from which the figures should be read repeatedly
+     * The prefix of the rows in the statistics file containing the processor figures
      */
-    private RandomAccessFile rafProcessor;
+    private static final byte[] CPU = {'c', 'p', 'u'};
+    /**
+     * The prefixes of the rows of the system counters in the order of the indices of the counters
+     */
+    private static final byte[][] ROWS = {"ctxt ".getBytes(), "intr ".getBytes(), "softirq ".getBytes(),
+            "procs_running ".getBytes(), "procs_blocked ".getBytes()};
+    /**
+     * The index of the number of context switches in the window
+     */
+    public static final int SWITCHES = 0;
+    /**
+     * The index of the number of interrupts in the window
+     */
+    public static final int INTERRUPTS = 1;
+    /**
+     * The index of the number of software interrupts in the window
+     */
+    public static final int SOFTIRQS = 2;
+    /**
+     * The index of the number of tasks that are currently runnable
+     */
+    public static final int RUNNING = 3;
+    /**
+     * The index of the number of tasks that are currently blocked on I/O
+     */
+    public static final int BLOCKED = 4;
+    /**
+     * The number of the system counters
+     */
+    public static final int COUNTERS = 5;
+    /**
+     * The index of the share of the time spent waiting on I/O
+     */
+    public static final int IOWAIT = 0;
+    /**
+     * The index of the share of the time spent servicing interrupts
+     */
+    public static final int IRQ = 1;
+    /**
+     * The index of the share of the time spent servicing software interrupts
+     */
+    public static final int SOFT = 2;
+    /**
+     * The index of the share of the time stolen by the hypervisor
+     */
+    public static final int STEAL = 3;
+    /**
+     * The number of the shares of the processor time that are reported separately
+     */
+    public static final int SHARES = 4;
+    /**
+     * The number of columns of the processor row that make up the total processor time. The guest
+     * columns are skipped as they are already accounted for in the user columns.
+     */
+    private static final int COLUMNS = 8;
+    /**
+     * The indices of the columns of the processor row
+     */
+    private static final int IDLE = 3, COLUMN_IOWAIT = 4, COLUMN_IRQ = 5, COLUMN_SOFTIRQ = 6, COLUMN_STEAL = 7;
+    /**
+     * The path of the processor statistics file relative to the root of the source
+     */
+    private static final String STAT = "proc/stat";
+    /**
+     * The number of bytes of the statistics file that are read at first, which fits the file of a
+     * typical device along with its long row of interrupt counters
+     */
+    private static final int CAPACITY = 16384;
+    /**
+     * The largest number of bytes of the statistics file that are ever read, beyond which the rows
+     * at the end of the file are left out
+     */
+    private static final int MAXIMUM = 262144;
+    /**
+     * The source from which the statistics file is opened again when it doesn't fit the buffer
+     */
+    private final FileSource srcFiles;
+    /**
+     * The number of bytes of the statistics file that are currently read
+     */
+    private int intLength = CAPACITY;
+    /**
+     * The flag indicating whether the statistics file has been found to be larger than even the
+     * largest buffer, so that the warning is only logged once
+     */
+    private boolean booTruncated = false;
+    /**
+     * The processor statistics file from which the figures should be read repeatedly or null if the
+     * file couldn't be opened
+     */
+    private FileSource.Handle hndProcessor;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsProcessor = new ProcfsParser();
     /**
      * The value of the total processor utilization since the last update
      */
@@ -23,44 +120,139 @@ public class ProcessorManager {
      * The value of the idle processor utilization since the last update
      */
     private long lngPreviousIdle = 0L;
+    /**
+     * The total time of the row that was last parsed
+     */
+    private long lngRowTotal;
+    /**
+     * The idle time of the row that was last parsed
+     */
+    private long lngRowIdle;
+    /**
+     * The columns of the row that was last parsed which are reported separately
+     */
+    private final long[] lngRowShares = new long[SHARES];
+    /**
+     * The columns of the cumulative row which are reported separately as of the current update
+     */
+    private final long[] lngCurrentShares = new long[SHARES];
+    /**
+     * The columns of the cumulative row which are reported separately as of the last update
+     */
+    private final long[] lngPreviousShares = new long[SHARES];
+    /**
+     * The share of the time of the window spent in each of the columns which are reported separately
+     */
+    private final float[] fltShares = new float[SHARES];
+    /**
+     * The cumulative values of the system counters as of the last update
+     */
+    private final long[] lngPreviousCounters = new long[COUNTERS];
+    /**
+     * The system counters of the last update, which are the deltas over the window for the
+     * cumulative counters and the current values for the number of tasks
+     */
+    private final long[] lngCounters = new long[COUNTERS];
+    /**
+     * The value of the total utilization of each of the cores since the last update
+     */
+    private long[] lngCoreTotals;
+    /**
+     * The value of the idle utilization of each of the cores since the last update
+     */
+    private long[] lngCoreIdles;
+    /**
+     * The usage of each of the cores in the last update
+     */
+    private double[] dblCoreUsages;
+    /**
+     * The flags indicating whether each of the cores was present in the last update
+     */
+    private boolean[] booCoreOnline;
+    /**
+     * The number of cores that have been seen so far, including the ones that are now offline
+     */
+    private int intCores = 0;
+    /**
+     * The usage of the busiest core in the last update
+     */
+    private double dblBusiest = 0D;
 
     public ProcessorManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that reads the statistics file from the given source so that copied or
+     * recorded files can be used instead of the ones of the device. When the file is missing, the
+     * manager reports no usage at all.
+     *
+     * @param srcFiles The source from which the statistics file is read
+     */
+    public ProcessorManager(FileSource srcFiles) {
+        this.srcFiles = srcFiles;
         try {
-            rafProcessor = new RandomAccessFile("/proc/stat", "r");
+            hndProcessor = srcFiles.open(STAT, intLength);
         } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+            Log.w("ProcessorManager", "Unable to open the processor statistics file", e);
         }
+
+        int intCapacity = Runtime.getRuntime().availableProcessors();
+        lngCoreTotals = new long[intCapacity];
+        lngCoreIdles = new long[intCapacity];
+        dblCoreUsages = new double[intCapacity];
+        booCoreOnline = new boolean[intCapacity];
     }
 
     /**
      * Handler method that updates the notification icon with the current processor usage. It does
      * this by reading the /proc/stat file and specifically the of the first CPU row as are only
-     * concerned with the cumulative processor utilization.
+     * concerned with the cumulative processor utilization. The rows of the individual cores and the
+     * system counters are read in the same pass so that they are also available. The shares of the
+     * time waiting on I/O, servicing interrupts and stolen by the hypervisor are reported separately
+     * but the usage itself is still everything but the idle time, so that it can be compared with the
+     * usage that has been recorded so far.
      */
     public double getUsage() {
-        try {
-            rafProcessor.seek(0);
-            String strLine = rafProcessor.readLine();
-            Log.v("HardwareService", strLine);
-            String[] lstColumns = strLine.split(" ");
+        if (hndProcessor == null) {
+            return 0D;
+        }
 
-            long lngCurrentIdle = Long.parseLong(lstColumns[5]);
-            long lngCurrentTotal = 0L;
+        try {
+            ByteBuffer bufProcessor = hndProcessor.read();
+            while (bufProcessor.limit() == intLength && grow()) {
+                bufProcessor = hndProcessor.read();
+            }
+            prsProcessor.reset(bufProcessor, bufProcessor.limit());
+            if (!prsProcessor.startsWith(CPU) || prsProcessor.peek(CPU.length) != ' ') {
+                Log.w("ProcessorManager", "Unable to find the processor row");
+                return 0D;
+            }
 
-            lstColumns[0] = lstColumns[1] = "0";
+            prsProcessor.skip(CPU.length);
+            readRow();
+            System.arraycopy(lngRowShares, 0, lngCurrentShares, 0, SHARES);
+            long lngCurrentIdle = lngRowIdle;
+            long lngCurrentTotal = lngRowTotal;
+            prsProcessor.skipLine();
+            readCores();
+            readCounters(lngPreviousTotal == 0L);
 
-            for (String strStatistic : lstColumns) {
-                lngCurrentTotal = lngCurrentTotal + Integer.parseInt(strStatistic);
-            }
             long lngDifferenceIdle = lngCurrentIdle - lngPreviousIdle;
             long lngDifferenceTotal = lngCurrentTotal - lngPreviousTotal;
+            for (int i = 0; i < SHARES; i++) {
+                long lngDifference = lngCurrentShares[i] - lngPreviousShares[i];
+                fltShares[i] = lngDifferenceTotal > 0L && lngDifference >= 0L ?
+                        Math.min(100F, 100F * lngDifference / lngDifferenceTotal) : 0F;
+                lngPreviousShares[i] = lngCurrentShares[i];
+            }
 
             lngPreviousIdle = lngCurrentIdle;
             lngPreviousTotal = lngCurrentTotal;
 
             long lngUsageDelta = lngDifferenceTotal - lngDifferenceIdle;
 
-            Double dblPercent = 100.0 * (lngUsageDelta / (lngDifferenceTotal + 0.01));
+            double dblPercent = 100.0 * (lngUsageDelta / (lngDifferenceTotal + 0.01));
             if (dblPercent < 0D) {
                 Log.w("ProcessorManager", "Encountered a negative value of " + dblPercent);
                 dblPercent = 0D;
@@ -68,7 +260,6 @@ public class ProcessorManager {
                 Log.w("ProcessorManager", "Encountered a insane value of " + dblPercent);
                 dblPercent = 100D;
             }
-            Log.d("HardwareService", "Current processor usage is " + dblPercent);
             return dblPercent;
 
         } catch (Exception e) {
@@ -78,17 +269,228 @@ public class ProcessorManager {
         return 0D;
     }
 
+    /**
+     * Opens the statistics file again with a buffer twice as large since the file filled the whole
+     * buffer and the counters at the end of the file, which come after the long row of interrupt
+     * counters, would otherwise be read as missing. Once the largest buffer is reached, a warning is
+     * logged and the file is read truncated.
+     *
+     * @return True if the file was opened again with a larger buffer
+     */
+    private boolean grow() {
+        if (booTruncated) {
+            return false;
+        }
+        if (intLength >= MAXIMUM) {
+            Log.w("ProcessorManager", "The processor statistics file is larger than " + intLength + " bytes");
+            booTruncated = true;
+            return false;
+        }
+
+        int intGrown = Math.min(intLength * 2, MAXIMUM);
+        Log.w("ProcessorManager", "Growing the processor statistics buffer to " + intGrown + " bytes");
+        try {
+            FileSource.Handle hndGrown = srcFiles.open(STAT, intGrown);
+            hndProcessor.close();
+            hndProcessor = hndGrown;
+            intLength = intGrown;
+            return true;
+        } catch (FileNotFoundException e) {
+            Log.w("ProcessorManager", "Unable to open the processor statistics file again", e);
+            booTruncated = true;
+            return false;
+        }
+    }
+
+    /**
+     * Reads the rows of the individual cores that follow the cumulative row. Cores that have been
+     * taken offline are missing from the file and their previous figures are discarded so that the
+     * first update after they come back online is only used as the new baseline.
+     */
+    private void readCores() {
+        for (int i = 0; i < intCores; i++) {
+            booCoreOnline[i] = false;
+        }
+
+        dblBusiest = 0D;
+        while (prsProcessor.startsWith(CPU) && prsProcessor.peek(CPU.length) >= '0'
+                && prsProcessor.peek(CPU.length) <= '9') {
+            prsProcessor.skip(CPU.length);
+            int intCore = (int) prsProcessor.nextLong();
+            readRow();
+            prsProcessor.skipLine();
+
+            if (intCore >= lngCoreTotals.length) {
+                grow(intCore + 1);
+            }
+            if (intCore >= intCores) {
+                intCores = intCore + 1;
+            }
+
+            long lngDifferenceIdle = lngRowIdle - lngCoreIdles[intCore];
+            long lngDifferenceTotal = lngRowTotal - lngCoreTotals[intCore];
+            boolean booBaseline = lngCoreTotals[intCore] == 0L || lngDifferenceTotal < 0L
+                    || lngDifferenceIdle < 0L;
+            lngCoreIdles[intCore] = lngRowIdle;
+            lngCoreTotals[intCore] = lngRowTotal;
+            booCoreOnline[intCore] = true;
+
+            if (booBaseline || lngDifferenceTotal == 0L) {
+                dblCoreUsages[intCore] = 0D;
+            } else {
+                double dblPercent = 100.0 * (lngDifferenceTotal - lngDifferenceIdle) / lngDifferenceTotal;
+                dblCoreUsages[intCore] = Math.max(0D, Math.min(100D, dblPercent));
+            }
+            dblBusiest = Math.max(dblBusiest, dblCoreUsages[intCore]);
+        }
+
+        for (int i = 0; i < intCores; i++) {
+            if (!booCoreOnline[i]) {
+                lngCoreIdles[i] = 0L;
+                lngCoreTotals[i] = 0L;
+                dblCoreUsages[i] = 0D;
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of the system counters that follow the processor rows. Only the first number of
+     * the interrupt rows is read as it is the sum of all the interrupts that follow it.
+     *
+     * @param booBaseline A boolean value indicating whether this is the first update so that the
+     *                    cumulative counters only set the baseline
+     */
+    private void readCounters(boolean booBaseline) {
+        for (int i = 0; i < COUNTERS; i++) {
+            lngCounters[i] = 0L;
+        }
+
+        while (!prsProcessor.isFinished()) {
+            for (int i = 0; i < COUNTERS; i++) {
+                if (prsProcessor.startsWith(ROWS[i])) {
+                    prsProcessor.skip(ROWS[i].length);
+                    long lngValue = prsProcessor.nextLong();
+                    if (i == RUNNING || i == BLOCKED) {
+                        lngCounters[i] = lngValue;
+                    } else {
+                        long lngDifference = lngValue - lngPreviousCounters[i];
+                        lngCounters[i] = booBaseline || lngDifference < 0L ? 0L : lngDifference;
+                        lngPreviousCounters[i] = lngValue;
+                    }
+                    break;
+                }
+            }
+            prsProcessor.skipLine();
+        }
+    }
+
+    /**
+     * Reads the time columns of the processor row at the cursor and sums them into the total. The
+     * columns which are reported as shares are kept aside as they are read.
+     */
+    private void readRow() {
+        lngRowIdle = 0L;
+        lngRowTotal = 0L;
+        for (int i = 0; i < SHARES; i++) {
+            lngRowShares[i] = 0L;
+        }
+        for (int i = 0; i < COLUMNS && prsProcessor.hasNumber(); i++) {
+            long lngStatistic = prsProcessor.nextLong();
+            if (i == IDLE) {
+                lngRowIdle = lngStatistic;
+            } else if (i == COLUMN_IOWAIT) {
+                lngRowShares[IOWAIT] = lngStatistic;
+            } else if (i == COLUMN_IRQ) {
+                lngRowShares[IRQ] = lngStatistic;
+            } else if (i == COLUMN_SOFTIRQ) {
+                lngRowShares[SOFT] = lngStatistic;
+            } else if (i == COLUMN_STEAL) {
+                lngRowShares[STEAL] = lngStatistic;
+            }
+            lngRowTotal = lngRowTotal + lngStatistic;
+        }
+    }
+
+    /**
+     * Grows the arrays holding the figures of the cores when a core beyond the initially detected
+     * ones shows up. This only happens when cores were offline when the manager was created.
+     *
+     * @param intCapacity The number of cores that the arrays should be able to hold
+     */
+    private void grow(int intCapacity) {
+        lngCoreTotals = Arrays.copyOf(lngCoreTotals, intCapacity);
+        lngCoreIdles = Arrays.copyOf(lngCoreIdles, intCapacity);
+        dblCoreUsages = Arrays.copyOf(dblCoreUsages, intCapacity);
+        booCoreOnline = Arrays.copyOf(booCoreOnline, intCapacity);
+    }
+
+    /**
+     * Returns the number of cores that have been seen so far including the ones that are offline
+     *
+     * @return The number of cores
+     */
+    public int getCores() {
+        return intCores;
+    }
+
+    /**
+     * Returns whether the given core was online during the last update
+     *
+     * @param intCore The index of the core
+     * @return True if the core was online
+     */
+    public boolean isOnline(int intCore) {
+        return intCore < intCores && booCoreOnline[intCore];
+    }
+
+    /**
+     * Returns the usage of the given core as of the last update. Offline cores have no usage.
+     *
+     * @param intCore The index of the core
+     * @return The usage of the core
+     */
+    public double getUsage(int intCore) {
+        return intCore < intCores ? dblCoreUsages[intCore] : 0D;
+    }
+
+    /**
+     * Returns the given system counter as of the last update. The numbers of context switches and
+     * interrupts are the counts over the window while the numbers of tasks are the current values.
+     *
+     * @param intCounter The index of the counter
+     * @return The value of the counter
+     */
+    public long getCounter(int intCounter) {
+        return lngCounters[intCounter];
+    }
+
+    /**
+     * Returns the share of the window spent in the given column of the processor time, which is
+     * reported separately rather than being counted as usage
+     *
+     * @param intShare The index of the share
+     * @return The share of the time as a percentage
+     */
+    public float getShare(int intShare) {
+        return fltShares[intShare];
+    }
+
+    /**
+     * Returns the usage of the busiest core as of the last update
+     *
+     * @return The usage of the busiest core
+     */
+    public double getBusiest() {
+        return dblBusiest;
+    }
+
     /**
      * Closes the processor statistics file from which the figures are be read repeatedly
      */
     public void destroy() {
 
-        if (rafProcessor != null) {
-            try {
-                rafProcessor.close();
-            } catch (IOException e) {
-                Log.w("HardwareService", "Unable to successfully close the file");
-            }
+        if (hndProcessor != null) {
+            hndProcessor.close();
         }
     }
 }
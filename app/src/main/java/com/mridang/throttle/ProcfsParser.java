@@ -0,0 +1,193 @@
+package com.mridang.throttle;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parser class that reads the figures straight out of the raw bytes of a procfs or sysfs file.
+ * The parser keeps a cursor into the buffer so that the numeric columns can be read one after the
+ * other without splitting the lines into strings or boxing the numbers.
+ */
+public class ProcfsParser {
+
+    /**
+     * The buffer containing the raw contents of the file that is being parsed
+     */
+    private ByteBuffer bufContents;
+    /**
+     * The position of the cursor in the buffer from which the next figure is read
+     */
+    private int intPosition;
+    /**
+     * The position in the buffer up to which the contents are valid
+     */
+    private int intLimit;
+
+    /**
+     * Resets the parser so that it reads the given buffer from the very beginning
+     *
+     * @param bufContents The buffer containing the raw contents of the file
+     * @param intLength   The number of valid bytes in the buffer
+     */
+    public void reset(ByteBuffer bufContents, int intLength) {
+        this.bufContents = bufContents;
+        this.intPosition = 0;
+        this.intLimit = Math.max(intLength, 0);
+    }
+
+    /**
+     * Returns whether the cursor has reached the end of the valid contents of the buffer
+     *
+     * @return True if there is nothing more to be read
+     */
+    public boolean isFinished() {
+        return intPosition >= intLimit;
+    }
+
+    /**
+     * Returns the current position of the cursor in the buffer
+     *
+     * @return The position of the cursor
+     */
+    public int getPosition() {
+        return intPosition;
+    }
+
+    /**
+     * Moves the cursor to the given position in the buffer
+     *
+     * @param intPosition The position to which the cursor should be moved
+     */
+    public void setPosition(int intPosition) {
+        this.intPosition = Math.min(intPosition, intLimit);
+    }
+
+    /**
+     * Checks whether the bytes at the current position of the cursor match the given prefix. The
+     * cursor is not moved.
+     *
+     * @param bytPrefix The ASCII bytes of the prefix to look for
+     * @return True if the bytes at the cursor start with the prefix
+     */
+    public boolean startsWith(byte[] bytPrefix) {
+        if (intPosition + bytPrefix.length > intLimit) {
+            return false;
+        }
+
+        for (int i = 0; i < bytPrefix.length; i++) {
+            if (bufContents.get(intPosition + i) != bytPrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the byte at the given offset from the cursor or -1 if it lies beyond the contents
+     *
+     * @param intOffset The offset from the current position of the cursor
+     * @return The byte at the offset
+     */
+    public int peek(int intOffset) {
+        int intIndex = intPosition + intOffset;
+        return intIndex < intLimit ? bufContents.get(intIndex) : -1;
+    }
+
+    /**
+     * Moves the cursor forward by the given number of bytes
+     *
+     * @param intCount The number of bytes to skip
+     */
+    public void skip(int intCount) {
+        intPosition = Math.min(intPosition + intCount, intLimit);
+    }
+
+    /**
+     * Moves the cursor past the next newline character so that it rests at the start of the next line
+     */
+    public void skipLine() {
+        while (intPosition < intLimit) {
+            if (bufContents.get(intPosition++) == '\n') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves the cursor past the current token i.e. until the next whitespace character
+     */
+    public void skipToken() {
+        while (intPosition < intLimit) {
+            byte bytCurrent = bufContents.get(intPosition);
+            if (bytCurrent == ' ' || bytCurrent == '\t' || bytCurrent == '\n') {
+                return;
+            }
+            intPosition++;
+        }
+    }
+
+    /**
+     * Checks whether there is another number on the current line without moving the cursor past the
+     * end of the line
+     *
+     * @return True if there is another number before the end of the line
+     */
+    public boolean hasNumber() {
+        while (intPosition < intLimit) {
+            byte bytCurrent = bufContents.get(intPosition);
+            if (bytCurrent >= '0' && bytCurrent <= '9') {
+                return true;
+            } else if (bytCurrent == '\n') {
+                return false;
+            }
+            intPosition++;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next unsigned number on the current line. Any characters before the digits are
+     * skipped, but the cursor never moves past the end of the line, in which case zero is returned.
+     *
+     * @return The value of the next number on the line
+     */
+    public long nextLong() {
+        if (!hasNumber()) {
+            return 0L;
+        }
+
+        long lngValue = 0L;
+        while (intPosition < intLimit) {
+            byte bytCurrent = bufContents.get(intPosition);
+            if (bytCurrent < '0' || bytCurrent > '9') {
+                break;
+            }
+            lngValue = lngValue * 10 + (bytCurrent - '0');
+            intPosition++;
+        }
+        return lngValue;
+    }
+
+    /**
+     * Reads the next unsigned decimal number on the current line. The fraction is optional and any
+     * characters before the digits are skipped as they are by {@link #nextLong()}.
+     *
+     * @return The value of the next decimal number on the line
+     */
+    public double nextDecimal() {
+        double dblValue = nextLong();
+        if (intPosition < intLimit && bufContents.get(intPosition) == '.') {
+            intPosition++;
+            double dblScale = 1D;
+            while (intPosition < intLimit) {
+                byte bytCurrent = bufContents.get(intPosition);
+                if (bytCurrent < '0' || bytCurrent > '9') {
+                    break;
+                }
+                dblScale = dblScale / 10D;
+                dblValue = dblValue + (bytCurrent - '0') * dblScale;
+                intPosition++;
+            }
+        }
+        return dblValue;
+    }
+}
@@ -0,0 +1,395 @@
+package com.mridang.throttle;
+
+/**
+ * Model class holding everything that is visible in the notification so that the state that is
+ * about to be rendered can be compared with the state that was last posted. The figures are kept at
+ * the precision at which they are shown so that changes which aren't visible are ignored.
+ */
+public class RenderState {
+
+    /**
+     * The resource identifier of the small icon
+     */
+    private int intIcon;
+    /**
+     * The key of the rendered small icon or zero if the static drawable is used
+     */
+    private long lngGraph;
+    /**
+     * The index of the title in the array of memory usage levels
+     */
+    private int intTitle;
+    /**
+     * The processor usage shown in the info text
+     */
+    private int intPercent;
+    /**
+     * The usage of the busiest core shown in the info text or -1 if it isn't shown
+     */
+    private int intBusiest;
+    /**
+     * The 95th percentile of the usage over the last five minutes shown in the info text or -1 if it
+     * isn't shown
+     */
+    private int intPercentile = -1;
+    /**
+     * The temperature at which the processor is being throttled shown in the info text or -1 if it
+     * isn't being throttled
+     */
+    private int intThrottled = -1;
+    /**
+     * The clock frequency shown in the info text in MHz, rounded to the precision at which it is shown
+     */
+    private long lngClock;
+    /**
+     * The amount of free memory shown in the content text in megabytes
+     */
+    private long lngFree;
+    /**
+     * The total amount of memory shown in the content text in megabytes
+     */
+    private long lngTotal;
+    /**
+     * The flag indicating whether the disk activity is shown in the sub text
+     */
+    private boolean booDisk;
+    /**
+     * The read throughput shown in the sub text in bytes per second, rounded to two digits
+     */
+    private long lngRead;
+    /**
+     * The write throughput shown in the sub text in bytes per second, rounded to two digits
+     */
+    private long lngWrite;
+    /**
+     * The number of reads and writes per second shown in the sub text
+     */
+    private int intOperations;
+    /**
+     * The average service time shown in the sub text in tenths of a millisecond
+     */
+    private int intLatency;
+    /**
+     * The average queue depth shown in the sub text in tenths
+     */
+    private int intQueue;
+    /**
+     * The names of the busiest processes shown in the expanded view
+     */
+    private final String[] strProcesses = new String[TopManager.COUNT];
+    /**
+     * The usage of the busiest processes shown in the expanded view
+     */
+    private final int[] intProcesses = new int[TopManager.COUNT];
+    /**
+     * The number of the busiest processes shown in the expanded view
+     */
+    private int intCount;
+
+    /**
+     * Sets all the visible figures of the state
+     *
+     * @param intIcon      The resource identifier of the small icon
+     * @param intTitle     The index of the title
+     * @param intPercent   The processor usage
+     * @param intBusiest   The usage of the busiest core or -1 if it isn't shown
+     * @param lngFrequency The clock frequency in kHz
+     * @param lngFree      The amount of free memory in megabytes
+     * @param lngTotal     The total amount of memory in megabytes
+     */
+    public void set(int intIcon, int intTitle, int intPercent, int intBusiest, long lngFrequency,
+                    long lngFree, long lngTotal) {
+        this.intIcon = intIcon;
+        this.intTitle = intTitle;
+        this.intPercent = intPercent;
+        this.intBusiest = intBusiest;
+        this.lngClock = lngFrequency < 1000000L ? lngFrequency / 1000L : lngFrequency / 100000L * 100L;
+        this.lngFree = lngFree;
+        this.lngTotal = lngTotal;
+    }
+
+    /**
+     * Sets the key of the rendered small icon which is shown instead of the static drawable
+     *
+     * @param lngGraph The key of the rendered icon or zero if the static drawable is used
+     */
+    public void setGraph(long lngGraph) {
+        this.lngGraph = lngGraph;
+    }
+
+    /**
+     * Sets the 95th percentile of the usage over the last five minutes shown after the usage
+     *
+     * @param intPercentile The percentile or -1 if it isn't shown
+     */
+    public void setPercentile(int intPercentile) {
+        this.intPercentile = intPercentile;
+    }
+
+    /**
+     * Sets whether the processor is shown as thermally throttled from the given snapshot. The
+     * temperature is only kept while throttled so that it doesn't cause a post on every degree.
+     *
+     * @param snpFigures The snapshot of the figures holding the temperature
+     */
+    public void setThermal(Snapshot snpFigures) {
+        this.intThrottled = snpFigures.isThrottled() ? Math.round(snpFigures.getTemperature()) : -1;
+    }
+
+    /**
+     * Sets the disk activity shown in the sub text from the given snapshot. The throughput is
+     * rounded to two digits so that small fluctuations don't cause a post.
+     *
+     * @param snpFigures The snapshot of the figures holding the disk activity or null if it isn't shown
+     */
+    public void setDisk(Snapshot snpFigures) {
+        this.booDisk = snpFigures != null;
+        if (booDisk) {
+            this.lngRead = round((long) snpFigures.getDiskRate(DiskManager.READ_BYTES));
+            this.lngWrite = round((long) snpFigures.getDiskRate(DiskManager.WRITE_BYTES));
+            this.intOperations = (int) Math.round(snpFigures.getDiskRate(DiskManager.READS)
+                    + snpFigures.getDiskRate(DiskManager.WRITES));
+            this.intLatency = (int) Math.round(snpFigures.getDiskLatency() * 10D);
+            this.intQueue = (int) Math.round(snpFigures.getDiskQueue() * 10D);
+        }
+    }
+
+    /**
+     * Rounds the given value down to its two most significant digits
+     *
+     * @param lngValue The value to be rounded
+     * @return The rounded value
+     */
+    private static long round(long lngValue) {
+        long lngScale = 1L;
+        while (lngValue / lngScale >= 100L) {
+            lngScale = lngScale * 10L;
+        }
+        return lngValue / lngScale * lngScale;
+    }
+
+    /**
+     * Sets the busiest processes shown in the expanded view from the given snapshot
+     *
+     * @param snpFigures The snapshot of the figures holding the busiest processes
+     */
+    public void setProcesses(Snapshot snpFigures) {
+        this.intCount = Math.min(snpFigures.getProcesses(), TopManager.COUNT);
+        for (int i = 0; i < intCount; i++) {
+            this.strProcesses[i] = snpFigures.getProcess(i);
+            this.intProcesses[i] = (int) Math.round(snpFigures.getProcessUsage(i));
+        }
+    }
+
+    /**
+     * Copies all the visible figures from the given state
+     *
+     * @param rdsOther The state to copy from
+     */
+    public void copy(RenderState rdsOther) {
+        this.intIcon = rdsOther.intIcon;
+        this.lngGraph = rdsOther.lngGraph;
+        this.intTitle = rdsOther.intTitle;
+        this.intPercent = rdsOther.intPercent;
+        this.intBusiest = rdsOther.intBusiest;
+        this.intPercentile = rdsOther.intPercentile;
+        this.intThrottled = rdsOther.intThrottled;
+        this.lngClock = rdsOther.lngClock;
+        this.lngFree = rdsOther.lngFree;
+        this.lngTotal = rdsOther.lngTotal;
+        this.booDisk = rdsOther.booDisk;
+        this.lngRead = rdsOther.lngRead;
+        this.lngWrite = rdsOther.lngWrite;
+        this.intOperations = rdsOther.intOperations;
+        this.intLatency = rdsOther.intLatency;
+        this.intQueue = rdsOther.intQueue;
+        this.intCount = rdsOther.intCount;
+        for (int i = 0; i < intCount; i++) {
+            this.strProcesses[i] = rdsOther.strProcesses[i];
+            this.intProcesses[i] = rdsOther.intProcesses[i];
+        }
+    }
+
+    /**
+     * Checks whether the given state would render exactly the same notification as this one
+     *
+     * @param rdsOther The state to compare with
+     * @return True if nothing visible differs between the states
+     */
+    public boolean matches(RenderState rdsOther) {
+        return intIcon == rdsOther.intIcon && lngGraph == rdsOther.lngGraph && intTitle == rdsOther.intTitle
+                && intPercent == rdsOther.intPercent && intBusiest == rdsOther.intBusiest
+                && intPercentile == rdsOther.intPercentile && intThrottled == rdsOther.intThrottled
+                && lngClock == rdsOther.lngClock && lngFree == rdsOther.lngFree
+                && lngTotal == rdsOther.lngTotal && matchesDisk(rdsOther) && matchesProcesses(rdsOther);
+    }
+
+    /**
+     * Checks whether the given state shows exactly the same disk activity as this one
+     *
+     * @param rdsOther The state to compare with
+     * @return True if the disk activity doesn't differ between the states
+     */
+    private boolean matchesDisk(RenderState rdsOther) {
+        if (booDisk != rdsOther.booDisk) {
+            return false;
+        }
+        return !booDisk || (lngRead == rdsOther.lngRead && lngWrite == rdsOther.lngWrite
+                && intOperations == rdsOther.intOperations && intLatency == rdsOther.intLatency
+                && intQueue == rdsOther.intQueue);
+    }
+
+    /**
+     * Checks whether the given state shows exactly the same busiest processes as this one
+     *
+     * @param rdsOther The state to compare with
+     * @return True if the busiest processes don't differ between the states
+     */
+    private boolean matchesProcesses(RenderState rdsOther) {
+        if (intCount != rdsOther.intCount) {
+            return false;
+        }
+        for (int i = 0; i < intCount; i++) {
+            if (intProcesses[i] != rdsOther.intProcesses[i] || !strProcesses[i].equals(rdsOther.strProcesses[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the resource identifier of the small icon
+     *
+     * @return The identifier of the icon
+     */
+    public int getIcon() {
+        return intIcon;
+    }
+
+    /**
+     * Returns the key of the rendered small icon
+     *
+     * @return The key of the rendered icon or zero if the static drawable is used
+     */
+    public long getGraph() {
+        return lngGraph;
+    }
+
+    /**
+     * Returns the index of the title in the array of memory usage levels
+     *
+     * @return The index of the title
+     */
+    public int getTitle() {
+        return intTitle;
+    }
+
+    /**
+     * Returns the info text showing the processor usage, optionally followed by the usage of the
+     * busiest core and the 95th percentile over the last five minutes, and the clock frequency
+     * followed by the temperature if the processor is being thermally throttled
+     *
+     * @return The info text of the notification
+     */
+    public String getInfo() {
+        String strClock = lngClock > 0L ? FrequencyManager.format(lngClock * 1000L) : "";
+        String strPercentile = intPercentile >= 0 ? " / " + intPercentile + "% p95" : "";
+        String strThrottled = intThrottled >= 0 ? " (throttled at " + intThrottled + "\u00B0C)" : "";
+        if (intBusiest >= 0) {
+            return intPercent + "% (" + intBusiest + "% max)" + strPercentile + " @ " + strClock + strThrottled;
+        } else {
+            return intPercent + "%" + strPercentile + " @ " + strClock + strThrottled;
+        }
+    }
+
+    /**
+     * Returns the amount of free memory shown in the content text
+     *
+     * @return The free memory in megabytes
+     */
+    public long getFree() {
+        return lngFree;
+    }
+
+    /**
+     * Returns the total amount of memory shown in the content text
+     *
+     * @return The total memory in megabytes
+     */
+    public long getTotal() {
+        return lngTotal;
+    }
+
+    /**
+     * Returns whether the disk activity is shown in the sub text
+     *
+     * @return True if the disk activity is shown
+     */
+    public boolean hasDisk() {
+        return booDisk;
+    }
+
+    /**
+     * Returns the read throughput shown in the sub text
+     *
+     * @return The throughput in bytes per second
+     */
+    public long getRead() {
+        return lngRead;
+    }
+
+    /**
+     * Returns the write throughput shown in the sub text
+     *
+     * @return The throughput in bytes per second
+     */
+    public long getWrite() {
+        return lngWrite;
+    }
+
+    /**
+     * Returns the number of reads and writes per second shown in the sub text
+     *
+     * @return The number of operations per second
+     */
+    public int getOperations() {
+        return intOperations;
+    }
+
+    /**
+     * Returns the average service time shown in the sub text
+     *
+     * @return The service time in milliseconds
+     */
+    public float getLatency() {
+        return intLatency / 10F;
+    }
+
+    /**
+     * Returns the average queue depth shown in the sub text
+     *
+     * @return The average number of queued requests
+     */
+    public float getQueue() {
+        return intQueue / 10F;
+    }
+
+    /**
+     * Returns the number of the busiest processes shown in the expanded view
+     *
+     * @return The number of processes
+     */
+    public int getProcesses() {
+        return intCount;
+    }
+
+    /**
+     * Returns the line of the expanded view showing the given busiest process
+     *
+     * @param intRank The rank of the process, the busiest first
+     * @return The name and the usage of the process
+     */
+    public String getProcess(int intRank) {
+        return strProcesses[intRank] + " " + intProcesses[intRank] + "%";
+    }
+}
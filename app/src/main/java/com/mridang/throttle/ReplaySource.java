@@ -0,0 +1,342 @@
+package com.mridang.throttle;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Source of the files that feeds the contents recorded by the trace recorder back to the managers.
+ * The whole trace is loaded into memory and the replay moves from one tick to the next only when it
+ * is advanced, so the managers can be driven as fast as they can read without any sleeping. Files
+ * that weren't read in a tick keep the contents of their last read, just like the static files of
+ * the device would. This class does not use any Android classes so that the traces can be replayed
+ * on any Linux machine.
+ */
+public class ReplaySource implements FileSource {
+
+    /**
+     * The paths of the trace in the order of their identifiers
+     */
+    private final List<String> lstPaths = new ArrayList<String>();
+    /**
+     * The identifiers of the paths of the trace
+     */
+    private final Map<String, Integer> mapPaths = new HashMap<String, Integer>();
+    /**
+     * The contents of all the reads of the trace, each preceded by its length
+     */
+    private final byte[] bytContents;
+    /**
+     * The monotonic time in milliseconds of each of the ticks
+     */
+    private final long[] lngTimes;
+    /**
+     * The offset in the contents of the last read of each path as of each tick, indexed by the tick
+     * times the number of paths plus the path, or -1 if the path couldn't be read as of the tick
+     */
+    private final int[] intOffsets;
+    /**
+     * The flag indicating whether the replay should start over after the last tick
+     */
+    private final boolean booLoop;
+    /**
+     * The index of the current tick
+     */
+    private int intTick = 0;
+    /**
+     * The number of times that the replay has started over
+     */
+    private long lngLoops = 0L;
+
+    /**
+     * Loads the given trace file into memory
+     *
+     * @param filTrace The trace file written by the trace recorder
+     * @param booLoop  A boolean value indicating whether the replay should start over after the last
+     *                 tick instead of ending
+     * @throws IOException If the trace file couldn't be read or isn't a trace file
+     */
+    public ReplaySource(File filTrace, boolean booLoop) throws IOException {
+        this.booLoop = booLoop;
+        DataInputStream disTrace = new DataInputStream(new BufferedInputStream(new FileInputStream(filTrace), 65536));
+        try {
+            if (disTrace.readInt() != TraceRecorder.MAGIC || disTrace.readInt() != TraceRecorder.VERSION) {
+                throw new IOException("Not a trace file: " + filTrace);
+            }
+
+            ByteArrayOutputStream bosContents = new ByteArrayOutputStream();
+            List<Long> lstTimes = new ArrayList<Long>();
+            List<int[]> lstOffsets = new ArrayList<int[]>();
+            int[] intCurrent = new int[0];
+            byte[] bytRead = new byte[4096];
+            while (true) {
+                int intType;
+                try {
+                    intType = disTrace.readUnsignedByte();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (intType == TraceRecorder.PATH) {
+                    int intPath = disTrace.readUnsignedShort();
+                    String strPath = disTrace.readUTF();
+                    mapPaths.put(strPath, intPath);
+                    while (lstPaths.size() <= intPath) {
+                        lstPaths.add(null);
+                    }
+                    lstPaths.set(intPath, strPath);
+                } else if (intType == TraceRecorder.TICK) {
+                    if (!lstTimes.isEmpty()) {
+                        lstOffsets.add(intCurrent.clone());
+                    }
+                    lstTimes.add(disTrace.readLong());
+                } else if (intType == TraceRecorder.DATA) {
+                    int intPath = disTrace.readUnsignedShort();
+                    int intLength = disTrace.readInt();
+                    if (intCurrent.length <= intPath) {
+                        int intOld = intCurrent.length;
+                        intCurrent = Arrays.copyOf(intCurrent, intPath + 1);
+                        Arrays.fill(intCurrent, intOld, intCurrent.length, -1);
+                    }
+                    if (intLength < 0) {
+                        intCurrent[intPath] = -1;
+                        continue;
+                    }
+
+                    if (bytRead.length < intLength) {
+                        bytRead = new byte[intLength];
+                    }
+                    disTrace.readFully(bytRead, 0, intLength);
+                    intCurrent[intPath] = bosContents.size();
+                    bosContents.write(intLength >>> 24);
+                    bosContents.write(intLength >>> 16);
+                    bosContents.write(intLength >>> 8);
+                    bosContents.write(intLength);
+                    bosContents.write(bytRead, 0, intLength);
+                } else {
+                    throw new IOException("Unknown record " + intType + " in the trace " + filTrace);
+                }
+            }
+            if (lstTimes.isEmpty()) {
+                lstTimes.add(0L);
+            }
+            lstOffsets.add(intCurrent.clone());
+
+            bytContents = bosContents.toByteArray();
+            lngTimes = new long[lstTimes.size()];
+            intOffsets = new int[lstTimes.size() * lstPaths.size()];
+            Arrays.fill(intOffsets, -1);
+            for (int i = 0; i < lngTimes.length; i++) {
+                lngTimes[i] = lstTimes.get(i);
+                int[] intTick = lstOffsets.get(i);
+                System.arraycopy(intTick, 0, intOffsets, i * lstPaths.size(), Math.min(intTick.length, lstPaths.size()));
+            }
+        } finally {
+            disTrace.close();
+        }
+    }
+
+    /**
+     * Moves the replay to the next tick so that the reads return the contents recorded in that tick
+     *
+     * @return False if the last tick has been reached and the replay doesn't loop
+     */
+    public boolean advance() {
+        if (intTick + 1 < lngTimes.length) {
+            intTick++;
+            return true;
+        } else if (booLoop) {
+            intTick = 0;
+            lngLoops++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the recorded time of the current tick. The time keeps increasing when the replay starts
+     * over so that consumers see a monotonic clock.
+     *
+     * @return The monotonic time of the tick in milliseconds
+     */
+    public long getTime() {
+        long lngSpan = lngTimes[lngTimes.length - 1] - lngTimes[0];
+        if (lngTimes.length > 1) {
+            lngSpan = lngSpan + lngSpan / (lngTimes.length - 1);
+        }
+        return lngTimes[intTick] + lngLoops * lngSpan;
+    }
+
+    /**
+     * Returns the number of ticks in the trace
+     *
+     * @return The number of ticks
+     */
+    public int getTicks() {
+        return lngTimes.length;
+    }
+
+    /**
+     * Returns the offset of the contents of the given path as of the current tick
+     *
+     * @param intPath The identifier of the path
+     * @return The offset of the contents or -1 if the file couldn't be read as of the tick
+     */
+    private int locate(int intPath) {
+        return intOffsets[intTick * lstPaths.size() + intPath];
+    }
+
+    @Override
+    public Handle open(String strPath, int intCapacity) throws FileNotFoundException {
+        Integer intPath = mapPaths.get(strPath);
+        if (intPath == null || locate(intPath) < 0) {
+            throw new FileNotFoundException(strPath + " was not available in the trace");
+        }
+        return new ReplayHandle(intPath, intCapacity);
+    }
+
+    @Override
+    public String[] list(String strPath) {
+        String strPrefix = strPath.endsWith("/") ? strPath : strPath + "/";
+        Set<String> setNames = new LinkedHashSet<String>();
+        for (int i = 0; i < lstPaths.size(); i++) {
+            String strRecorded = lstPaths.get(i);
+            if (strRecorded != null && strRecorded.startsWith(strPrefix) && locate(i) >= 0) {
+                int intEnd = strRecorded.indexOf('/', strPrefix.length());
+                setNames.add(intEnd < 0 ? strRecorded.substring(strPrefix.length())
+                        : strRecorded.substring(strPrefix.length(), intEnd));
+            }
+        }
+        return setNames.isEmpty() ? null : setNames.toArray(new String[setNames.size()]);
+    }
+
+    @Override
+    public boolean exists(String strPath) {
+        Integer intPath = mapPaths.get(strPath);
+        return intPath != null ? locate(intPath) >= 0 : list(strPath) != null;
+    }
+
+    /**
+     * Handle of a recorded file that returns the contents of the file as of the current tick
+     */
+    private class ReplayHandle implements Handle {
+
+        /**
+         * The identifier of the path of the file in the trace
+         */
+        private final int intPath;
+        /**
+         * The reusable buffer into which the recorded contents are copied
+         */
+        private final ByteBuffer bufContents;
+
+        /**
+         * Creates a handle that replays the given path
+         *
+         * @param intPath     The identifier of the path of the file in the trace
+         * @param intCapacity The maximum number of bytes of the file that are read
+         */
+        ReplayHandle(int intPath, int intCapacity) {
+            this.intPath = intPath;
+            this.bufContents = ByteBuffer.allocate(intCapacity);
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            int intOffset = locate(intPath);
+            if (intOffset < 0) {
+                throw new IOException(lstPaths.get(intPath) + " was not available in the trace");
+            }
+
+            int intLength = ((bytContents[intOffset] & 0xFF) << 24) | ((bytContents[intOffset + 1] & 0xFF) << 16)
+                    | ((bytContents[intOffset + 2] & 0xFF) << 8) | (bytContents[intOffset + 3] & 0xFF);
+            bufContents.clear();
+            intLength = Math.min(intLength, bufContents.remaining());
+            bufContents.put(bytContents, intOffset + 4, intLength);
+            bufContents.flip();
+            return bufContents;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Replays the given trace through the sampler on top of a sampling engine, so that every
+     * collector and the batched tick are exercised, and then through the usage statistics, the
+     * history store and the notification renderer as fast as possible. The throughput of the whole
+     * pipeline is printed. The trace is replayed over and over until the given number of ticks has
+     * been sampled.
+     *
+     * @param args The trace file and the number of ticks to sample
+     * @throws IOException If the trace file couldn't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ReplaySource <trace> <ticks>");
+            System.exit(1);
+        }
+
+        long lngCount = Long.parseLong(args[1]);
+        final ReplaySource srcReplay = new ReplaySource(new File(args[0]), true);
+        Sampler smpSampler = new Sampler(new SamplingEngine(srcReplay), new Sampler.Clock() {
+
+            /**
+             * Clock method that returns the recorded time of the current tick
+             */
+            @Override
+            public long now() {
+                return srcReplay.getTime();
+            }
+        });
+        smpSampler.setInterval(10000L);
+        HistoryStore hstHistory = new HistoryStore(smpSampler.getCores());
+        UsageStatistics stsUsage = new UsageStatistics();
+        NotificationRenderer ntrRenderer = new NotificationRenderer(0, stsUsage);
+        long lngPrevious = srcReplay.getTime();
+        long lngReads = 0L;
+        long lngChanges = 0L;
+        double dblTotal = 0D;
+
+        long lngStart = System.nanoTime();
+        for (long i = 0; i < lngCount; i++) {
+            long lngTime = srcReplay.getTime();
+            Snapshot snpSample = smpSampler.sample((lngTime - lngPrevious) * 1000000L);
+            lngPrevious = lngTime;
+            lngReads = lngReads + smpSampler.getReads();
+            stsUsage.insert(snpSample.getTime(), snpSample.getUsage());
+            hstHistory.insert(snpSample);
+            ntrRenderer.render(snpSample, true, true, true, 0L);
+            if (ntrRenderer.isDue(false, lngTime, 0L)) {
+                ntrRenderer.posted(lngTime);
+                lngChanges++;
+            }
+            dblTotal = dblTotal + snpSample.getUsage();
+            srcReplay.advance();
+        }
+        long lngElapsed = System.nanoTime() - lngStart;
+
+        smpSampler.destroy();
+        System.out.println("Replayed " + lngCount + " ticks of a " + srcReplay.getTicks() + " tick trace in "
+                + (lngElapsed / 1000000L) + " ms");
+        System.out.println("Throughput: " + (long) (lngCount * 1e9D / Math.max(lngElapsed, 1L)) + " ticks/s, "
+                + (lngElapsed / Math.max(lngCount, 1L)) + " ns/tick, " + (lngReads / Math.max(lngCount, 1L))
+                + " reads/tick");
+        System.out.println("Average usage: " + (dblTotal / Math.max(lngCount, 1L)) + "%, notification changes: "
+                + lngChanges);
+    }
+}
@@ -0,0 +1,771 @@
+package com.mridang.throttle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Log class that persists the collected figures in an append-only binary log so that the history
+ * survives the death of the process. The log is made of fixed-size segments which are written
+ * through memory mappings, so appending a record is a handful of stores into the page cache with
+ * neither a system call, an fsync nor an allocation. When a segment is full the next one is mapped
+ * and the oldest segments are deleted once the size cap is exceeded.
+ *
+ * Each segment starts with a header that records the position up to which the segment has been
+ * written. The header is only updated after the record has been written completely so a record that
+ * was being written when the process died is never read back.
+ *
+ * Once a segment is full it is compressed into an archive using the series encoder and the raw
+ * segment is deleted, so weeks of history fit in the space of a few raw segments. The archiving is
+ * handed to a background thread when rotating the segments, which also maps the next segment ahead
+ * of time, so the thread appending the records never compresses, writes or maps a file itself.
+ *
+ * The class only depends on the JVM so the segments pulled off a device can be read on any machine
+ * by running this class with the directory of the segments as the argument.
+ */
+public class SampleLog {
+
+    /**
+     * The magic number at the start of every segment
+     */
+    private static final int MAGIC = 0x4D43534C;
+    /**
+     * The magic number at the start of every archive
+     */
+    private static final int ARCHIVE = 0x4D435341;
+    /**
+     * The version of the layout of the segments and the records
+     */
+    private static final int VERSION = 1;
+    /**
+     * The size of the header at the start of every segment in bytes
+     */
+    private static final int HEADER = 64;
+    /**
+     * The offset in the header at which the write position of the segment is kept
+     */
+    private static final int POSITION = 12;
+    /**
+     * The maximum number of cores whose usage is kept in each record
+     */
+    public static final int CORES = 16;
+    /**
+     * The size of each of the records in bytes
+     */
+    public static final int RECORD = 48 + CORES * 4;
+    /**
+     * The size of each of the segments in bytes
+     */
+    private static final int SEGMENT = HEADER + 2340 * RECORD;
+    /**
+     * The maximum number of segments that are kept before the oldest are deleted
+     */
+    private static final int SEGMENTS = 16;
+    /**
+     * The maximum number of archives that are kept before the oldest are deleted
+     */
+    private static final int ARCHIVES = 512;
+    /**
+     * The number of columns of each of the records in the archives excluding the timestamp
+     */
+    private static final int COLUMNS = 8 + CORES;
+    /**
+     * The suffix of the names of the segment files
+     */
+    private static final String SUFFIX = ".seg";
+    /**
+     * The suffix of the names of the archive files
+     */
+    private static final String COMPRESSED = ".arc";
+    /**
+     * The name of the file of the segment that is mapped ahead of time for the next rotation
+     */
+    private static final String SPARE = "spare.tmp";
+    /**
+     * The directory in which the segments are kept
+     */
+    private final File filDirectory;
+    /**
+     * The mapping of the segment that is currently being written
+     */
+    private MappedByteBuffer mbbSegment;
+    /**
+     * The sequence number of the segment that is currently being written
+     */
+    private long lngSequence;
+    /**
+     * The position in the current segment at which the next record is written
+     */
+    private int intPosition;
+    /**
+     * The encoder used for compressing the full segments into archives on the archiver thread
+     */
+    private final SeriesEncoder encArchive = new SeriesEncoder(COLUMNS);
+    /**
+     * The reusable array into which the full segments are compressed, allocated on the first use
+     */
+    private byte[] bytArchive;
+    /**
+     * The reusable buffer into which the header of each of the archives is written
+     */
+    private final ByteBuffer bufHeader = ByteBuffer.allocate(16).order(ByteOrder.BIG_ENDIAN);
+    /**
+     * The single background thread on which the full segments are archived and the spare segment
+     * is mapped
+     */
+    private final ExecutorService exeArchiver = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        /**
+         * Factory method that creates the archiver thread as a daemon so it never keeps the process
+         * alive
+         */
+        @Override
+        public Thread newThread(Runnable runTask) {
+            Thread thrArchiver = new Thread(runTask, "SampleArchiver");
+            thrArchiver.setDaemon(true);
+            return thrArchiver;
+        }
+    });
+    /**
+     * The mapping of the spare segment that is ready for the next rotation or null if it hasn't been
+     * mapped yet
+     */
+    private final AtomicReference<MappedByteBuffer> refSpare = new AtomicReference<MappedByteBuffer>();
+    /**
+     * The failure of the archiver thread that is reported on the next append or null if there was
+     * none
+     */
+    private volatile IOException exeFailure;
+
+    /**
+     * Opens the log in the given directory, continuing the newest segment if it is still valid
+     *
+     * @param filDirectory The directory in which the segments are kept
+     * @throws IOException If the directory or the segment couldn't be opened
+     */
+    public SampleLog(File filDirectory) throws IOException {
+        this.filDirectory = filDirectory;
+        if (!filDirectory.isDirectory() && !filDirectory.mkdirs()) {
+            throw new IOException("Unable to create the directory " + filDirectory);
+        }
+
+        File[] lstFiles = list(filDirectory, SUFFIX, COMPRESSED);
+        if (lstFiles.length > 0) {
+            File filNewest = lstFiles[lstFiles.length - 1];
+            lngSequence = sequenceOf(filNewest);
+            if (filNewest.getName().endsWith(SUFFIX)) {
+                mbbSegment = map(filNewest, false);
+                if (mbbSegment.getInt(0) == MAGIC && mbbSegment.getInt(4) == VERSION
+                        && mbbSegment.getInt(8) == RECORD) {
+                    intPosition = mbbSegment.getInt(POSITION);
+                    if (intPosition >= HEADER && intPosition <= SEGMENT) {
+                        return;
+                    }
+                }
+                mbbSegment = null;
+            }
+        }
+        rotate();
+    }
+
+    /**
+     * Appends the figures of the given snapshot to the log
+     *
+     * @param lngWall    The wall clock time at which the figures were collected in milliseconds
+     * @param snpFigures The snapshot of the collected figures
+     * @throws IOException If the log needed a new segment which couldn't be created or the archiver
+     *                     thread failed
+     */
+    public void append(long lngWall, Snapshot snpFigures) throws IOException {
+        if (exeFailure != null) {
+            throw exeFailure;
+        }
+        if (intPosition + RECORD > SEGMENT) {
+            rotate();
+        }
+
+        int intOffset = intPosition;
+        mbbSegment.putLong(intOffset, lngWall);
+        mbbSegment.putLong(intOffset + 8, snpFigures.getTime());
+        mbbSegment.putLong(intOffset + 16, snpFigures.getWindow());
+        mbbSegment.putFloat(intOffset + 24, (float) snpFigures.getUsage());
+        mbbSegment.putFloat(intOffset + 28, (float) snpFigures.getBusiest());
+        mbbSegment.putInt(intOffset + 32, (int) snpFigures.getFrequency());
+        mbbSegment.putInt(intOffset + 36, (int) snpFigures.getFree());
+        mbbSegment.putInt(intOffset + 40, (int) snpFigures.getTotal());
+        int intCores = Math.min(snpFigures.getCores(), CORES);
+        mbbSegment.putInt(intOffset + 44, intCores);
+        for (int i = 0; i < CORES; i++) {
+            mbbSegment.putFloat(intOffset + 48 + i * 4, i < intCores ? (float) snpFigures.getUsage(i) : 0F);
+        }
+
+        intPosition += RECORD;
+        mbbSegment.putInt(POSITION, intPosition);
+    }
+
+    /**
+     * Starts a new segment by renaming the spare segment that was mapped ahead of time, or by mapping
+     * a new one when the spare isn't ready yet. The full segment is handed to the archiver thread
+     * which compresses it, deletes the oldest segments if there are more than the cap and maps the
+     * next spare segment.
+     *
+     * @throws IOException If the new segment couldn't be created
+     */
+    private void rotate() throws IOException {
+        Archiver arcFull = new Archiver(intPosition > HEADER ? mbbSegment : null, lngSequence, intPosition);
+        lngSequence++;
+        File filSegment = new File(filDirectory, String.format(Locale.US, "%016d", lngSequence) + SUFFIX);
+        mbbSegment = refSpare.getAndSet(null);
+        if (mbbSegment == null || !new File(filDirectory, SPARE).renameTo(filSegment)) {
+            mbbSegment = map(filSegment, true);
+        }
+        mbbSegment.putInt(0, MAGIC);
+        mbbSegment.putInt(4, VERSION);
+        mbbSegment.putInt(8, RECORD);
+        mbbSegment.putLong(16, lngSequence);
+        intPosition = HEADER;
+        mbbSegment.putInt(POSITION, intPosition);
+        exeArchiver.execute(arcFull);
+    }
+
+    /**
+     * Waits for the archiver thread to finish archiving the segments that have been handed to it
+     * and stops it. The log mustn't be appended to afterwards.
+     *
+     * @throws IOException If the archiver thread failed
+     */
+    public void close() throws IOException {
+        exeArchiver.shutdown();
+        try {
+            exeArchiver.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (exeFailure != null) {
+            throw exeFailure;
+        }
+    }
+
+    /**
+     * Task of the archiver thread that archives a full segment, deletes the oldest segments and maps
+     * the spare segment for the next rotation
+     */
+    private class Archiver implements Runnable {
+
+        /**
+         * The mapping of the full segment that is to be archived or null if there is none
+         */
+        private final MappedByteBuffer mbbFull;
+        /**
+         * The sequence number of the full segment
+         */
+        private final long lngFull;
+        /**
+         * The position up to which the full segment was written
+         */
+        private final int intFull;
+
+        /**
+         * Creates a task archiving the given segment
+         *
+         * @param mbbFull The mapping of the full segment or null if only the spare should be mapped
+         * @param lngFull The sequence number of the full segment
+         * @param intFull The position up to which the full segment was written
+         */
+        Archiver(MappedByteBuffer mbbFull, long lngFull, int intFull) {
+            this.mbbFull = mbbFull;
+            this.lngFull = lngFull;
+            this.intFull = intFull;
+        }
+
+        /**
+         * Worker method that archives the segment, trims the files and maps the spare. A failure is
+         * kept so that it is reported on the next append.
+         */
+        @Override
+        public void run() {
+            try {
+                if (mbbFull != null) {
+                    archive(mbbFull, lngFull, intFull);
+                }
+                trim(list(filDirectory, SUFFIX), SEGMENTS);
+                trim(list(filDirectory, COMPRESSED), ARCHIVES);
+                if (refSpare.get() == null) {
+                    refSpare.set(map(new File(filDirectory, SPARE), true));
+                }
+            } catch (IOException e) {
+                exeFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Compresses the records of the given segment into an archive with the same sequence number and
+     * deletes the segment. If the records don't compress into less space than the segment, the
+     * segment is kept as it is. This is only called on the archiver thread.
+     *
+     * @param mbbFull The mapping of the full segment
+     * @param lngFull The sequence number of the full segment
+     * @param intFull The position up to which the full segment was written
+     * @throws IOException If the archive couldn't be written
+     */
+    private void archive(MappedByteBuffer mbbFull, long lngFull, int intFull) throws IOException {
+        if (bytArchive == null) {
+            bytArchive = new byte[SEGMENT];
+        }
+
+        encArchive.reset(bytArchive);
+        try {
+            for (int intOffset = HEADER; intOffset + RECORD <= intFull; intOffset += RECORD) {
+                encArchive.putTime(mbbFull.getLong(intOffset));
+                encArchive.putCounter(0, mbbFull.getLong(intOffset + 8));
+                encArchive.putCounter(1, mbbFull.getLong(intOffset + 16));
+                encArchive.putFloat(2, mbbFull.getFloat(intOffset + 24));
+                encArchive.putFloat(3, mbbFull.getFloat(intOffset + 28));
+                encArchive.putCounter(4, mbbFull.getInt(intOffset + 32));
+                encArchive.putCounter(5, mbbFull.getInt(intOffset + 36));
+                encArchive.putCounter(6, mbbFull.getInt(intOffset + 40));
+                encArchive.putCounter(7, mbbFull.getInt(intOffset + 44));
+                for (int i = 0; i < CORES; i++) {
+                    encArchive.putFloat(8 + i, mbbFull.getFloat(intOffset + 48 + i * 4));
+                }
+            }
+        } catch (BufferOverflowException e) {
+            return;
+        }
+
+        String strName = String.format(Locale.US, "%016d", lngFull);
+        FileOutputStream fosArchive = new FileOutputStream(new File(filDirectory, strName + COMPRESSED));
+        try {
+            bufHeader.clear();
+            bufHeader.putInt(ARCHIVE).putInt(VERSION).putInt(encArchive.getRecords()).putInt(COLUMNS);
+            fosArchive.write(bufHeader.array());
+            fosArchive.write(bytArchive, 0, encArchive.getLength());
+        } finally {
+            fosArchive.close();
+        }
+
+        if (!new File(filDirectory, strName + SUFFIX).delete()) {
+            throw new IOException("Unable to delete the archived segment " + strName);
+        }
+    }
+
+    /**
+     * Deletes the oldest of the given files so that no more than the given number remain
+     *
+     * @param lstFiles   The files from the oldest to the newest
+     * @param intMaximum The number of files to keep
+     * @throws IOException If a file couldn't be deleted
+     */
+    private static void trim(File[] lstFiles, int intMaximum) throws IOException {
+        for (int i = 0; i < lstFiles.length - intMaximum; i++) {
+            if (!lstFiles[i].delete()) {
+                throw new IOException("Unable to delete " + lstFiles[i]);
+            }
+        }
+    }
+
+    /**
+     * Maps the given segment file into memory. The file is closed right after mapping it as the
+     * mapping remains valid until it is garbage collected.
+     *
+     * @param filSegment The segment file to map
+     * @param booCreate  A boolean value indicating whether the file should be created afresh
+     * @return The mapping of the segment
+     * @throws IOException If the file couldn't be mapped
+     */
+    private static MappedByteBuffer map(File filSegment, boolean booCreate) throws IOException {
+        RandomAccessFile rafSegment = new RandomAccessFile(filSegment, "rw");
+        try {
+            if (booCreate || rafSegment.length() != SEGMENT) {
+                rafSegment.setLength(0);
+                rafSegment.setLength(SEGMENT);
+            }
+            MappedByteBuffer mbbSegment = rafSegment.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT);
+            mbbSegment.order(ByteOrder.BIG_ENDIAN);
+            return mbbSegment;
+        } finally {
+            rafSegment.close();
+        }
+    }
+
+    /**
+     * Lists the files with the given suffix in the given directory in the order in which they were
+     * written. Segments and archives with the same sequence number sort next to each other.
+     *
+     * @param filDirectory The directory in which the segments are kept
+     * @param lstSuffixes  The suffixes of the files to list
+     * @return The files from the oldest to the newest
+     */
+    private static File[] list(File filDirectory, final String... lstSuffixes) {
+        File[] lstSegments = filDirectory.listFiles(new FilenameFilter() {
+
+            /**
+             * Filter method that only accepts the files with one of the suffixes
+             */
+            @Override
+            public boolean accept(File filDirectory, String strName) {
+                for (String strSuffix : lstSuffixes) {
+                    if (strName.endsWith(strSuffix)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+        if (lstSegments == null) {
+            return new File[0];
+        }
+
+        Arrays.sort(lstSegments);
+        return lstSegments;
+    }
+
+    /**
+     * Returns the sequence number of the given segment file from its name
+     *
+     * @param filSegment The segment file
+     * @return The sequence number of the segment
+     */
+    private static long sequenceOf(File filSegment) {
+        String strName = filSegment.getName();
+        try {
+            return Long.parseLong(strName.substring(0, strName.lastIndexOf('.')));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Reader class that iterates over all the records of all the segments and the archives in a
+     * directory from the oldest to the newest. It only uses the JVM so that it can be used for
+     * offline analysis.
+     */
+    public static final class Reader {
+
+        /**
+         * The segment and archive files that are to be read
+         */
+        private final File[] lstSegments;
+        /**
+         * The decoder used for reading the archives
+         */
+        private final SeriesDecoder decArchive = new SeriesDecoder(COLUMNS);
+        /**
+         * The usage of each of the cores of the current record
+         */
+        private final float[] fltCores = new float[CORES];
+        /**
+         * The index of the file that is currently being read
+         */
+        private int intSegment = -1;
+        /**
+         * The contents of the file that is currently being read
+         */
+        private ByteBuffer bufSegment;
+        /**
+         * The flag indicating whether the current file is an archive
+         */
+        private boolean booArchive;
+        /**
+         * The position up to which the current segment was written
+         */
+        private int intLimit;
+        /**
+         * The offset of the next record in the current segment
+         */
+        private int intOffset;
+        /**
+         * The number of records remaining in the current archive
+         */
+        private int intRemaining;
+        /**
+         * The wall clock time of the current record
+         */
+        private long lngWall;
+        /**
+         * The monotonic time of the current record
+         */
+        private long lngTime;
+        /**
+         * The length of the window of the current record
+         */
+        private long lngWindow;
+        /**
+         * The cumulative processor usage of the current record
+         */
+        private float fltUsage;
+        /**
+         * The usage of the busiest core of the current record
+         */
+        private float fltBusiest;
+        /**
+         * The frequency of the fastest cluster of the current record
+         */
+        private int intFrequency;
+        /**
+         * The free memory of the current record
+         */
+        private int intFree;
+        /**
+         * The total memory of the current record
+         */
+        private int intTotal;
+        /**
+         * The number of cores of the current record
+         */
+        private int intCores;
+
+        public Reader(File filDirectory) {
+            this.lstSegments = list(filDirectory, SUFFIX, COMPRESSED);
+        }
+
+        /**
+         * Moves to the next record, moving on to the next file when the current one is exhausted
+         *
+         * @return True if there is another record
+         * @throws IOException If a file couldn't be read
+         */
+        public boolean next() throws IOException {
+            while (bufSegment != null || ++intSegment < lstSegments.length) {
+                if (bufSegment == null && !open(lstSegments[intSegment])) {
+                    continue;
+                }
+
+                try {
+                    if (booArchive && intRemaining > 0) {
+                        intRemaining--;
+                        decode();
+                        return true;
+                    } else if (!booArchive && intOffset + RECORD <= intLimit) {
+                        copy();
+                        intOffset += RECORD;
+                        return true;
+                    }
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("The archive " + lstSegments[intSegment] + " is truncated");
+                }
+                bufSegment = null;
+            }
+            return false;
+        }
+
+        /**
+         * Loads the given segment or archive file and checks its header
+         *
+         * @param filSegment The segment or archive file
+         * @return True if the file is valid
+         * @throws IOException If the file couldn't be read
+         */
+        private boolean open(File filSegment) throws IOException {
+            bufSegment = load(filSegment);
+            booArchive = filSegment.getName().endsWith(COMPRESSED);
+            if (booArchive && bufSegment.capacity() >= 16 && bufSegment.getInt(0) == ARCHIVE
+                    && bufSegment.getInt(4) == VERSION && bufSegment.getInt(12) == COLUMNS) {
+                intRemaining = bufSegment.getInt(8);
+                decArchive.reset(bufSegment.array(), 16, bufSegment.capacity() - 16);
+                return true;
+            } else if (!booArchive && bufSegment.capacity() >= HEADER && bufSegment.getInt(0) == MAGIC
+                    && bufSegment.getInt(4) == VERSION && bufSegment.getInt(8) == RECORD) {
+                intLimit = Math.min(bufSegment.getInt(POSITION), bufSegment.capacity());
+                intOffset = HEADER;
+                return true;
+            }
+            bufSegment = null;
+            return false;
+        }
+
+        /**
+         * Copies the figures of the record at the current offset of the segment
+         */
+        private void copy() {
+            lngWall = bufSegment.getLong(intOffset);
+            lngTime = bufSegment.getLong(intOffset + 8);
+            lngWindow = bufSegment.getLong(intOffset + 16);
+            fltUsage = bufSegment.getFloat(intOffset + 24);
+            fltBusiest = bufSegment.getFloat(intOffset + 28);
+            intFrequency = bufSegment.getInt(intOffset + 32);
+            intFree = bufSegment.getInt(intOffset + 36);
+            intTotal = bufSegment.getInt(intOffset + 40);
+            intCores = bufSegment.getInt(intOffset + 44);
+            for (int i = 0; i < CORES; i++) {
+                fltCores[i] = bufSegment.getFloat(intOffset + 48 + i * 4);
+            }
+        }
+
+        /**
+         * Decodes the figures of the next record of the archive
+         */
+        private void decode() {
+            lngWall = decArchive.getTime();
+            lngTime = decArchive.getCounter(0);
+            lngWindow = decArchive.getCounter(1);
+            fltUsage = decArchive.getFloat(2);
+            fltBusiest = decArchive.getFloat(3);
+            intFrequency = (int) decArchive.getCounter(4);
+            intFree = (int) decArchive.getCounter(5);
+            intTotal = (int) decArchive.getCounter(6);
+            intCores = (int) decArchive.getCounter(7);
+            for (int i = 0; i < CORES; i++) {
+                fltCores[i] = decArchive.getFloat(8 + i);
+            }
+        }
+
+        /**
+         * Reads the whole of the given file into memory
+         *
+         * @param filSegment The segment or archive file
+         * @return The contents of the file
+         * @throws IOException If the file couldn't be read
+         */
+        private static ByteBuffer load(File filSegment) throws IOException {
+            FileInputStream fisSegment = new FileInputStream(filSegment);
+            try {
+                FileChannel chnSegment = fisSegment.getChannel();
+                ByteBuffer bufContents = ByteBuffer.allocate((int) chnSegment.size());
+                while (bufContents.hasRemaining() && chnSegment.read(bufContents) >= 0) {
+                    continue;
+                }
+                bufContents.order(ByteOrder.BIG_ENDIAN);
+                return bufContents;
+            } finally {
+                fisSegment.close();
+            }
+        }
+
+        /**
+         * Returns the wall clock time at which the figures of the current record were collected
+         *
+         * @return The time in milliseconds since the epoch
+         */
+        public long getWall() {
+            return lngWall;
+        }
+
+        /**
+         * Returns the monotonic time at which the figures of the current record were collected
+         *
+         * @return The time in milliseconds since the boot
+         */
+        public long getTime() {
+            return lngTime;
+        }
+
+        /**
+         * Returns the length of the window over which the figures of the current record were collected
+         *
+         * @return The length of the window in nanoseconds
+         */
+        public long getWindow() {
+            return lngWindow;
+        }
+
+        /**
+         * Returns the cumulative processor usage of the current record
+         *
+         * @return The processor usage as a percentage
+         */
+        public float getUsage() {
+            return fltUsage;
+        }
+
+        /**
+         * Returns the usage of the busiest core of the current record
+         *
+         * @return The usage of the busiest core as a percentage
+         */
+        public float getBusiest() {
+            return fltBusiest;
+        }
+
+        /**
+         * Returns the frequency of the fastest cluster of the current record
+         *
+         * @return The frequency in kHz
+         */
+        public int getFrequency() {
+            return intFrequency;
+        }
+
+        /**
+         * Returns the free memory of the current record
+         *
+         * @return The free memory in megabytes
+         */
+        public int getFree() {
+            return intFree;
+        }
+
+        /**
+         * Returns the total memory of the current record
+         *
+         * @return The total memory in megabytes
+         */
+        public int getTotal() {
+            return intTotal;
+        }
+
+        /**
+         * Returns the number of cores whose usage is kept in the current record
+         *
+         * @return The number of cores
+         */
+        public int getCores() {
+            return intCores;
+        }
+
+        /**
+         * Returns the usage of the given core of the current record
+         *
+         * @param intCore The index of the core
+         * @return The usage of the core as a percentage
+         */
+        public float getUsage(int intCore) {
+            return fltCores[intCore];
+        }
+    }
+
+    /**
+     * Dumps all the records of the segments in the given directory as comma separated values
+     *
+     * @param args The directory of the segments
+     * @throws IOException If a segment couldn't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SampleLog <directory>");
+            System.exit(1);
+        }
+
+        Reader rdrRecords = new Reader(new File(args[0]));
+        System.out.println("wall,time,window,usage,busiest,frequency,free,total,cores");
+        StringBuilder sbdLine = new StringBuilder();
+        while (rdrRecords.next()) {
+            sbdLine.setLength(0);
+            sbdLine.append(rdrRecords.getWall()).append(',').append(rdrRecords.getTime()).append(',')
+                    .append(rdrRecords.getWindow()).append(',').append(rdrRecords.getUsage()).append(',')
+                    .append(rdrRecords.getBusiest()).append(',').append(rdrRecords.getFrequency()).append(',')
+                    .append(rdrRecords.getFree()).append(',').append(rdrRecords.getTotal());
+            for (int i = 0; i < rdrRecords.getCores(); i++) {
+                sbdLine.append(i == 0 ? ',' : ';').append(rdrRecords.getUsage(i));
+            }
+            System.out.println(sbdLine);
+        }
+    }
+}
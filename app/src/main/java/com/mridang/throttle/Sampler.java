@@ -0,0 +1,310 @@
+package com.mridang.throttle;
+
+/**
+ * Sampler class that collects the figures from all the managers into an immutable snapshot. The
+ * figures are gathered into arrays that are filled again in every sample, and the snapshot takes
+ * its own copies of them so that it can be handed to another thread. The sampler does file I/O so it
+ * must only be used on the sampler thread. Both the files and the time are taken from the outside so
+ * the sampler only depends on the JVM and a recorded trace can be replayed through it.
+ */
+public class Sampler {
+
+    /**
+     * Clock from which the sampler takes the monotonic time of every sample
+     */
+    public interface Clock {
+
+        /**
+         * Returns the current monotonic time
+         *
+         * @return The time in milliseconds
+         */
+        long now();
+    }
+
+    /**
+     * The clock from which the time of every sample is taken
+     */
+    private final Clock clkTime;
+    /**
+     * The instance of the engine that reads all the files in a single batch or null if the files
+     * are read from another source
+     */
+    private final SamplingEngine engSampling;
+    /**
+     * The instance of the manager of the memory usage
+     */
+    private final MemoryManager mgrMemory;
+    /**
+     * The instance of the manager of the processor usage
+     */
+    private final ProcessorManager mgrProcessor;
+    /**
+     * The instance of the manager of the clock frequency
+     */
+    private final FrequencyManager mgrFrequency;
+    /**
+     * The instance of the manager of the temperatures
+     */
+    private final ThermalManager mgrThermal;
+    /**
+     * The instance of the manager of the pressure stall information
+     */
+    private final PressureManager mgrPressure;
+    /**
+     * The instance of the manager of the activity of the block devices
+     */
+    private final DiskManager mgrDisk;
+    /**
+     * The instance of the manager of the traffic of the network interfaces
+     */
+    private final NetworkManager mgrNetwork;
+    /**
+     * The instance of the manager of the busiest processes
+     */
+    private final TopManager mgrTop;
+    /**
+     * The interval in milliseconds between two scans of the busiest processes or zero if disabled
+     */
+    private volatile long lngInterval = 0L;
+    /**
+     * The monotonic time in milliseconds of the last scan of the busiest processes
+     */
+    private long lngScanned = 0L;
+    /**
+     * The names of the busiest processes as of the last scan
+     */
+    private String[] strProcesses = new String[0];
+    /**
+     * The usage of the busiest processes as of the last scan
+     */
+    private float[] fltProcesses = new float[0];
+    /**
+     * The instance of the monitor that measures what the monitor itself costs
+     */
+    private final OverheadMonitor ovrMonitor;
+    /**
+     * The array into which the usage of each of the cores is gathered
+     */
+    private float[] fltCores = new float[0];
+    /**
+     * The array into which the system counters are gathered
+     */
+    private final long[] lngCounters = new long[ProcessorManager.COUNTERS];
+    /**
+     * The array into which the shares of the processor time are gathered
+     */
+    private final float[] fltShares = new float[ProcessorManager.SHARES];
+    /**
+     * The array into which the shares of the time in which the tasks were stalled are gathered
+     */
+    private final float[] fltPressures = new float[PressureManager.RESOURCES * PressureManager.LINES];
+    /**
+     * The array into which the stall times of the window are gathered
+     */
+    private final long[] lngStalls = new long[PressureManager.RESOURCES * PressureManager.LINES];
+    /**
+     * The array into which the counters of the block devices are gathered
+     */
+    private final long[] lngDisks = new long[DiskManager.COUNTERS];
+    /**
+     * The array into which the traffic of all of the network interfaces is gathered
+     */
+    private final long[] lngNetwork = new long[NetworkManager.COUNTERS];
+    /**
+     * The names of the network interfaces which are only copied again when the interfaces change
+     */
+    private String[] strInterfaces = new String[0];
+    /**
+     * The array into which the traffic of each of the network interfaces is gathered
+     */
+    private long[] lngTraffic = new long[0];
+    /**
+     * The number of changes of the network interfaces as of the last copy of their names
+     */
+    private long lngInterfaces = 0L;
+
+    /**
+     * Creates a sampler whose managers all read their files from the given source. When the source
+     * is a sampling engine, all the files are read in a single batch at the start of every sample.
+     *
+     * @param srcFiles The source from which the procfs and sysfs files are read
+     * @param clkTime  The clock from which the time of every sample is taken
+     */
+    public Sampler(FileSource srcFiles, Clock clkTime) {
+        this.clkTime = clkTime;
+        this.engSampling = srcFiles instanceof SamplingEngine ? (SamplingEngine) srcFiles : null;
+        this.mgrMemory = new MemoryManager(srcFiles);
+        this.mgrProcessor = new ProcessorManager(srcFiles);
+        this.mgrFrequency = new FrequencyManager(srcFiles, engSampling != null ? engSampling.getDirect() : srcFiles);
+        this.mgrThermal = new ThermalManager(srcFiles);
+        this.mgrPressure = new PressureManager(srcFiles);
+        this.mgrDisk = new DiskManager(srcFiles);
+        this.mgrNetwork = new NetworkManager(srcFiles);
+        this.ovrMonitor = new OverheadMonitor(srcFiles);
+        this.mgrTop = new TopManager(engSampling != null ? engSampling.getDirect() : srcFiles,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Collects the current processor usage, the clock frequency, the temperature, the pressure, the
+     * disk activity, the network traffic and the memory usage. The processor usage is the ratio of
+     * the busy and the total time deltas of the window so it is already normalised by the length of
+     * the window.
+     *
+     * @param lngWindow The measured length of the window since the last update in nanoseconds
+     * @return The snapshot of the collected figures
+     */
+    public Snapshot sample(long lngWindow) {
+        if (engSampling != null) {
+            engSampling.tick();
+        }
+        mgrMemory.update();
+        double dblPercent = mgrProcessor.getUsage();
+        mgrFrequency.update();
+        mgrThermal.update();
+        mgrPressure.update();
+        mgrDisk.update();
+        mgrNetwork.update();
+        boolean booThrottled = mgrThermal.detect(dblPercent, mgrFrequency.getRatio());
+        ovrMonitor.update();
+        long lngTime = clkTime.now();
+        scan(lngTime);
+
+        if (fltCores.length != mgrProcessor.getCores()) {
+            fltCores = new float[mgrProcessor.getCores()];
+        }
+        for (int i = 0; i < fltCores.length; i++) {
+            fltCores[i] = (float) mgrProcessor.getUsage(i);
+        }
+        for (int i = 0; i < lngCounters.length; i++) {
+            lngCounters[i] = mgrProcessor.getCounter(i);
+        }
+        for (int i = 0; i < fltShares.length; i++) {
+            fltShares[i] = mgrProcessor.getShare(i);
+        }
+        for (int i = 0; i < fltPressures.length; i++) {
+            fltPressures[i] = mgrPressure.getAverage10(i / PressureManager.LINES, i % PressureManager.LINES);
+            lngStalls[i] = mgrPressure.getStall(i / PressureManager.LINES, i % PressureManager.LINES);
+        }
+        for (int i = 0; i < lngDisks.length; i++) {
+            lngDisks[i] = mgrDisk.getTotal(i);
+        }
+        copyNetwork();
+
+        return new Snapshot.Builder(lngTime, lngWindow)
+                .setProcessor(dblPercent, mgrProcessor.getBusiest(), fltCores)
+                .setFrequency(mgrFrequency.getFastest())
+                .setMemory(mgrMemory.getAvailable() / 1024L, mgrMemory.getTotal() / 1024L)
+                .setProcesses(strProcesses, fltProcesses)
+                .setThermal(mgrThermal.getHottest(), booThrottled)
+                .setSystem(lngCounters, fltShares)
+                .setPressure(fltPressures, lngStalls)
+                .setDisk(lngDisks)
+                .setNetwork(lngNetwork, strInterfaces, lngTraffic)
+                .build();
+    }
+
+    /**
+     * Gathers the traffic of the network interfaces into their arrays. The names of the
+     * interfaces are only copied again when the interfaces have appeared or disappeared.
+     */
+    private void copyNetwork() {
+        for (int i = 0; i < lngNetwork.length; i++) {
+            lngNetwork[i] = mgrNetwork.getTotal(i);
+        }
+
+        if (lngInterfaces != mgrNetwork.getChanges()) {
+            lngInterfaces = mgrNetwork.getChanges();
+            strInterfaces = new String[mgrNetwork.getInterfaces()];
+            lngTraffic = new long[strInterfaces.length * NetworkManager.COUNTERS];
+            for (int i = 0; i < strInterfaces.length; i++) {
+                strInterfaces[i] = mgrNetwork.getInterface(i);
+            }
+        }
+        for (int i = 0; i < strInterfaces.length; i++) {
+            for (int j = 0; j < NetworkManager.COUNTERS; j++) {
+                lngTraffic[i * NetworkManager.COUNTERS + j] = mgrNetwork.getCounter(i, j);
+            }
+        }
+    }
+
+    /**
+     * Scans the busiest processes if the interval has elapsed since the last scan. Scanning all the
+     * processes is far more expensive than the other figures so it is done at a lower rate and the
+     * results of the last scan are reused in between.
+     *
+     * @param lngTime The monotonic time of the sample in milliseconds
+     */
+    private void scan(long lngTime) {
+        if (lngInterval <= 0L) {
+            if (strProcesses.length > 0) {
+                strProcesses = new String[0];
+                fltProcesses = new float[0];
+            }
+            return;
+        }
+
+        if (lngScanned == 0L || lngTime - lngScanned >= lngInterval) {
+            mgrTop.scan();
+            strProcesses = mgrTop.getNames();
+            fltProcesses = mgrTop.getUsages();
+            lngScanned = lngTime;
+        }
+    }
+
+    /**
+     * Sets the interval between two scans of the busiest processes
+     *
+     * @param lngInterval The interval in milliseconds or zero to disable the scans
+     */
+    public void setInterval(long lngInterval) {
+        this.lngInterval = lngInterval;
+    }
+
+    /**
+     * Returns the number of processor cores that have been seen so far
+     *
+     * @return The number of cores
+     */
+    public int getCores() {
+        return Math.max(mgrProcessor.getCores(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Closes all the files that the managers read repeatedly
+     */
+    public void destroy() {
+        mgrMemory.destroy();
+        mgrProcessor.destroy();
+        mgrFrequency.destroy();
+        mgrThermal.destroy();
+        mgrPressure.destroy();
+        mgrDisk.destroy();
+        mgrNetwork.destroy();
+        ovrMonitor.destroy();
+        mgrTop.destroy();
+        if (engSampling != null) {
+            engSampling.destroy();
+        }
+    }
+
+    /**
+     * Returns the monitor that measures what the monitor itself costs. This may be called from any
+     * thread.
+     *
+     * @return The overhead monitor
+     */
+    public OverheadMonitor getOverhead() {
+        return ovrMonitor;
+    }
+
+    /**
+     * Returns the number of read system calls made in the last sample
+     *
+     * @return The number of reads or zero if the files aren't read by a sampling engine
+     */
+    public int getReads() {
+        return engSampling != null ? engSampling.getReads() : 0;
+    }
+}
@@ -0,0 +1,390 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Source of the files that reads all the opened files of another source in a single batch on every
+ * tick. When the files come from the filesystem, the channels of the files are kept open and each
+ * file is read with a positional read into its own slice of a single direct buffer, so a tick costs
+ * exactly one read system call per file and no seeks. The files of any other source, such as a trace
+ * being recorded or replayed, are read through their handles once per tick and copied into their
+ * slices. The reads of the handles return the contents from the last tick, which means that all the
+ * managers parse one consistent set of contents and never touch the files themselves. Files that
+ * are opened between the ticks are read immediately on their first read. The engine must only be
+ * used on the sampler thread.
+ */
+public class SamplingEngine implements FileSource {
+
+    /**
+     * The initial capacity of the shared buffer which fits the files of a typical device
+     */
+    private static final int CAPACITY = 32768;
+    /**
+     * The state of a slot whose file hasn't been read since it was opened
+     */
+    private static final int STALE = 0;
+    /**
+     * The state of a slot whose file was read successfully
+     */
+    private static final int READ = 1;
+    /**
+     * The state of a slot whose file couldn't be read
+     */
+    private static final int FAILED = 2;
+    /**
+     * The source from which the files are opened
+     */
+    private final FileSource srcFiles;
+    /**
+     * The file of each of the slots or null if the slot is free or the file isn't on the filesystem
+     */
+    private RandomAccessFile[] rafFiles = new RandomAccessFile[16];
+    /**
+     * The channel of the file of each of the slots
+     */
+    private FileChannel[] chnFiles = new FileChannel[16];
+    /**
+     * The handle of each of the slots whose file isn't on the filesystem or null if there is none
+     */
+    private Handle[] hndFiles = new Handle[16];
+    /**
+     * The offset of each of the slots in the shared buffer
+     */
+    private int[] intOffsets = new int[16];
+    /**
+     * The capacity of each of the slots in the shared buffer
+     */
+    private int[] intCapacities = new int[16];
+    /**
+     * The slice of the shared buffer of each of the slots
+     */
+    private ByteBuffer[] bufSlices = new ByteBuffer[16];
+    /**
+     * The state of each of the slots as of the last tick
+     */
+    private int[] intStates = new int[16];
+    /**
+     * The number of slots that have been used so far, including the ones that are now free
+     */
+    private int intSlots = 0;
+    /**
+     * The number of bytes of the shared buffer that have been assigned to the slots
+     */
+    private int intUsed = 0;
+    /**
+     * The direct buffer that is sliced between all the files
+     */
+    private ByteBuffer bufShared = ByteBuffer.allocateDirect(CAPACITY);
+    /**
+     * The number of read system calls made in the last tick
+     */
+    private int intReads = 0;
+    /**
+     * The number of read system calls made since the engine was created
+     */
+    private long lngReads = 0L;
+
+    /**
+     * Creates an engine that reads the files under the root of the filesystem
+     */
+    public SamplingEngine() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates an engine that reads the files under the given root directory
+     *
+     * @param strRoot The root directory ending with a slash
+     */
+    public SamplingEngine(String strRoot) {
+        this(new DiskSource(strRoot));
+    }
+
+    /**
+     * Creates an engine that reads the files of the given source. The files of a disk source are
+     * read straight into the shared buffer while those of any other source are copied into it.
+     *
+     * @param srcFiles The source from which the files are opened
+     */
+    public SamplingEngine(FileSource srcFiles) {
+        this.srcFiles = srcFiles;
+    }
+
+    /**
+     * Reads all the open files into their slices with one positional read per file so that the
+     * following reads of the handles return the contents of this tick
+     */
+    public void tick() {
+        intReads = 0;
+        for (int i = 0; i < intSlots; i++) {
+            if (isOpen(i)) {
+                fill(i);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given slot holds an open file
+     *
+     * @param intSlot The index of the slot
+     * @return True if the slot holds an open file
+     */
+    private boolean isOpen(int intSlot) {
+        return rafFiles[intSlot] != null || hndFiles[intSlot] != null;
+    }
+
+    /**
+     * Reads the file of the given slot into its slice with a single positional read, or with a
+     * single read of its handle if the file isn't on the filesystem
+     *
+     * @param intSlot The index of the slot
+     */
+    private void fill(int intSlot) {
+        ByteBuffer bufSlice = bufSlices[intSlot];
+        bufSlice.clear();
+        intReads++;
+        lngReads++;
+        try {
+            if (chnFiles[intSlot] != null) {
+                chnFiles[intSlot].read(bufSlice, 0);
+            } else {
+                ByteBuffer bufContents = hndFiles[intSlot].read();
+                bufContents.position(0);
+                bufContents.limit(Math.min(bufContents.limit(), bufSlice.capacity()));
+                bufSlice.put(bufContents);
+            }
+            bufSlice.flip();
+            intStates[intSlot] = READ;
+        } catch (IOException e) {
+            bufSlice.limit(0);
+            intStates[intSlot] = FAILED;
+        }
+    }
+
+    /**
+     * Returns the number of read system calls made in the last tick, which is the number of open
+     * files unless files were opened or read between the ticks
+     *
+     * @return The number of reads
+     */
+    public int getReads() {
+        return intReads;
+    }
+
+    /**
+     * Returns the number of read system calls made since the engine was created
+     *
+     * @return The number of reads
+     */
+    public long getTotalReads() {
+        return lngReads;
+    }
+
+    /**
+     * Returns the number of files that are currently open
+     *
+     * @return The number of open files
+     */
+    public int getFiles() {
+        int intFiles = 0;
+        for (int i = 0; i < intSlots; i++) {
+            if (isOpen(i)) {
+                intFiles++;
+            }
+        }
+        return intFiles;
+    }
+
+    @Override
+    public Handle open(String strPath, int intCapacity) throws FileNotFoundException {
+        RandomAccessFile rafFile = null;
+        Handle hndFile = null;
+        if (srcFiles instanceof DiskSource) {
+            rafFile = ((DiskSource) srcFiles).access(strPath);
+        } else {
+            hndFile = srcFiles.open(strPath, intCapacity);
+        }
+
+        int intSlot = allocate(intCapacity);
+        rafFiles[intSlot] = rafFile;
+        chnFiles[intSlot] = rafFile != null ? rafFile.getChannel() : null;
+        hndFiles[intSlot] = hndFile;
+        intStates[intSlot] = STALE;
+        return new EngineHandle(intSlot);
+    }
+
+    /**
+     * Finds a free slot with at least the given capacity or assigns a new slot at the end of the
+     * shared buffer, growing the buffer if needed. Slots are reused as files are closed and opened
+     * again when cores go offline and come back, so the buffer doesn't keep growing.
+     *
+     * @param intCapacity The capacity of the slot
+     * @return The index of the slot
+     */
+    private int allocate(int intCapacity) {
+        for (int i = 0; i < intSlots; i++) {
+            if (!isOpen(i) && intCapacities[i] >= intCapacity) {
+                return i;
+            }
+        }
+
+        if (intSlots == rafFiles.length) {
+            int intLength = intSlots * 2;
+            rafFiles = Arrays.copyOf(rafFiles, intLength);
+            chnFiles = Arrays.copyOf(chnFiles, intLength);
+            hndFiles = Arrays.copyOf(hndFiles, intLength);
+            intOffsets = Arrays.copyOf(intOffsets, intLength);
+            intCapacities = Arrays.copyOf(intCapacities, intLength);
+            bufSlices = Arrays.copyOf(bufSlices, intLength);
+            intStates = Arrays.copyOf(intStates, intLength);
+        }
+        if (intUsed + intCapacity > bufShared.capacity()) {
+            grow(Math.max(bufShared.capacity() * 2, intUsed + intCapacity));
+        }
+
+        int intSlot = intSlots++;
+        intOffsets[intSlot] = intUsed;
+        intCapacities[intSlot] = intCapacity;
+        bufSlices[intSlot] = slice(intUsed, intCapacity);
+        intUsed = intUsed + intCapacity;
+        return intSlot;
+    }
+
+    /**
+     * Replaces the shared buffer with a larger one and slices it again. The slices of the open files
+     * are marked stale so they are read again on their next read.
+     *
+     * @param intCapacity The capacity of the new buffer
+     */
+    private void grow(int intCapacity) {
+        Log.d("SamplingEngine", "Growing the shared buffer to " + intCapacity + " bytes");
+        bufShared = ByteBuffer.allocateDirect(intCapacity);
+        for (int i = 0; i < intSlots; i++) {
+            bufSlices[i] = slice(intOffsets[i], intCapacities[i]);
+            intStates[i] = STALE;
+        }
+    }
+
+    /**
+     * Creates a slice of the shared buffer
+     *
+     * @param intOffset   The offset of the slice
+     * @param intCapacity The capacity of the slice
+     * @return The slice of the shared buffer
+     */
+    private ByteBuffer slice(int intOffset, int intCapacity) {
+        ByteBuffer bufWindow = bufShared.duplicate();
+        bufWindow.position(intOffset);
+        bufWindow.limit(intOffset + intCapacity);
+        return bufWindow.slice();
+    }
+
+    /**
+     * Returns the source that the engine reads from, whose files are read directly on every read.
+     * This is meant for the files that are read far less often than every tick, which would
+     * otherwise be read needlessly in every batch.
+     *
+     * @return The source reading the files directly
+     */
+    public FileSource getDirect() {
+        return srcFiles;
+    }
+
+    @Override
+    public String[] list(String strPath) {
+        return srcFiles.list(strPath);
+    }
+
+    @Override
+    public boolean exists(String strPath) {
+        return srcFiles.exists(strPath);
+    }
+
+    /**
+     * Closes all the open files
+     */
+    public void destroy() {
+        for (int i = 0; i < intSlots; i++) {
+            close(i);
+        }
+    }
+
+    /**
+     * Closes the file of the given slot and frees the slot
+     *
+     * @param intSlot The index of the slot
+     */
+    private void close(int intSlot) {
+
+        if (rafFiles[intSlot] != null) {
+            try {
+                rafFiles[intSlot].close();
+            } catch (IOException e) {
+                Log.w("SamplingEngine", "Unable to successfully close the file");
+            }
+            rafFiles[intSlot] = null;
+            chnFiles[intSlot] = null;
+        }
+        if (hndFiles[intSlot] != null) {
+            hndFiles[intSlot].close();
+            hndFiles[intSlot] = null;
+        }
+    }
+
+    /**
+     * Handle of a file of the engine that returns the contents of the file read in the last tick
+     */
+    private class EngineHandle implements Handle {
+
+        /**
+         * The index of the slot of the file
+         */
+        private final int intSlot;
+        /**
+         * The flag indicating whether the handle has been closed and its slot may belong to another
+         * file
+         */
+        private boolean booClosed = false;
+
+        /**
+         * Creates a handle for the file of the given slot
+         *
+         * @param intSlot The index of the slot
+         */
+        EngineHandle(int intSlot) {
+            this.intSlot = intSlot;
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            if (booClosed) {
+                throw new IOException("The file of slot " + intSlot + " has been closed");
+            }
+            if (intStates[intSlot] == STALE) {
+                fill(intSlot);
+            }
+            if (intStates[intSlot] == FAILED) {
+                throw new IOException("Unable to read the file of slot " + intSlot);
+            }
+
+            ByteBuffer bufSlice = bufSlices[intSlot];
+            bufSlice.position(0);
+            return bufSlice;
+        }
+
+        @Override
+        public void close() {
+            if (!booClosed) {
+                booClosed = true;
+                SamplingEngine.this.close(intSlot);
+            }
+        }
+    }
+}
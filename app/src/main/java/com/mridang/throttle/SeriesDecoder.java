@@ -0,0 +1,200 @@
+package com.mridang.throttle;
+
+import java.nio.BufferUnderflowException;
+
+/**
+ * Decoder class that reads back a stream of records written by the series encoder from a reusable
+ * byte array. The timestamps and the columns must be read in exactly the order in which they were
+ * written. The decoder keeps all of its state in primitive arrays so decoding doesn't allocate.
+ */
+public class SeriesDecoder {
+
+    /**
+     * The previous value or the raw bits of the previous value of each of the columns
+     */
+    private final long[] lngPrevious;
+    /**
+     * The number of leading zeros of the previous XOR of each of the floating point columns
+     */
+    private final int[] intLeading;
+    /**
+     * The number of trailing zeros of the previous XOR of each of the floating point columns
+     */
+    private final int[] intTrailing;
+    /**
+     * The array from which the bits are read
+     */
+    private byte[] bytBuffer;
+    /**
+     * The position in bits of the end of the stream in the array
+     */
+    private int intLimit;
+    /**
+     * The number of bits that have been read
+     */
+    private int intBit;
+    /**
+     * The number of timestamps that have been read
+     */
+    private int intRecords;
+    /**
+     * The previous timestamp
+     */
+    private long lngTime;
+    /**
+     * The previous delta between two timestamps
+     */
+    private long lngDelta;
+
+    public SeriesDecoder(int intColumns) {
+        this.lngPrevious = new long[intColumns];
+        this.intLeading = new int[intColumns];
+        this.intTrailing = new int[intColumns];
+    }
+
+    /**
+     * Resets the decoder so that it reads a new stream from the given region of the array
+     *
+     * @param bytBuffer The array from which the stream is read
+     * @param intOffset The offset of the stream in the array in bytes
+     * @param intLength The length of the stream in bytes
+     */
+    public void reset(byte[] bytBuffer, int intOffset, int intLength) {
+        this.bytBuffer = bytBuffer;
+        this.intBit = intOffset * 8;
+        this.intLimit = (intOffset + intLength) * 8;
+        this.intRecords = 0;
+        this.lngTime = 0L;
+        this.lngDelta = 0L;
+        for (int i = 0; i < lngPrevious.length; i++) {
+            lngPrevious[i] = 0L;
+            intLeading[i] = 0;
+            intTrailing[i] = 0;
+        }
+    }
+
+    /**
+     * Reads the timestamp that starts the next record
+     *
+     * @return The timestamp
+     */
+    public long getTime() {
+        if (intRecords++ == 0) {
+            lngTime = read(64);
+            return lngTime;
+        }
+
+        long lngDifference;
+        if (read(1) == 0L) {
+            lngDifference = 0L;
+        } else if (read(1) == 0L) {
+            lngDifference = extend(read(7), 7);
+        } else if (read(1) == 0L) {
+            lngDifference = extend(read(9), 9);
+        } else if (read(1) == 0L) {
+            lngDifference = extend(read(12), 12);
+        } else {
+            lngDifference = read(64);
+        }
+        lngDelta = lngDelta + lngDifference;
+        lngTime = lngTime + lngDelta;
+        return lngTime;
+    }
+
+    /**
+     * Reads an integral counter of the given column
+     *
+     * @param intColumn The index of the column
+     * @return The value of the counter
+     */
+    public long getCounter(int intColumn) {
+        long lngZigzag = 0L;
+        for (int intShift = 0; intShift < 64; intShift += 7) {
+            long lngByte = read(8);
+            lngZigzag |= (lngByte & 0x7FL) << intShift;
+            if ((lngByte & 0x80L) == 0L) {
+                break;
+            }
+        }
+
+        long lngDifference = (lngZigzag >>> 1) ^ -(lngZigzag & 1L);
+        lngPrevious[intColumn] += lngDifference;
+        return lngPrevious[intColumn];
+    }
+
+    /**
+     * Reads a floating point figure of the given column
+     *
+     * @param intColumn The index of the column
+     * @return The value of the figure
+     */
+    public double getDouble(int intColumn) {
+        return Double.longBitsToDouble(getBits(intColumn));
+    }
+
+    /**
+     * Reads a single precision floating point figure of the given column
+     *
+     * @param intColumn The index of the column
+     * @return The value of the figure
+     */
+    public float getFloat(int intColumn) {
+        return Float.intBitsToFloat((int) (getBits(intColumn) >>> 32));
+    }
+
+    /**
+     * Reads the raw bits of a floating point figure of the given column
+     *
+     * @param intColumn The index of the column
+     * @return The raw bits of the figure
+     */
+    private long getBits(int intColumn) {
+        if (read(1) == 0L) {
+            return lngPrevious[intColumn];
+        }
+
+        if (read(1) == 1L) {
+            intLeading[intColumn] = (int) read(5);
+            int intMeaningful = (int) read(6) + 1;
+            intTrailing[intColumn] = 64 - intLeading[intColumn] - intMeaningful;
+        }
+        int intMeaningful = 64 - intLeading[intColumn] - intTrailing[intColumn];
+        lngPrevious[intColumn] ^= read(intMeaningful) << intTrailing[intColumn];
+        return lngPrevious[intColumn];
+    }
+
+    /**
+     * Sign-extends the given value of the given number of bits
+     *
+     * @param lngValue The value to extend
+     * @param intCount The number of bits of the value
+     * @return The sign-extended value
+     */
+    private static long extend(long lngValue, int intCount) {
+        return (lngValue << (64 - intCount)) >> (64 - intCount);
+    }
+
+    /**
+     * Reads the given number of bits starting with the highest of them
+     *
+     * @param intCount The number of bits to read
+     * @return The value of the bits
+     */
+    private long read(int intCount) {
+        if (intBit + intCount > intLimit) {
+            throw new BufferUnderflowException();
+        }
+
+        long lngValue = 0L;
+        while (intCount > 0) {
+            int intIndex = intBit >>> 3;
+            int intAvailable = 8 - (intBit & 7);
+            int intTake = Math.min(intAvailable, intCount);
+            int intChunk = (bytBuffer[intIndex] >>> (intAvailable - intTake)) & ((1 << intTake) - 1);
+            lngValue = (lngValue << intTake) | intChunk;
+            intBit += intTake;
+            intCount -= intTake;
+        }
+        return lngValue;
+    }
+}
@@ -0,0 +1,219 @@
+package com.mridang.throttle;
+
+import java.nio.BufferOverflowException;
+
+/**
+ * Encoder class that compresses a stream of records into a reusable byte array in the manner of the
+ * Gorilla time series encoding. The timestamps are encoded as the delta of their deltas, the floating
+ * point figures as the XOR with their previous value and the integral counters as variable length
+ * zig-zag encoded deltas. A steady sampling period and slowly changing figures therefore take only a
+ * few bits per column. Each record consists of a timestamp followed by every column in a fixed order
+ * and the decoder must read the columns back in the same order.
+ *
+ * The encoder keeps all of its state in primitive arrays so encoding doesn't allocate.
+ */
+public class SeriesEncoder {
+
+    /**
+     * The previous value or the raw bits of the previous value of each of the columns
+     */
+    private final long[] lngPrevious;
+    /**
+     * The number of leading zeros of the previous XOR of each of the floating point columns
+     */
+    private final int[] intLeading;
+    /**
+     * The number of trailing zeros of the previous XOR of each of the floating point columns
+     */
+    private final int[] intTrailing;
+    /**
+     * The array into which the bits are written
+     */
+    private byte[] bytBuffer;
+    /**
+     * The number of bits that have been written
+     */
+    private int intBit;
+    /**
+     * The number of timestamps that have been written
+     */
+    private int intRecords;
+    /**
+     * The previous timestamp
+     */
+    private long lngTime;
+    /**
+     * The previous delta between two timestamps
+     */
+    private long lngDelta;
+
+    public SeriesEncoder(int intColumns) {
+        this.lngPrevious = new long[intColumns];
+        this.intLeading = new int[intColumns];
+        this.intTrailing = new int[intColumns];
+    }
+
+    /**
+     * Resets the encoder so that it starts a new stream at the start of the given array
+     *
+     * @param bytBuffer The array into which the stream is written
+     */
+    public void reset(byte[] bytBuffer) {
+        this.bytBuffer = bytBuffer;
+        this.intBit = 0;
+        this.intRecords = 0;
+        this.lngTime = 0L;
+        this.lngDelta = 0L;
+        for (int i = 0; i < lngPrevious.length; i++) {
+            lngPrevious[i] = 0L;
+            intLeading[i] = -1;
+            intTrailing[i] = 0;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the array that hold the stream
+     *
+     * @return The length of the stream in bytes
+     */
+    public int getLength() {
+        return (intBit + 7) >>> 3;
+    }
+
+    /**
+     * Returns the number of records, i.e. timestamps, that have been written
+     *
+     * @return The number of records
+     */
+    public int getRecords() {
+        return intRecords;
+    }
+
+    /**
+     * Writes the timestamp that starts a new record as the delta of its delta with the previous one
+     *
+     * @param lngValue The timestamp
+     */
+    public void putTime(long lngValue) {
+        if (intRecords++ == 0) {
+            write(lngValue, 64);
+            lngTime = lngValue;
+            return;
+        }
+
+        long lngCurrent = lngValue - lngTime;
+        long lngDifference = lngCurrent - lngDelta;
+        if (lngDifference == 0L) {
+            write(0L, 1);
+        } else if (lngDifference >= -64L && lngDifference < 64L) {
+            write(2L, 2);
+            write(lngDifference, 7);
+        } else if (lngDifference >= -256L && lngDifference < 256L) {
+            write(6L, 3);
+            write(lngDifference, 9);
+        } else if (lngDifference >= -2048L && lngDifference < 2048L) {
+            write(14L, 4);
+            write(lngDifference, 12);
+        } else {
+            write(15L, 4);
+            write(lngDifference, 64);
+        }
+        lngTime = lngValue;
+        lngDelta = lngCurrent;
+    }
+
+    /**
+     * Writes an integral counter of the given column as the zig-zag encoded variable length delta
+     * with the previous value of the column
+     *
+     * @param intColumn The index of the column
+     * @param lngValue  The value of the counter
+     */
+    public void putCounter(int intColumn, long lngValue) {
+        long lngDifference = lngValue - lngPrevious[intColumn];
+        long lngZigzag = (lngDifference << 1) ^ (lngDifference >> 63);
+        while ((lngZigzag & ~0x7FL) != 0L) {
+            write((lngZigzag & 0x7FL) | 0x80L, 8);
+            lngZigzag >>>= 7;
+        }
+        write(lngZigzag, 8);
+        lngPrevious[intColumn] = lngValue;
+    }
+
+    /**
+     * Writes a floating point figure of the given column as the XOR with the previous value of the
+     * column, reusing the window of meaningful bits of the previous XOR when it fits
+     *
+     * @param intColumn The index of the column
+     * @param dblValue  The value of the figure
+     */
+    public void putDouble(int intColumn, double dblValue) {
+        putBits(intColumn, Double.doubleToRawLongBits(dblValue));
+    }
+
+    /**
+     * Writes a single precision floating point figure of the given column
+     *
+     * @param intColumn The index of the column
+     * @param fltValue  The value of the figure
+     */
+    public void putFloat(int intColumn, float fltValue) {
+        putBits(intColumn, (Float.floatToRawIntBits(fltValue) & 0xFFFFFFFFL) << 32);
+    }
+
+    /**
+     * Writes the raw bits of a floating point figure as the XOR with the previous bits of the column
+     *
+     * @param intColumn The index of the column
+     * @param lngBits   The raw bits of the figure
+     */
+    private void putBits(int intColumn, long lngBits) {
+        long lngXor = lngBits ^ lngPrevious[intColumn];
+        lngPrevious[intColumn] = lngBits;
+        if (lngXor == 0L) {
+            write(0L, 1);
+            return;
+        }
+
+        int intLeadingZeros = Math.min(Long.numberOfLeadingZeros(lngXor), 31);
+        int intTrailingZeros = Long.numberOfTrailingZeros(lngXor);
+        if (intLeading[intColumn] >= 0 && intLeadingZeros >= intLeading[intColumn]
+                && intTrailingZeros >= intTrailing[intColumn]) {
+            write(2L, 2);
+            write(lngXor >>> intTrailing[intColumn], 64 - intLeading[intColumn] - intTrailing[intColumn]);
+        } else {
+            int intMeaningful = 64 - intLeadingZeros - intTrailingZeros;
+            write(3L, 2);
+            write(intLeadingZeros, 5);
+            write(intMeaningful - 1, 6);
+            write(lngXor >>> intTrailingZeros, intMeaningful);
+            intLeading[intColumn] = intLeadingZeros;
+            intTrailing[intColumn] = intTrailingZeros;
+        }
+    }
+
+    /**
+     * Writes the given number of the lowest bits of the given value starting with the highest of them
+     *
+     * @param lngValue The value whose bits are written
+     * @param intCount The number of bits to write
+     */
+    private void write(long lngValue, int intCount) {
+        if (intBit + intCount > bytBuffer.length * 8) {
+            throw new BufferOverflowException();
+        }
+
+        while (intCount > 0) {
+            int intIndex = intBit >>> 3;
+            int intFree = 8 - (intBit & 7);
+            int intTake = Math.min(intFree, intCount);
+            int intChunk = (int) (lngValue >>> (intCount - intTake)) & ((1 << intTake) - 1);
+            if (intFree == 8) {
+                bytBuffer[intIndex] = 0;
+            }
+            bytBuffer[intIndex] |= intChunk << (intFree - intTake);
+            intBit += intTake;
+            intCount -= intTake;
+        }
+    }
+}
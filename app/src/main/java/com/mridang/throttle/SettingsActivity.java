@@ -7,7 +7,9 @@ import android.os.Bundle;
 import android.os.IBinder;
 import android.preference.Preference;
 import android.preference.Preference.OnPreferenceChangeListener;
+import android.preference.Preference.OnPreferenceClickListener;
 import android.preference.PreferenceActivity;
+import android.preference.PreferenceManager;
 
 /**
  * Settings activity that allows the user to start or stop the service and also change the polling
@@ -32,9 +34,30 @@ public class SettingsActivity extends PreferenceActivity {
             isBounded = true;
             HardwareService.LocalBinder mLocalBinder = (HardwareService.LocalBinder) service;
             backgroundService = mLocalBinder.getServerInstance();
+            showOverhead();
         }
     };
 
+    /**
+     * Shows the overhead of the monitor measured so far in the summary of the overhead preference
+     */
+    @SuppressWarnings("deprecation")
+    private void showOverhead() {
+        Preference prfOverhead = findPreference("overhead");
+        if (prfOverhead == null || backgroundService == null) {
+            return;
+        }
+
+        OverheadMonitor ovrMonitor = backgroundService.getOverhead();
+        if (ovrMonitor == null || ovrMonitor.getUpdates() == 0L) {
+            prfOverhead.setSummary(getString(R.string.overhead_pending));
+        } else {
+            prfOverhead.setSummary(getString(R.string.overhead_summary, ovrMonitor.getUsage(),
+                    ovrMonitor.getAverageCpu(), ovrMonitor.getResident() / 1024L,
+                    Math.max(ovrMonitor.getCollections(), 0L)));
+        }
+    }
+
     /**
      * OnStart method of the activity that establishes a connection with the service by binding to it
      */
@@ -98,6 +121,140 @@ public class SettingsActivity extends PreferenceActivity {
             }
         });
 
+        findPreference("busiest").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles whether the usage of the busiest core should
+             * be shown in the notification depending on whether the the switch is toggled or not.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.showBusiest((Boolean) newValue);
+                return true;
+            }
+        });
+
+        findPreference("posting").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles how often the notification may be posted
+             * depending on the interval that is chosen.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.setMinimum(Long.parseLong((String) newValue));
+                return true;
+            }
+        });
+
+        findPreference("smoothing").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles how strongly the usage shown by the icon is
+             * smoothed depending on the half-life that is chosen.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.setSmoothing(Long.parseLong((String) newValue));
+                return true;
+            }
+        });
+
+        findPreference("icon").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles whether the icon shows the usage levels, a
+             * sparkline or a bar graph of the cores depending on the style that is chosen.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.setGraph(Integer.parseInt((String) newValue));
+                return true;
+            }
+        });
+
+        findPreference("percentile").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles whether the 95th percentile of the usage over
+             * the last five minutes should be shown depending on whether the switch is toggled or not.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.showPercentile((Boolean) newValue);
+                return true;
+            }
+        });
+
+        findPreference("disk").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles whether the disk activity should be shown
+             * below the memory usage depending on whether the switch is toggled or not.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.showDisk((Boolean) newValue);
+                return true;
+            }
+        });
+
+        findPreference("processes").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles how often the busiest processes are scanned
+             * for the expanded notification depending on the interval that is chosen.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.setProcesses(Long.parseLong((String) newValue));
+                return true;
+            }
+        });
+
+        findPreference("adaptive").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles whether the polling interval should adapt to
+             * how quickly the figures are changing depending on whether the switch is toggled or not.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                backgroundService.setAdaptive((Boolean) newValue);
+                return true;
+            }
+        });
+
+        findPreference("fastest").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles the shortest polling interval of the adaptive
+             * mode depending on the interval that is chosen.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                String strSlowest = PreferenceManager.getDefaultSharedPreferences(getApplicationContext())
+                        .getString("slowest", "5000");
+                backgroundService.setBounds(Long.parseLong((String) newValue), Long.parseLong(strSlowest));
+                return true;
+            }
+        });
+
+        findPreference("slowest").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+
+            /**
+             * Preference change listener that handles the longest polling interval of the adaptive
+             * mode depending on the interval that is chosen.
+             */
+            @Override
+            public boolean onPreferenceChange(Preference enabledPreference, Object newValue) {
+                String strFastest = PreferenceManager.getDefaultSharedPreferences(getApplicationContext())
+                        .getString("fastest", "250");
+                backgroundService.setBounds(Long.parseLong(strFastest), Long.parseLong((String) newValue));
+                return true;
+            }
+        });
+
         findPreference("color").setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
 
             /**
@@ -111,5 +268,27 @@ public class SettingsActivity extends PreferenceActivity {
             }
         });
 
+        findPreference("overhead").setOnPreferenceClickListener(new OnPreferenceClickListener() {
+
+            /**
+             * Preference click listener that refreshes the overhead of the monitor and shares the
+             * measured figures as comma separated values so that they can be compared across devices
+             */
+            @Override
+            public boolean onPreferenceClick(Preference overheadPreference) {
+                if (backgroundService == null || backgroundService.getOverhead() == null) {
+                    return false;
+                }
+
+                showOverhead();
+                Intent ittShare = new Intent(Intent.ACTION_SEND);
+                ittShare.setType("text/plain");
+                ittShare.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.overhead_title));
+                ittShare.putExtra(Intent.EXTRA_TEXT, backgroundService.getOverhead().export());
+                startActivity(Intent.createChooser(ittShare, getString(R.string.overhead_share)));
+                return true;
+            }
+        });
+
     }
 }
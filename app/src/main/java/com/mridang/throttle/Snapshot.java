@@ -0,0 +1,637 @@
+package com.mridang.throttle;
+
+/**
+ * Immutable class holding the figures collected in a single update by the sampler so that they can
+ * be handed over to the notification and any other consumers without being modified underneath them
+ */
+public final class Snapshot {
+
+    /**
+     * The monotonic time in milliseconds, including the time spent in deep sleep, at which the
+     * figures were collected
+     */
+    private final long lngTime;
+    /**
+     * The measured length in nanoseconds of the window over which the figures were collected
+     */
+    private final long lngWindow;
+    /**
+     * The cumulative usage of all the processor cores
+     */
+    private final double dblUsage;
+    /**
+     * The usage of the busiest processor core
+     */
+    private final double dblBusiest;
+    /**
+     * The usage of each of the processor cores where offline cores have no usage
+     */
+    private final float[] fltCores;
+    /**
+     * The current frequency of the fastest processor cluster in kHz
+     */
+    private final long lngFrequency;
+    /**
+     * The amount of free memory in megabytes
+     */
+    private final long lngFree;
+    /**
+     * The total amount of memory in megabytes
+     */
+    private final long lngTotal;
+    /**
+     * The names of the processes that used the most processor time, the busiest first
+     */
+    private final String[] strProcesses;
+    /**
+     * The usage of the processes that used the most processor time as a share of all the cores
+     */
+    private final float[] fltProcesses;
+    /**
+     * The system counters indexed by the indices of the counters of the processor manager
+     */
+    private final long[] lngCounters;
+    /**
+     * The shares of the processor time that aren't counted as usage indexed by the indices of the
+     * shares of the processor manager
+     */
+    private final float[] fltShares;
+    /**
+     * The shares of the last ten seconds in which the tasks were stalled indexed by the resource and
+     * the line of the pressure manager
+     */
+    private final float[] fltPressures;
+    /**
+     * The stall times in microseconds during the window indexed by the resource and the line of the
+     * pressure manager
+     */
+    private final long[] lngStalls;
+    /**
+     * The counters of all of the block devices together indexed by the counters of the disk manager
+     */
+    private final long[] lngDisks;
+    /**
+     * The counters of all of the network interfaces together except the loopback interface indexed
+     * by the counters of the network manager
+     */
+    private final long[] lngNetwork;
+    /**
+     * The names of the network interfaces that were present
+     */
+    private final String[] strInterfaces;
+    /**
+     * The counters of each of the network interfaces indexed by the interface and the counters of
+     * the network manager
+     */
+    private final long[] lngTraffic;
+    /**
+     * The temperature of the hottest thermal zone of the processor in degrees Celsius
+     */
+    private final float fltTemperature;
+    /**
+     * The flag indicating whether the processor was being thermally throttled
+     */
+    private final boolean booThrottled;
+
+    /**
+     * Creates a snapshot holding copies of the figures of the given builder so that the builder and
+     * its arrays can be reused for the next update while the snapshot is read on another thread
+     *
+     * @param bldFigures The builder holding the collected figures
+     */
+    private Snapshot(Builder bldFigures) {
+        this.lngTime = bldFigures.lngTime;
+        this.lngWindow = bldFigures.lngWindow;
+        this.dblUsage = bldFigures.dblUsage;
+        this.dblBusiest = bldFigures.dblBusiest;
+        this.fltCores = bldFigures.fltCores.clone();
+        this.lngFrequency = bldFigures.lngFrequency;
+        this.lngFree = bldFigures.lngFree;
+        this.lngTotal = bldFigures.lngTotal;
+        this.strProcesses = bldFigures.strProcesses.clone();
+        this.fltProcesses = bldFigures.fltProcesses.clone();
+        this.fltTemperature = bldFigures.fltTemperature;
+        this.booThrottled = bldFigures.booThrottled;
+        this.lngCounters = bldFigures.lngCounters.clone();
+        this.fltShares = bldFigures.fltShares.clone();
+        this.fltPressures = bldFigures.fltPressures.clone();
+        this.lngStalls = bldFigures.lngStalls.clone();
+        this.lngDisks = bldFigures.lngDisks.clone();
+        this.lngNetwork = bldFigures.lngNetwork.clone();
+        this.strInterfaces = bldFigures.strInterfaces.clone();
+        this.lngTraffic = bldFigures.lngTraffic.clone();
+    }
+
+    /**
+     * Returns the monotonic time at which the figures were collected
+     *
+     * @return The time in milliseconds
+     */
+    public long getTime() {
+        return lngTime;
+    }
+
+    /**
+     * Returns the measured length of the window over which the figures were collected. Any rates
+     * must be derived using this window rather than the nominal period of the updates.
+     *
+     * @return The length of the window in nanoseconds or zero for the first update
+     */
+    public long getWindow() {
+        return lngWindow;
+    }
+
+    /**
+     * Returns the cumulative usage of all the processor cores
+     *
+     * @return The processor usage as a percentage
+     */
+    public double getUsage() {
+        return dblUsage;
+    }
+
+    /**
+     * Returns the usage of the busiest processor core
+     *
+     * @return The usage of the busiest core as a percentage
+     */
+    public double getBusiest() {
+        return dblBusiest;
+    }
+
+    /**
+     * Returns the number of processor cores whose usage was collected
+     *
+     * @return The number of cores
+     */
+    public int getCores() {
+        return fltCores.length;
+    }
+
+    /**
+     * Returns the usage of the given processor core
+     *
+     * @param intCore The index of the core
+     * @return The usage of the core as a percentage or zero if the core is offline or unknown
+     */
+    public double getUsage(int intCore) {
+        return intCore < fltCores.length ? fltCores[intCore] : 0D;
+    }
+
+    /**
+     * Returns the current frequency of the fastest processor cluster
+     *
+     * @return The frequency in kHz or zero if it couldn't be read
+     */
+    public long getFrequency() {
+        return lngFrequency;
+    }
+
+    /**
+     * Returns the amount of free memory
+     *
+     * @return The free memory in megabytes
+     */
+    public long getFree() {
+        return lngFree;
+    }
+
+    /**
+     * Returns the total amount of memory
+     *
+     * @return The total memory in megabytes
+     */
+    public long getTotal() {
+        return lngTotal;
+    }
+
+    /**
+     * Returns the number of the busiest processes that were found
+     *
+     * @return The number of processes
+     */
+    public int getProcesses() {
+        return strProcesses.length;
+    }
+
+    /**
+     * Returns the name of the given busiest process
+     *
+     * @param intRank The rank of the process, the busiest first
+     * @return The name of the process
+     */
+    public String getProcess(int intRank) {
+        return strProcesses[intRank];
+    }
+
+    /**
+     * Returns the usage of the given busiest process as a share of all the processor cores
+     *
+     * @param intRank The rank of the process, the busiest first
+     * @return The usage of the process as a percentage
+     */
+    public double getProcessUsage(int intRank) {
+        return fltProcesses[intRank];
+    }
+
+    /**
+     * Returns the temperature of the hottest thermal zone of the processor
+     *
+     * @return The temperature in degrees Celsius or NaN if it couldn't be read
+     */
+    public float getTemperature() {
+        return fltTemperature;
+    }
+
+    /**
+     * Returns whether the processor was being thermally throttled, which is when it was at its trip
+     * point and running well below its maximum frequency despite being busy
+     *
+     * @return True if the processor was being throttled
+     */
+    public boolean isThrottled() {
+        return booThrottled;
+    }
+
+    /**
+     * Returns the share of the last ten seconds in which the tasks were stalled on the given resource
+     *
+     * @param intResource The index of the resource as defined by the pressure manager
+     * @param intLine     The index of the line as defined by the pressure manager
+     * @return The share as a percentage or NaN if it isn't supported
+     */
+    public float getPressure(int intResource, int intLine) {
+        int intIndex = intResource * PressureManager.LINES + intLine;
+        return intIndex < fltPressures.length ? fltPressures[intIndex] : Float.NaN;
+    }
+
+    /**
+     * Returns the time in which the tasks were stalled on the given resource during the window
+     *
+     * @param intResource The index of the resource as defined by the pressure manager
+     * @param intLine     The index of the line as defined by the pressure manager
+     * @return The stall time in microseconds or zero if it isn't supported
+     */
+    public long getStall(int intResource, int intLine) {
+        int intIndex = intResource * PressureManager.LINES + intLine;
+        return intIndex < lngStalls.length ? lngStalls[intIndex] : 0L;
+    }
+
+    /**
+     * Returns the given counter of all of the block devices together. The transfers and the times
+     * are the counts over the window while the number of requests in flight is the current value.
+     *
+     * @param intCounter The index of the counter as defined by the disk manager
+     * @return The value of the counter or zero if it wasn't collected
+     */
+    public long getDisk(int intCounter) {
+        return intCounter < lngDisks.length ? lngDisks[intCounter] : 0L;
+    }
+
+    /**
+     * Returns the rate per second of the given counter of the block devices derived using the
+     * measured window
+     *
+     * @param intCounter The index of the counter as defined by the disk manager
+     * @return The rate per second or zero for the first update
+     */
+    public double getDiskRate(int intCounter) {
+        return lngWindow > 0L ? getDisk(intCounter) * 1000000000D / lngWindow : 0D;
+    }
+
+    /**
+     * Returns the average time that the reads and the writes of the window took to be serviced
+     *
+     * @return The average service time in milliseconds or zero if there was no I/O
+     */
+    public double getDiskLatency() {
+        long lngRequests = getDisk(DiskManager.READS) + getDisk(DiskManager.WRITES);
+        return lngRequests > 0L ? (double) getDisk(DiskManager.SERVICE) / lngRequests : 0D;
+    }
+
+    /**
+     * Returns the average number of requests queued on the block devices during the window
+     *
+     * @return The average queue depth or zero for the first update
+     */
+    public double getDiskQueue() {
+        return lngWindow > 0L ? getDisk(DiskManager.QUEUED) * 1000000D / lngWindow : 0D;
+    }
+
+    /**
+     * Returns the given counter of all of the network interfaces together except the loopback
+     * interface
+     *
+     * @param intCounter The index of the counter as defined by the network manager
+     * @return The value of the counter over the window or zero if it wasn't collected
+     */
+    public long getNetwork(int intCounter) {
+        return intCounter < lngNetwork.length ? lngNetwork[intCounter] : 0L;
+    }
+
+    /**
+     * Returns the rate per second of the given counter of all of the network interfaces together
+     * derived using the measured window
+     *
+     * @param intCounter The index of the counter as defined by the network manager
+     * @return The rate per second or zero for the first update
+     */
+    public double getNetworkRate(int intCounter) {
+        return lngWindow > 0L ? getNetwork(intCounter) * 1000000000D / lngWindow : 0D;
+    }
+
+    /**
+     * Returns the number of the network interfaces that were present
+     *
+     * @return The number of interfaces
+     */
+    public int getInterfaces() {
+        return strInterfaces.length;
+    }
+
+    /**
+     * Returns the name of the given network interface
+     *
+     * @param intInterface The index of the interface
+     * @return The name of the interface
+     */
+    public String getInterface(int intInterface) {
+        return strInterfaces[intInterface];
+    }
+
+    /**
+     * Returns the rate per second of the given counter of the given network interface derived using
+     * the measured window
+     *
+     * @param intInterface The index of the interface
+     * @param intCounter   The index of the counter as defined by the network manager
+     * @return The rate per second or zero for the first update
+     */
+    public double getTrafficRate(int intInterface, int intCounter) {
+        long lngValue = lngTraffic[intInterface * NetworkManager.COUNTERS + intCounter];
+        return lngWindow > 0L ? lngValue * 1000000000D / lngWindow : 0D;
+    }
+
+    /**
+     * Returns the given system counter. The numbers of context switches and interrupts are the
+     * counts over the window while the numbers of runnable and blocked tasks are the current values.
+     *
+     * @param intCounter The index of the counter as defined by the processor manager
+     * @return The value of the counter or zero if it wasn't collected
+     */
+    public long getCounter(int intCounter) {
+        return intCounter < lngCounters.length ? lngCounters[intCounter] : 0L;
+    }
+
+    /**
+     * Returns the rate per second of the given system counter derived using the measured window
+     *
+     * @param intCounter The index of the counter as defined by the processor manager
+     * @return The rate per second or zero for the first update
+     */
+    public double getRate(int intCounter) {
+        return lngWindow > 0L ? getCounter(intCounter) * 1000000000D / lngWindow : 0D;
+    }
+
+    /**
+     * Returns the share of the processor time spent in the given column which isn't counted as usage
+     *
+     * @param intShare The index of the share as defined by the processor manager
+     * @return The share of the time as a percentage or zero if it wasn't collected
+     */
+    public float getShare(int intShare) {
+        return intShare < fltShares.length ? fltShares[intShare] : 0F;
+    }
+
+    /**
+     * Builder class that gathers the figures of a single update by collector. The figures that
+     * aren't set are left empty. The arrays are only referenced until the snapshot is built, which
+     * copies them, so the same arrays can be filled again for the next update.
+     */
+    public static final class Builder {
+
+        /**
+         * The monotonic time in milliseconds at which the figures were collected
+         */
+        private final long lngTime;
+        /**
+         * The measured length in nanoseconds of the window over which the figures were collected
+         */
+        private final long lngWindow;
+        /**
+         * The cumulative usage of all the processor cores
+         */
+        private double dblUsage = 0D;
+        /**
+         * The usage of the busiest processor core
+         */
+        private double dblBusiest = 0D;
+        /**
+         * The usage of each of the processor cores
+         */
+        private float[] fltCores = new float[0];
+        /**
+         * The current frequency of the fastest processor cluster in kHz
+         */
+        private long lngFrequency = 0L;
+        /**
+         * The amount of free memory in megabytes
+         */
+        private long lngFree = 0L;
+        /**
+         * The total amount of memory in megabytes
+         */
+        private long lngTotal = 0L;
+        /**
+         * The names of the busiest processes
+         */
+        private String[] strProcesses = new String[0];
+        /**
+         * The usage of the busiest processes
+         */
+        private float[] fltProcesses = new float[0];
+        /**
+         * The temperature of the hottest thermal zone of the processor in degrees Celsius
+         */
+        private float fltTemperature = Float.NaN;
+        /**
+         * The flag indicating whether the processor was being thermally throttled
+         */
+        private boolean booThrottled = false;
+        /**
+         * The system counters of the processor manager
+         */
+        private long[] lngCounters = new long[0];
+        /**
+         * The shares of the processor time of the processor manager
+         */
+        private float[] fltShares = new float[0];
+        /**
+         * The shares of the time in which the tasks were stalled of the pressure manager
+         */
+        private float[] fltPressures = new float[0];
+        /**
+         * The stall times of the pressure manager
+         */
+        private long[] lngStalls = new long[0];
+        /**
+         * The counters of all of the block devices together of the disk manager
+         */
+        private long[] lngDisks = new long[0];
+        /**
+         * The counters of all of the network interfaces together of the network manager
+         */
+        private long[] lngNetwork = new long[0];
+        /**
+         * The names of the network interfaces
+         */
+        private String[] strInterfaces = new String[0];
+        /**
+         * The counters of each of the network interfaces of the network manager
+         */
+        private long[] lngTraffic = new long[0];
+
+        /**
+         * Creates a builder for the figures collected at the given time
+         *
+         * @param lngTime   The monotonic time in milliseconds at which the figures were collected
+         * @param lngWindow The measured length in nanoseconds of the window or zero for the first
+         *                  update
+         */
+        public Builder(long lngTime, long lngWindow) {
+            this.lngTime = lngTime;
+            this.lngWindow = lngWindow;
+        }
+
+        /**
+         * Sets the usage of the processor
+         *
+         * @param dblUsage   The cumulative usage of all the cores as a percentage
+         * @param dblBusiest The usage of the busiest core as a percentage
+         * @param fltCores   The usage of each of the cores as a percentage
+         * @return This builder
+         */
+        public Builder setProcessor(double dblUsage, double dblBusiest, float[] fltCores) {
+            this.dblUsage = dblUsage;
+            this.dblBusiest = dblBusiest;
+            this.fltCores = fltCores;
+            return this;
+        }
+
+        /**
+         * Sets the current frequency of the fastest processor cluster
+         *
+         * @param lngFrequency The frequency in kHz or zero if it couldn't be read
+         * @return This builder
+         */
+        public Builder setFrequency(long lngFrequency) {
+            this.lngFrequency = lngFrequency;
+            return this;
+        }
+
+        /**
+         * Sets the amounts of memory
+         *
+         * @param lngFree  The amount of free memory in megabytes
+         * @param lngTotal The total amount of memory in megabytes
+         * @return This builder
+         */
+        public Builder setMemory(long lngFree, long lngTotal) {
+            this.lngFree = lngFree;
+            this.lngTotal = lngTotal;
+            return this;
+        }
+
+        /**
+         * Sets the processes that used the most processor time
+         *
+         * @param strProcesses The names of the processes, the busiest first
+         * @param fltProcesses The usage of the processes as a share of all the cores
+         * @return This builder
+         */
+        public Builder setProcesses(String[] strProcesses, float[] fltProcesses) {
+            this.strProcesses = strProcesses;
+            this.fltProcesses = fltProcesses;
+            return this;
+        }
+
+        /**
+         * Sets the temperature of the processor and whether it was being throttled
+         *
+         * @param fltTemperature The temperature of the hottest zone in degrees Celsius or NaN
+         * @param booThrottled   A boolean value indicating whether the processor was throttled
+         * @return This builder
+         */
+        public Builder setThermal(float fltTemperature, boolean booThrottled) {
+            this.fltTemperature = fltTemperature;
+            this.booThrottled = booThrottled;
+            return this;
+        }
+
+        /**
+         * Sets the system counters and the shares of the processor time that aren't usage
+         *
+         * @param lngCounters The counters indexed by the counters of the processor manager
+         * @param fltShares   The shares indexed by the shares of the processor manager
+         * @return This builder
+         */
+        public Builder setSystem(long[] lngCounters, float[] fltShares) {
+            this.lngCounters = lngCounters;
+            this.fltShares = fltShares;
+            return this;
+        }
+
+        /**
+         * Sets the pressure stall information
+         *
+         * @param fltPressures The shares of the last ten seconds in which the tasks were stalled
+         *                     indexed by the resource and the line of the pressure manager
+         * @param lngStalls    The stall times in microseconds during the window indexed by the
+         *                     resource and the line of the pressure manager
+         * @return This builder
+         */
+        public Builder setPressure(float[] fltPressures, long[] lngStalls) {
+            this.fltPressures = fltPressures;
+            this.lngStalls = lngStalls;
+            return this;
+        }
+
+        /**
+         * Sets the activity of the block devices
+         *
+         * @param lngDisks The counters of all of the devices together indexed by the counters of the
+         *                 disk manager
+         * @return This builder
+         */
+        public Builder setDisk(long[] lngDisks) {
+            this.lngDisks = lngDisks;
+            return this;
+        }
+
+        /**
+         * Sets the traffic of the network interfaces
+         *
+         * @param lngNetwork    The counters of all of the interfaces together except the loopback
+         *                      interface indexed by the counters of the network manager
+         * @param strInterfaces The names of the interfaces
+         * @param lngTraffic    The counters of each of the interfaces indexed by the interface and
+         *                      the counters of the network manager
+         * @return This builder
+         */
+        public Builder setNetwork(long[] lngNetwork, String[] strInterfaces, long[] lngTraffic) {
+            this.lngNetwork = lngNetwork;
+            this.strInterfaces = strInterfaces;
+            this.lngTraffic = lngTraffic;
+            return this;
+        }
+
+        /**
+         * Builds the snapshot holding copies of the figures that have been set
+         *
+         * @return The snapshot of the figures
+         */
+        public Snapshot build() {
+            return new Snapshot(this);
+        }
+    }
+}
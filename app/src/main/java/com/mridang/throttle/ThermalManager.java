@@ -0,0 +1,359 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Manager class to read the temperatures from the thermal zones and to tell whether the processor is
+ * being throttled. The zones are found once and the temperature files of the zones that belong to
+ * the processor are kept open so that they are read in the same batch as all the other files.
+ */
+public class ThermalManager {
+
+    /**
+     * The directory containing the thermal zones
+     */
+    private static final String THERMAL = "sys/class/thermal/";
+    /**
+     * The fragments of the zone types that identify the zones which belong to the processor
+     */
+    private static final String[] PROCESSOR = {"cpu", "tsens", "soc", "apc"};
+    /**
+     * The maximum number of trip points of a zone that are read to find its passive trip point
+     */
+    private static final int TRIPS = 12;
+    /**
+     * The temperature in degrees Celsius at which throttling is assumed if no zone has a passive
+     * trip point
+     */
+    private static final float TRIP = 75F;
+    /**
+     * The number of degrees Celsius by which the temperature must fall below the trip point before
+     * the throttling is considered to be over
+     */
+    private static final float HYSTERESIS = 5F;
+    /**
+     * The lowest and highest temperatures in degrees Celsius that are considered to be plausible
+     */
+    private static final float COLDEST = -40F, HOTTEST = 150F;
+    /**
+     * The share of the maximum frequency below which a busy processor is considered to be capped
+     */
+    private static final double CAPPED = 0.8D;
+    /**
+     * The share of the maximum frequency above which the cap is considered to be lifted
+     */
+    private static final double LIFTED = 0.9D;
+    /**
+     * The processor usage above which the cores would be running at their maximum frequency unless
+     * they are capped
+     */
+    private static final double BUSY = 50D;
+    /**
+     * The types of the zones whose temperatures are read
+     */
+    private final String[] strTypes;
+    /**
+     * The temperature file of each of the zones which is read repeatedly or null if it couldn't be
+     * opened
+     */
+    private final FileSource.Handle[] hndZones;
+    /**
+     * The temperature of each of the zones in degrees Celsius as of the last update or NaN if it
+     * couldn't be read
+     */
+    private final float[] fltTemperatures;
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsThermal = new ProcfsParser();
+    /**
+     * The temperature in degrees Celsius at which the processor starts being throttled
+     */
+    private final float fltTrip;
+    /**
+     * The highest temperature of the zones as of the last update or NaN if none could be read
+     */
+    private float fltHottest = Float.NaN;
+    /**
+     * The flag indicating whether the processor was being throttled as of the last detection
+     */
+    private boolean booThrottled = false;
+
+    public ThermalManager() {
+        this(new DiskSource());
+    }
+
+    /**
+     * Creates a manager that finds the thermal zones in the given source and opens the temperature
+     * files of the zones of the processor. If no zone can be identified as belonging to the
+     * processor, all the zones are read. When there are no zones at all, the manager reports no
+     * temperature and never detects any throttling.
+     *
+     * @param srcFiles The source from which the thermal files are read
+     */
+    public ThermalManager(FileSource srcFiles) {
+        List<String> lstZones = new ArrayList<String>();
+        List<String> lstTypes = new ArrayList<String>();
+        String[] lstEntries = srcFiles.list(THERMAL);
+        if (lstEntries != null) {
+            Arrays.sort(lstEntries);
+            for (String strEntry : lstEntries) {
+                if (strEntry.matches("thermal_zone\\d+")) {
+                    lstZones.add(THERMAL + strEntry + "/");
+                    lstTypes.add(readType(srcFiles, THERMAL + strEntry + "/type"));
+                }
+            }
+        }
+        if (lstZones.isEmpty()) {
+            Log.w("ThermalManager", "Unable to find any thermal zones under " + THERMAL);
+        }
+
+        boolean booProcessor = false;
+        for (String strType : lstTypes) {
+            booProcessor = booProcessor || isProcessor(strType);
+        }
+        for (int i = lstZones.size() - 1; i >= 0 && booProcessor; i--) {
+            if (!isProcessor(lstTypes.get(i))) {
+                lstZones.remove(i);
+                lstTypes.remove(i);
+            }
+        }
+
+        strTypes = lstTypes.toArray(new String[lstTypes.size()]);
+        hndZones = new FileSource.Handle[strTypes.length];
+        fltTemperatures = new float[strTypes.length];
+        float fltLowest = Float.NaN;
+        for (int i = 0; i < strTypes.length; i++) {
+            fltTemperatures[i] = Float.NaN;
+            try {
+                hndZones[i] = srcFiles.open(lstZones.get(i) + "temp", 32);
+            } catch (FileNotFoundException e) {
+                Log.w("ThermalManager", "Unable to open the temperature of " + strTypes[i]);
+            }
+            float fltPassive = readTrip(srcFiles, lstZones.get(i));
+            if (!Float.isNaN(fltPassive) && (Float.isNaN(fltLowest) || fltPassive < fltLowest)) {
+                fltLowest = fltPassive;
+            }
+        }
+        fltTrip = Float.isNaN(fltLowest) ? TRIP : fltLowest;
+        Log.d("ThermalManager", "Found " + strTypes.length + " thermal zones throttling at " + fltTrip);
+    }
+
+    /**
+     * Checks whether the given zone type belongs to the processor
+     *
+     * @param strType The type of the zone in lower case
+     * @return True if the zone belongs to the processor
+     */
+    private static boolean isProcessor(String strType) {
+        for (String strFragment : PROCESSOR) {
+            if (strType.contains(strFragment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the type of the zone from the given file
+     *
+     * @param srcFiles The source from which the thermal files are read
+     * @param strPath  The path of the file containing the type
+     * @return The type of the zone in lower case or an empty string if it couldn't be read
+     */
+    private static String readType(FileSource srcFiles, String strPath) {
+        try {
+            FileSource.Handle hndType = srcFiles.open(strPath, 64);
+            try {
+                ByteBuffer bufType = hndType.read();
+                byte[] bytType = new byte[bufType.limit()];
+                bufType.get(bytType);
+                return new String(bytType, "US-ASCII").trim().toLowerCase(Locale.US);
+            } finally {
+                hndType.close();
+            }
+        } catch (IOException e) {
+            Log.v("ThermalManager", "Unable to read the zone type from " + strPath);
+            return "";
+        }
+    }
+
+    /**
+     * Finds the lowest passive trip point of the given zone which is the temperature at which the
+     * kernel starts capping the frequency of the processor
+     *
+     * @param srcFiles The source from which the thermal files are read
+     * @param strZone  The path of the directory of the zone
+     * @return The lowest passive trip point in degrees Celsius or NaN if the zone has none
+     */
+    private float readTrip(FileSource srcFiles, String strZone) {
+        float fltLowest = Float.NaN;
+        for (int i = 0; i < TRIPS; i++) {
+            String strTrip = strZone + "trip_point_" + i + "_";
+            if (!srcFiles.exists(strTrip + "type")) {
+                break;
+            }
+            if (!readType(srcFiles, strTrip + "type").equals("passive")) {
+                continue;
+            }
+
+            try {
+                FileSource.Handle hndTrip = srcFiles.open(strTrip + "temp", 32);
+                try {
+                    float fltTemperature = read(hndTrip);
+                    if (Float.isNaN(fltLowest) || fltTemperature < fltLowest) {
+                        fltLowest = fltTemperature;
+                    }
+                } finally {
+                    hndTrip.close();
+                }
+            } catch (IOException e) {
+                Log.v("ThermalManager", "Unable to read the trip point from " + strTrip);
+            }
+        }
+        return fltLowest;
+    }
+
+    /**
+     * Reads the temperature from the given file with a single positional read. The kernel reports
+     * the temperature in millidegrees but some older drivers report it in tenths of a degree or in
+     * whole degrees, so the unit is guessed from the magnitude of the value.
+     *
+     * @param hndTemperature The file from which the temperature is to be read
+     * @return The temperature in degrees Celsius or NaN if it isn't plausible
+     * @throws IOException If the file couldn't be read
+     */
+    private float read(FileSource.Handle hndTemperature) throws IOException {
+        ByteBuffer bufTemperature = hndTemperature.read();
+        if (bufTemperature.limit() == 0) {
+            throw new IOException("The temperature file is empty");
+        }
+        prsThermal.reset(bufTemperature, bufTemperature.limit());
+        boolean booNegative = bufTemperature.get(0) == '-';
+        long lngValue = prsThermal.nextLong();
+
+        float fltTemperature;
+        if (lngValue >= 1000L) {
+            fltTemperature = lngValue / 1000F;
+        } else if (lngValue >= 200L) {
+            fltTemperature = lngValue / 10F;
+        } else {
+            fltTemperature = lngValue;
+        }
+        fltTemperature = booNegative ? -fltTemperature : fltTemperature;
+        return fltTemperature < COLDEST || fltTemperature > HOTTEST ? Float.NaN : fltTemperature;
+    }
+
+    /**
+     * Updates the temperature of each of the zones with a single read per zone and finds the hottest
+     * of them. Zones whose temperature can't be read are skipped.
+     */
+    public void update() {
+        fltHottest = Float.NaN;
+        for (int i = 0; i < hndZones.length; i++) {
+            if (hndZones[i] == null) {
+                continue;
+            }
+
+            try {
+                fltTemperatures[i] = read(hndZones[i]);
+            } catch (IOException e) {
+                Log.v("ThermalManager", "Unable to read the temperature of " + strTypes[i]);
+                fltTemperatures[i] = Float.NaN;
+            }
+            if (!Float.isNaN(fltTemperatures[i]) && (Float.isNaN(fltHottest) || fltTemperatures[i] > fltHottest)) {
+                fltHottest = fltTemperatures[i];
+            }
+        }
+    }
+
+    /**
+     * Detects whether the processor is being throttled by linking the temperature to the frequency.
+     * The processor is considered to be throttled once it is at its trip point while it is busy and
+     * yet running well below its maximum frequency. It is considered to be throttled until it has
+     * cooled down below the trip point or its frequency has recovered, so that the flag doesn't
+     * flicker around the trip point.
+     *
+     * @param dblUsage The cumulative processor usage as a percentage
+     * @param dblRatio The ratio of the current to the maximum frequency of the fastest cluster or
+     *                 zero if unknown
+     * @return True if the processor is being throttled
+     */
+    public boolean detect(double dblUsage, double dblRatio) {
+        if (Float.isNaN(fltHottest) || dblRatio <= 0D) {
+            booThrottled = false;
+        } else if (booThrottled) {
+            booThrottled = fltHottest >= fltTrip - HYSTERESIS && dblRatio < LIFTED;
+        } else {
+            booThrottled = fltHottest >= fltTrip && dblRatio < CAPPED && dblUsage >= BUSY;
+        }
+        return booThrottled;
+    }
+
+    /**
+     * Returns the highest temperature of the zones as of the last update
+     *
+     * @return The temperature in degrees Celsius or NaN if none could be read
+     */
+    public float getHottest() {
+        return fltHottest;
+    }
+
+    /**
+     * Returns the temperature at which the processor starts being throttled
+     *
+     * @return The trip point in degrees Celsius
+     */
+    public float getTrip() {
+        return fltTrip;
+    }
+
+    /**
+     * Returns the number of zones whose temperatures are read
+     *
+     * @return The number of zones
+     */
+    public int getZones() {
+        return strTypes.length;
+    }
+
+    /**
+     * Returns the type of the given zone
+     *
+     * @param intZone The index of the zone
+     * @return The type of the zone in lower case
+     */
+    public String getType(int intZone) {
+        return strTypes[intZone];
+    }
+
+    /**
+     * Returns the temperature of the given zone as of the last update
+     *
+     * @param intZone The index of the zone
+     * @return The temperature in degrees Celsius or NaN if it couldn't be read
+     */
+    public float getTemperature(int intZone) {
+        return fltTemperatures[intZone];
+    }
+
+    /**
+     * Closes the temperature files from which the figures are be read repeatedly
+     */
+    public void destroy() {
+
+        for (FileSource.Handle hndZone : hndZones) {
+            if (hndZone != null) {
+                hndZone.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.mridang.throttle;
+
+import android.os.SystemClock;
+
+/**
+ * Scheduler class that keeps the updates of the sampler at a fixed rate. The deadline of each update
+ * is derived from the deadline of the previous update instead of the time at which it actually ran
+ * so the lateness of the handler doesn't accumulate into a drift. The actual length of each window
+ * between the updates is measured using the monotonic clock and the lateness of every update is
+ * recorded in a histogram.
+ *
+ * In the adaptive mode the period is shortened while the figures are changing quickly and lengthened
+ * while they are stable, within the configured bounds.
+ */
+public class TickScheduler {
+
+    /**
+     * The histogram of the lateness of the updates in microseconds
+     */
+    private final JitterHistogram hstJitter = new JitterHistogram();
+    /**
+     * The change in the figures between two updates above which the period is shortened
+     */
+    private static final double VOLATILE = 10D;
+    /**
+     * The change in the figures between two updates below which the period is lengthened
+     */
+    private static final double STABLE = 3D;
+    /**
+     * The fixed period between the updates in nanoseconds used when the adaptive mode is disabled
+     */
+    private final long lngFixed;
+    /**
+     * The period between the updates in nanoseconds
+     */
+    private volatile long lngPeriod;
+    /**
+     * The flag indicating whether the period adapts to how quickly the figures are changing
+     */
+    private volatile boolean booAdaptive = false;
+    /**
+     * The shortest period between the updates in the adaptive mode in nanoseconds
+     */
+    private volatile long lngFastest;
+    /**
+     * The longest period between the updates in the adaptive mode in nanoseconds
+     */
+    private volatile long lngSlowest;
+    /**
+     * The monotonic time in nanoseconds at which the next update is expected to run
+     */
+    private long lngExpected = 0L;
+    /**
+     * The monotonic time in nanoseconds at which the last update ran
+     */
+    private long lngLast = 0L;
+    /**
+     * The length of the window between the last two updates in nanoseconds
+     */
+    private long lngWindow = 0L;
+    /**
+     * The number of updates that were skipped because the handler fell behind by a whole period
+     */
+    private long lngSkipped = 0L;
+
+    public TickScheduler(long lngPeriod) {
+        this.lngFixed = lngPeriod * 1000000L;
+        this.lngPeriod = lngFixed;
+        this.lngFastest = lngFixed;
+        this.lngSlowest = lngFixed;
+    }
+
+    /**
+     * Marks the start of an update and measures the window since the previous update. This must be
+     * called once at the very start of every update.
+     */
+    public void tick() {
+        long lngNow = System.nanoTime();
+        lngWindow = lngLast == 0L ? 0L : lngNow - lngLast;
+        lngLast = lngNow;
+
+        if (lngExpected == 0L) {
+            lngExpected = lngNow;
+        } else {
+            hstJitter.record((lngNow - lngExpected) / 1000L);
+        }
+    }
+
+    /**
+     * Adapts the period to the change in the figures since the last update when the adaptive mode
+     * is enabled. The period is halved when the figures are changing quickly and grows by half when
+     * they are stable.
+     *
+     * @param dblChange The absolute change in the processor usage since the last update
+     */
+    public void adapt(double dblChange) {
+        if (!booAdaptive) {
+            return;
+        }
+
+        if (dblChange >= VOLATILE) {
+            lngPeriod = Math.max(lngFastest, lngPeriod / 2);
+        } else if (dblChange < STABLE) {
+            lngPeriod = Math.min(lngSlowest, lngPeriod + lngPeriod / 2);
+        }
+    }
+
+    /**
+     * Computes the deadline of the next update from the deadline of the current update using the
+     * current period. This must be called once after every update has been started.
+     *
+     * @return The uptime in milliseconds at which the next update should run
+     */
+    public long next() {
+        long lngNow = System.nanoTime();
+        lngExpected += lngPeriod;
+        if (lngExpected <= lngNow) {
+            long lngBehind = (lngNow - lngExpected) / lngPeriod + 1;
+            lngSkipped += lngBehind;
+            lngExpected += lngBehind * lngPeriod;
+        }
+        return SystemClock.uptimeMillis() + (lngExpected - lngNow) / 1000000L;
+    }
+
+    /**
+     * Resets the scheduler so that the next update starts a fresh schedule. This is used when the
+     * updates were paused as the time in between isn't a window of the schedule.
+     */
+    public void reset() {
+        lngExpected = 0L;
+        lngLast = 0L;
+        lngWindow = 0L;
+    }
+
+    /**
+     * Enables or disables the adaptive mode. When it is disabled the fixed period is used again.
+     *
+     * @param booAdaptive A boolean value indicating whether the period should adapt
+     */
+    public void setAdaptive(boolean booAdaptive) {
+        this.booAdaptive = booAdaptive;
+        this.lngPeriod = booAdaptive ? Math.max(lngFastest, Math.min(lngSlowest, lngFixed)) : lngFixed;
+    }
+
+    /**
+     * Sets the bounds of the period in the adaptive mode. The period is brought within the bounds
+     * right away.
+     *
+     * @param lngFastest The shortest period in milliseconds
+     * @param lngSlowest The longest period in milliseconds
+     */
+    public void setBounds(long lngFastest, long lngSlowest) {
+        this.lngFastest = Math.min(lngFastest, lngSlowest) * 1000000L;
+        this.lngSlowest = Math.max(lngFastest, lngSlowest) * 1000000L;
+        if (booAdaptive) {
+            this.lngPeriod = Math.max(this.lngFastest, Math.min(this.lngSlowest, lngPeriod));
+        }
+    }
+
+    /**
+     * Returns the period between the updates
+     *
+     * @return The period in milliseconds
+     */
+    public long getPeriod() {
+        return lngPeriod / 1000000L;
+    }
+
+    /**
+     * Returns the measured length of the window between the last two updates
+     *
+     * @return The length of the window in nanoseconds or zero if this is the first update
+     */
+    public long getWindow() {
+        return lngWindow;
+    }
+
+    /**
+     * Returns the number of updates that were skipped because the handler fell a whole period behind
+     *
+     * @return The number of skipped updates
+     */
+    public long getSkipped() {
+        return lngSkipped;
+    }
+
+    /**
+     * Returns the histogram of the lateness of the updates in microseconds
+     *
+     * @return The jitter histogram
+     */
+    public JitterHistogram getJitter() {
+        return hstJitter;
+    }
+}
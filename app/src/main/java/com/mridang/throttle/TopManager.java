@@ -0,0 +1,514 @@
+package com.mridang.throttle;
+
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Manager class to find the processes that used the most processor time since the previous scan by
+ * reading the /proc/[pid]/stat file of every process. The files of the processes are kept open
+ * between the scans so a long-lived process costs a single read per scan, and only the processes
+ * that are new since the previous scan have their files opened. The processes are tracked in a table
+ * of primitive arrays indexed by an open addressing hash of the process identifiers so that a scan
+ * doesn't box the identifiers or allocate any entries. The number of tracked processes is capped so
+ * that the open files stay well below the limit of the process, and when there are more processes
+ * than that, the idle ones make room for the ones that couldn't be tracked.
+ */
+public class TopManager {
+
+    /**
+     * The number of processes that are reported
+     */
+    public static final int COUNT = 3;
+    /**
+     * The maximum number of processes that are tracked, which also bounds the number of open files.
+     * Older versions of Android limit a process to 1024 open files, which the other managers and the
+     * application itself share.
+     */
+    private static final int CAPACITY = 128;
+    /**
+     * The maximum number of files of new processes that are opened in a single scan so that a burst
+     * of new processes doesn't make a scan expensive. The remaining ones are opened in later scans.
+     */
+    private static final int BUDGET = 64;
+    /**
+     * The number of clock ticks per second in which the processor times are reported
+     */
+    private static final long HERTZ = 100L;
+    /**
+     * The size of the hash table which is a power of two with at most half of the entries used
+     */
+    private static final int BUCKETS = CAPACITY * 2;
+    /**
+     * The source from which the process files are read
+     */
+    private final FileSource srcFiles;
+    /**
+     * The number of processor cores by which the usage is divided so that it matches the usage of
+     * all the cores
+     */
+    private final int intCores;
+    /**
+     * The process identifier of each of the buckets of the hash table or zero if the bucket is empty
+     */
+    private final int[] intKeys = new int[BUCKETS];
+    /**
+     * The slot of the process of each of the buckets of the hash table
+     */
+    private final int[] intBuckets = new int[BUCKETS];
+    /**
+     * The process identifier of each of the slots or zero if the slot is free
+     */
+    private final int[] intPids = new int[CAPACITY];
+    /**
+     * The statistics file of the process of each of the slots
+     */
+    private final FileSource.Handle[] hndStats = new FileSource.Handle[CAPACITY];
+    /**
+     * The user and system time of the process of each of the slots as of the last scan in ticks
+     */
+    private final long[] lngTicks = new long[CAPACITY];
+    /**
+     * The start time of the process of each of the slots used to detect reused identifiers
+     */
+    private final long[] lngStarts = new long[CAPACITY];
+    /**
+     * The processor time used by the process of each of the slots since the previous scan in ticks
+     */
+    private final long[] lngDeltas = new long[CAPACITY];
+    /**
+     * The name of the process of each of the slots
+     */
+    private final String[] strNames = new String[CAPACITY];
+    /**
+     * The number of the last scan in which the process of each of the slots was seen
+     */
+    private final int[] intSeen = new int[CAPACITY];
+    /**
+     * The number of the scan in which the process of each of the slots started being tracked
+     */
+    private final int[] intFirst = new int[CAPACITY];
+    /**
+     * The parser that reads the figures straight out of the buffer
+     */
+    private final ProcfsParser prsStat = new ProcfsParser();
+    /**
+     * The number of the current scan
+     */
+    private int intScan = 0;
+    /**
+     * The monotonic time in nanoseconds of the previous scan or zero if there hasn't been one
+     */
+    private long lngScanned = 0L;
+    /**
+     * The start time of the process that was last parsed
+     */
+    private long lngStart;
+    /**
+     * The reusable array holding the slots of the busiest processes while they are ranked
+     */
+    private final int[] intBest = new int[COUNT];
+    /**
+     * The names of the processes that used the most processor time in the last scan
+     */
+    private String[] strTop = new String[0];
+    /**
+     * The usage of the processes that used the most processor time in the last scan
+     */
+    private float[] fltTop = new float[0];
+    /**
+     * The number of files that were opened in the last scan
+     */
+    private int intOpened = 0;
+    /**
+     * The number of processes that are currently tracked
+     */
+    private int intTracked = 0;
+    /**
+     * The number of processes that couldn't be tracked in the last scan because the table was full
+     */
+    private int intMissed = 0;
+    /**
+     * The index of the entry of the process directory at which the next scan starts, which is the
+     * first process that couldn't be tracked in the last scan, so that every process gets tracked
+     * in turn
+     */
+    private int intCursor = 0;
+
+    /**
+     * Creates a manager that reads the process files from the given source
+     *
+     * @param srcFiles The source from which the process files are read
+     * @param intCores The number of processor cores
+     */
+    public TopManager(FileSource srcFiles, int intCores) {
+        this.srcFiles = srcFiles;
+        this.intCores = Math.max(intCores, 1);
+    }
+
+    /**
+     * Scans all the processes and works out the processes that used the most processor time since
+     * the previous scan. The first scan only establishes the baseline. If some processes couldn't be
+     * tracked because the table was full, the processes that have been idle since the previous scan
+     * are no longer tracked and the next scan starts with the processes that couldn't be tracked.
+     */
+    public void scan() {
+        String[] lstEntries = srcFiles.list("proc");
+        if (lstEntries == null) {
+            Log.w("TopManager", "Unable to list the processes");
+            return;
+        }
+
+        long lngNow = System.nanoTime();
+        intScan++;
+        intOpened = 0;
+        intMissed = 0;
+        int intSkipped = -1;
+        for (int j = 0; j < lstEntries.length; j++) {
+            int intEntry = (intCursor + j) % lstEntries.length;
+            int intPid = parsePid(lstEntries[intEntry]);
+            if (intPid <= 0) {
+                continue;
+            }
+
+            int intSlot = find(intPid);
+            if (intSlot < 0) {
+                if (intTracked < CAPACITY && intOpened < BUDGET) {
+                    track(intPid);
+                    continue;
+                }
+                intMissed = intTracked >= CAPACITY ? intMissed + 1 : intMissed;
+                intSkipped = intSkipped < 0 ? intEntry : intSkipped;
+                continue;
+            }
+
+            try {
+                long lngCurrent = read(hndStats[intSlot]);
+                if (lngStart != lngStarts[intSlot]) {
+                    lngStarts[intSlot] = lngStart;
+                    strNames[intSlot] = readName(hndStats[intSlot]);
+                    lngDeltas[intSlot] = 0L;
+                } else {
+                    lngDeltas[intSlot] = Math.max(0L, lngCurrent - lngTicks[intSlot]);
+                }
+                lngTicks[intSlot] = lngCurrent;
+                intSeen[intSlot] = intScan;
+            } catch (IOException e) {
+                untrack(intSlot);
+            }
+        }
+
+        for (int i = 0; i < CAPACITY; i++) {
+            if (intPids[i] != 0 && intSeen[i] != intScan) {
+                untrack(i);
+            }
+        }
+
+        rank(lngScanned > 0L ? lngNow - lngScanned : 0L);
+        lngScanned = lngNow;
+        intCursor = Math.max(intSkipped, 0);
+        evict(Math.min(intMissed, BUDGET));
+    }
+
+    /**
+     * Stops tracking up to the given number of processes that used no processor time since the
+     * previous scan. The processes that only started being tracked in this scan have no usage yet
+     * and are kept.
+     *
+     * @param intCount The maximum number of processes to stop tracking
+     */
+    private void evict(int intCount) {
+        for (int i = 0; i < CAPACITY && intCount > 0; i++) {
+            if (intPids[i] != 0 && intFirst[i] != intScan && lngDeltas[i] == 0L) {
+                untrack(i);
+                intCount--;
+            }
+        }
+    }
+
+    /**
+     * Parses the process identifier from the name of an entry of the process directory
+     *
+     * @param strEntry The name of the entry
+     * @return The process identifier or -1 if the entry isn't a process
+     */
+    private static int parsePid(String strEntry) {
+        int intPid = 0;
+        for (int i = 0; i < strEntry.length(); i++) {
+            char chrDigit = strEntry.charAt(i);
+            if (chrDigit < '0' || chrDigit > '9' || intPid > Integer.MAX_VALUE / 10) {
+                return -1;
+            }
+            intPid = intPid * 10 + (chrDigit - '0');
+        }
+        return strEntry.isEmpty() ? -1 : intPid;
+    }
+
+    /**
+     * Opens the statistics file of a new process and reads its baseline
+     *
+     * @param intPid The process identifier
+     */
+    private void track(int intPid) {
+        FileSource.Handle hndStat;
+        try {
+            intOpened++;
+            hndStat = srcFiles.open("proc/" + intPid + "/stat", 1024);
+        } catch (FileNotFoundException e) {
+            return;
+        }
+
+        try {
+            long lngCurrent = read(hndStat);
+            int intSlot = 0;
+            while (intPids[intSlot] != 0) {
+                intSlot++;
+            }
+            intPids[intSlot] = intPid;
+            hndStats[intSlot] = hndStat;
+            lngTicks[intSlot] = lngCurrent;
+            lngStarts[intSlot] = lngStart;
+            lngDeltas[intSlot] = 0L;
+            strNames[intSlot] = readName(hndStat);
+            intSeen[intSlot] = intScan;
+            intFirst[intSlot] = intScan;
+            insert(intPid, intSlot);
+            intTracked++;
+        } catch (IOException e) {
+            hndStat.close();
+        }
+    }
+
+    /**
+     * Stops tracking the process of the given slot and closes its file
+     *
+     * @param intSlot The slot of the process
+     */
+    private void untrack(int intSlot) {
+        remove(intPids[intSlot]);
+        hndStats[intSlot].close();
+        hndStats[intSlot] = null;
+        strNames[intSlot] = null;
+        intPids[intSlot] = 0;
+        intTracked--;
+    }
+
+    /**
+     * Reads the user and system time of the process from its statistics file and keeps its start
+     * time. The name of the process may contain spaces and parentheses so the fields are counted
+     * from the last closing parenthesis.
+     *
+     * @param hndStat The statistics file of the process
+     * @return The user and system time of the process in ticks
+     * @throws IOException If the process has exited
+     */
+    private long read(FileSource.Handle hndStat) throws IOException {
+        ByteBuffer bufStat = hndStat.read();
+        int intClosing = bufStat.limit() - 1;
+        while (intClosing >= 0 && bufStat.get(intClosing) != ')') {
+            intClosing--;
+        }
+        if (intClosing < 0) {
+            throw new IOException("The process statistics are incomplete");
+        }
+
+        prsStat.reset(bufStat, bufStat.limit());
+        prsStat.setPosition(intClosing + 2);
+        prsStat.skipToken();
+        for (int i = 4; i < 14; i++) {
+            prsStat.nextLong();
+        }
+        long lngTime = prsStat.nextLong() + prsStat.nextLong();
+        for (int i = 16; i < 22; i++) {
+            prsStat.nextLong();
+        }
+        lngStart = prsStat.nextLong();
+        return lngTime;
+    }
+
+    /**
+     * Reads the name of the process from the contents of its statistics file that were last read
+     *
+     * @param hndStat The statistics file of the process which has just been read
+     * @return The name of the process
+     * @throws IOException If the process has exited
+     */
+    private static String readName(FileSource.Handle hndStat) throws IOException {
+        ByteBuffer bufStat = hndStat.read();
+        int intOpening = 0;
+        while (intOpening < bufStat.limit() && bufStat.get(intOpening) != '(') {
+            intOpening++;
+        }
+        int intClosing = bufStat.limit() - 1;
+        while (intClosing > intOpening && bufStat.get(intClosing) != ')') {
+            intClosing--;
+        }
+
+        byte[] bytName = new byte[Math.max(0, intClosing - intOpening - 1)];
+        for (int i = 0; i < bytName.length; i++) {
+            bytName[i] = bufStat.get(intOpening + 1 + i);
+        }
+        return new String(bytName, "UTF-8");
+    }
+
+    /**
+     * Ranks the processes by the processor time used since the previous scan and keeps the busiest
+     * ones. The ranking is a partial selection as only a handful of processes are kept.
+     *
+     * @param lngElapsed The time since the previous scan in nanoseconds or zero if there wasn't one
+     */
+    private void rank(long lngElapsed) {
+        int intCount = 0;
+        if (lngElapsed > 0L) {
+            for (int i = 0; i < CAPACITY; i++) {
+                if (intPids[i] == 0 || lngDeltas[i] == 0L) {
+                    continue;
+                }
+
+                int intPosition = intCount < COUNT ? intCount++ : COUNT;
+                while (intPosition > 0 && lngDeltas[intBest[intPosition - 1]] < lngDeltas[i]) {
+                    if (intPosition < COUNT) {
+                        intBest[intPosition] = intBest[intPosition - 1];
+                    }
+                    intPosition--;
+                }
+                if (intPosition < COUNT) {
+                    intBest[intPosition] = i;
+                }
+            }
+        }
+
+        if (strTop.length != intCount) {
+            strTop = new String[intCount];
+            fltTop = new float[intCount];
+        }
+        for (int i = 0; i < intCount; i++) {
+            strTop[i] = strNames[intBest[i]];
+            fltTop[i] = (float) (100D * lngDeltas[intBest[i]] * 1e9D / HERTZ / lngElapsed / intCores);
+        }
+    }
+
+    /**
+     * Returns the bucket of the hash table at which the search for the given process starts
+     *
+     * @param intPid The process identifier
+     * @return The index of the bucket
+     */
+    private static int hash(int intPid) {
+        return (intPid * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(BUCKETS));
+    }
+
+    /**
+     * Finds the slot of the given process in the hash table
+     *
+     * @param intPid The process identifier
+     * @return The slot of the process or -1 if it isn't tracked
+     */
+    private int find(int intPid) {
+        for (int i = hash(intPid); intKeys[i] != 0; i = (i + 1) & (BUCKETS - 1)) {
+            if (intKeys[i] == intPid) {
+                return intBuckets[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts the given process into the hash table
+     *
+     * @param intPid  The process identifier
+     * @param intSlot The slot of the process
+     */
+    private void insert(int intPid, int intSlot) {
+        int i = hash(intPid);
+        while (intKeys[i] != 0) {
+            i = (i + 1) & (BUCKETS - 1);
+        }
+        intKeys[i] = intPid;
+        intBuckets[i] = intSlot;
+    }
+
+    /**
+     * Removes the given process from the hash table, shifting the following entries of the probe
+     * sequence back so that no tombstones are needed
+     *
+     * @param intPid The process identifier
+     */
+    private void remove(int intPid) {
+        int i = hash(intPid);
+        while (intKeys[i] != intPid) {
+            if (intKeys[i] == 0) {
+                return;
+            }
+            i = (i + 1) & (BUCKETS - 1);
+        }
+
+        int j = i;
+        while (true) {
+            j = (j + 1) & (BUCKETS - 1);
+            if (intKeys[j] == 0) {
+                break;
+            }
+            int intHome = hash(intKeys[j]);
+            if (((j - intHome) & (BUCKETS - 1)) >= ((j - i) & (BUCKETS - 1))) {
+                intKeys[i] = intKeys[j];
+                intBuckets[i] = intBuckets[j];
+                i = j;
+            }
+        }
+        intKeys[i] = 0;
+    }
+
+    /**
+     * Returns the names of the processes that used the most processor time in the last scan
+     *
+     * @return The names of the busiest processes, the busiest first
+     */
+    public String[] getNames() {
+        return strTop.clone();
+    }
+
+    /**
+     * Returns the usage of the processes that used the most processor time in the last scan as a
+     * share of all the processor cores
+     *
+     * @return The usage of the busiest processes as percentages, the busiest first
+     */
+    public float[] getUsages() {
+        return fltTop.clone();
+    }
+
+    /**
+     * Returns the number of files that were opened in the last scan, which should be close to zero
+     * once the processes are tracked
+     *
+     * @return The number of opened files
+     */
+    public int getOpened() {
+        return intOpened;
+    }
+
+    /**
+     * Returns the number of processes that are currently tracked
+     *
+     * @return The number of tracked processes
+     */
+    public int getTracked() {
+        return intTracked;
+    }
+
+    /**
+     * Closes the statistics files of all the tracked processes
+     */
+    public void destroy() {
+        for (int i = 0; i < CAPACITY; i++) {
+            if (intPids[i] != 0) {
+                untrack(i);
+            }
+        }
+        Arrays.fill(intKeys, 0);
+    }
+}
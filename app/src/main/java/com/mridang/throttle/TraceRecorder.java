@@ -0,0 +1,281 @@
+package com.mridang.throttle;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Source of the files that passes all the reads through to another source while recording the raw
+ * contents of every read into a trace file. The trace can be fed back to the managers at any speed
+ * with the replay source.
+ * <p/>
+ * The trace file begins with the magic number and the version followed by a stream of records, each
+ * beginning with its type. A path record assigns an identifier to a path on its first use, a tick
+ * record marks the start of an update with its monotonic time in milliseconds and a data record
+ * holds the contents of a single read of a path or a negative length if the file couldn't be read.
+ * This class does not use any Android classes so that traces can be recorded on any Linux machine.
+ */
+public class TraceRecorder implements FileSource {
+
+    /**
+     * The magic number identifying a trace file
+     */
+    static final int MAGIC = 0x4D435452;
+    /**
+     * The version of the layout of the trace file
+     */
+    static final int VERSION = 1;
+    /**
+     * The type of the record assigning an identifier to a path
+     */
+    static final int PATH = 1;
+    /**
+     * The type of the record marking the start of an update
+     */
+    static final int TICK = 2;
+    /**
+     * The type of the record holding the contents of a single read
+     */
+    static final int DATA = 3;
+    /**
+     * The source from which the files are actually read
+     */
+    private final FileSource srcFiles;
+    /**
+     * The stream into which the records are written
+     */
+    private final DataOutputStream dosTrace;
+    /**
+     * The identifiers of the paths that have been written to the trace
+     */
+    private final Map<String, Integer> mapPaths = new HashMap<String, Integer>();
+    /**
+     * The reusable array into which the contents of a read are copied before being written
+     */
+    private byte[] bytContents = new byte[4096];
+    /**
+     * The number of ticks that have been recorded
+     */
+    private long lngTicks = 0L;
+
+    /**
+     * Creates a recorder that writes the reads of the given source into the given trace file
+     *
+     * @param srcFiles The source from which the files are actually read
+     * @param filTrace The trace file which is overwritten
+     * @throws IOException If the trace file couldn't be created
+     */
+    public TraceRecorder(FileSource srcFiles, File filTrace) throws IOException {
+        this.srcFiles = srcFiles;
+        this.dosTrace = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filTrace), 65536));
+        this.dosTrace.writeInt(MAGIC);
+        this.dosTrace.writeInt(VERSION);
+    }
+
+    @Override
+    public Handle open(String strPath, int intCapacity) throws FileNotFoundException {
+        int intPath = identify(strPath);
+        try {
+            return new RecordingHandle(srcFiles.open(strPath, intCapacity), intPath);
+        } catch (FileNotFoundException e) {
+            write(intPath, null);
+            throw e;
+        }
+    }
+
+    @Override
+    public String[] list(String strPath) {
+        return srcFiles.list(strPath);
+    }
+
+    @Override
+    public boolean exists(String strPath) {
+        return srcFiles.exists(strPath);
+    }
+
+    /**
+     * Marks the start of an update so that all the following reads belong to it
+     *
+     * @param lngTime The monotonic time of the update in milliseconds
+     */
+    public synchronized void mark(long lngTime) {
+        try {
+            dosTrace.writeByte(TICK);
+            dosTrace.writeLong(lngTime);
+            lngTicks++;
+        } catch (IOException e) {
+            System.err.println("Unable to write the tick to the trace: " + e);
+        }
+    }
+
+    /**
+     * Returns the number of ticks that have been recorded
+     *
+     * @return The number of ticks
+     */
+    public synchronized long getTicks() {
+        return lngTicks;
+    }
+
+    /**
+     * Returns the identifier of the given path and writes a path record on its first use
+     *
+     * @param strPath The path relative to the root of the source
+     * @return The identifier of the path
+     */
+    private synchronized int identify(String strPath) {
+        Integer intPath = mapPaths.get(strPath);
+        if (intPath == null) {
+            intPath = mapPaths.size();
+            mapPaths.put(strPath, intPath);
+            try {
+                dosTrace.writeByte(PATH);
+                dosTrace.writeShort(intPath);
+                dosTrace.writeUTF(strPath);
+            } catch (IOException e) {
+                System.err.println("Unable to write the path to the trace: " + e);
+            }
+        }
+        return intPath;
+    }
+
+    /**
+     * Writes a data record holding the contents of a single read
+     *
+     * @param intPath     The identifier of the path that was read
+     * @param bufContents The buffer holding the contents up to its limit or null if the read failed
+     */
+    private synchronized void write(int intPath, ByteBuffer bufContents) {
+        int intLength = bufContents != null ? bufContents.limit() : -1;
+        try {
+            dosTrace.writeByte(DATA);
+            dosTrace.writeShort(intPath);
+            dosTrace.writeInt(intLength);
+            if (intLength > 0) {
+                if (bytContents.length < intLength) {
+                    bytContents = new byte[Math.max(intLength, bytContents.length * 2)];
+                }
+                for (int i = 0; i < intLength; i++) {
+                    bytContents[i] = bufContents.get(i);
+                }
+                dosTrace.write(bytContents, 0, intLength);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to write the contents to the trace: " + e);
+        }
+    }
+
+    /**
+     * Flushes and closes the trace file after which no more reads are recorded
+     */
+    public synchronized void close() {
+        try {
+            dosTrace.close();
+        } catch (IOException e) {
+            System.err.println("Unable to successfully close the trace: " + e);
+        }
+    }
+
+    /**
+     * Handle of a file that records the contents of every read of the file it wraps
+     */
+    private class RecordingHandle implements Handle {
+
+        /**
+         * The handle of the file from which the contents are actually read
+         */
+        private final Handle hndFile;
+        /**
+         * The identifier of the path of the file in the trace
+         */
+        private final int intPath;
+
+        /**
+         * Creates a handle that records the reads of the given handle
+         *
+         * @param hndFile The handle of the file from which the contents are actually read
+         * @param intPath The identifier of the path of the file in the trace
+         */
+        RecordingHandle(Handle hndFile, int intPath) {
+            this.hndFile = hndFile;
+            this.intPath = intPath;
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            ByteBuffer bufContents;
+            try {
+                bufContents = hndFile.read();
+            } catch (IOException e) {
+                write(intPath, null);
+                throw e;
+            }
+            write(intPath, bufContents);
+            return bufContents;
+        }
+
+        @Override
+        public void close() {
+            hndFile.close();
+        }
+    }
+
+    /**
+     * Records the files read by the sampler at a fixed period so that the trace can be replayed
+     * elsewhere. The sampler reads through a sampling engine on top of the recorder, so the trace
+     * holds the reads of every collector exactly as the batched tick makes them. It can be run on a
+     * device with app_process or dalvikvm using the classes of the application, or on any Linux
+     * machine with a plain JVM.
+     *
+     * @param args The trace file, the period in milliseconds and the number of ticks to record
+     * @throws IOException          If the trace file couldn't be created
+     * @throws InterruptedException If the recording was interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 3) {
+            System.err.println("Usage: TraceRecorder <trace> <period> <ticks>");
+            System.exit(1);
+        }
+
+        long lngPeriod = Long.parseLong(args[1]);
+        long lngCount = Long.parseLong(args[2]);
+        TraceRecorder recTrace = new TraceRecorder(new DiskSource(), new File(args[0]));
+        Sampler smpSampler = new Sampler(new SamplingEngine(recTrace), new Sampler.Clock() {
+
+            /**
+             * Clock method that returns the monotonic time of the machine
+             */
+            @Override
+            public long now() {
+                return System.nanoTime() / 1000000L;
+            }
+        });
+        smpSampler.setInterval(10000L);
+        try {
+            long lngNext = System.nanoTime();
+            long lngPrevious = lngNext;
+            for (long i = 0; i < lngCount; i++) {
+                long lngNow = System.nanoTime();
+                recTrace.mark(lngNow / 1000000L);
+                smpSampler.sample(lngNow - lngPrevious);
+                lngPrevious = lngNow;
+
+                lngNext = lngNext + lngPeriod * 1000000L;
+                long lngSleep = (lngNext - System.nanoTime()) / 1000000L;
+                if (lngSleep > 0L) {
+                    Thread.sleep(lngSleep);
+                }
+            }
+        } finally {
+            smpSampler.destroy();
+            recTrace.close();
+        }
+        System.out.println("Recorded " + recTrace.getTicks() + " ticks into " + args[0]);
+    }
+}
@@ -0,0 +1,204 @@
+package com.mridang.throttle;
+
+/**
+ * Statistics class that smooths the processor usage and keeps its distribution over sliding windows
+ * between the collection and the rendering of the figures. The smoothing is an exponentially weighted
+ * moving average whose weight depends on the measured time between the updates, so it behaves the
+ * same whatever the polling interval. Each window is divided into a fixed number of slices holding a
+ * histogram of whole percentages, and the histogram of the window is kept as the running sum of its
+ * slices. An update and a query therefore take a constant time and the memory is fixed.
+ */
+public class UsageStatistics {
+
+    /**
+     * The index of the one minute window
+     */
+    public static final int MINUTE = 0;
+    /**
+     * The index of the five minute window
+     */
+    public static final int FIVE_MINUTES = 1;
+    /**
+     * The length of each of the slices of each of the windows in milliseconds
+     */
+    private static final long[] LENGTHS = {5000L, 10000L};
+    /**
+     * The number of slices of each of the windows
+     */
+    private static final int[] SLICES = {12, 30};
+    /**
+     * The number of buckets of the histograms, one for every whole percentage
+     */
+    private static final int BUCKETS = 101;
+    /**
+     * The counts of the values in each of the buckets of each of the slices of each of the windows
+     */
+    private final int[][][] intSlices = new int[SLICES.length][][];
+    /**
+     * The largest value of each of the slices of each of the windows or -1 if the slice is empty
+     */
+    private final float[][] fltMaximums = new float[SLICES.length][];
+    /**
+     * The number of the slice since the epoch held by each of the slices of each of the windows
+     */
+    private final long[][] lngNumbers = new long[SLICES.length][];
+    /**
+     * The counts of the values in each of the buckets of each of the windows as a whole
+     */
+    private final int[][] intTotals = new int[SLICES.length][BUCKETS];
+    /**
+     * The number of values in each of the windows as a whole
+     */
+    private final int[] intCounts = new int[SLICES.length];
+    /**
+     * The half-life of the smoothing in milliseconds or zero if the usage isn't smoothed
+     */
+    private volatile long lngHalfLife = 0L;
+    /**
+     * The smoothed usage as of the last update
+     */
+    private double dblSmoothed = 0D;
+    /**
+     * The usage of the last update
+     */
+    private double dblLatest = 0D;
+    /**
+     * The monotonic time in milliseconds of the last update or -1 if there hasn't been one
+     */
+    private long lngLast = -1L;
+
+    public UsageStatistics() {
+        for (int i = 0; i < SLICES.length; i++) {
+            intSlices[i] = new int[SLICES[i]][BUCKETS];
+            fltMaximums[i] = new float[SLICES[i]];
+            lngNumbers[i] = new long[SLICES[i]];
+            for (int j = 0; j < SLICES[i]; j++) {
+                fltMaximums[i][j] = -1F;
+                lngNumbers[i][j] = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Adds the usage of an update to the smoothed usage and to all the windows
+     *
+     * @param lngTime  The monotonic time of the update in milliseconds
+     * @param dblUsage The processor usage as a percentage
+     */
+    public synchronized void insert(long lngTime, double dblUsage) {
+        if (lngLast < 0L || lngHalfLife <= 0L) {
+            dblSmoothed = dblUsage;
+        } else if (lngTime > lngLast) {
+            double dblWeight = 1D - Math.pow(2D, -(double) (lngTime - lngLast) / lngHalfLife);
+            dblSmoothed = dblSmoothed + dblWeight * (dblUsage - dblSmoothed);
+        }
+        dblLatest = dblUsage;
+        lngLast = lngTime;
+
+        int intBucket = (int) Math.max(0L, Math.min(BUCKETS - 1, Math.round(dblUsage)));
+        for (int i = 0; i < SLICES.length; i++) {
+            long lngNumber = lngTime / LENGTHS[i];
+            expire(i, lngNumber);
+
+            int intSlice = (int) (lngNumber % SLICES[i]);
+            lngNumbers[i][intSlice] = lngNumber;
+            intSlices[i][intSlice][intBucket]++;
+            intTotals[i][intBucket]++;
+            intCounts[i]++;
+            fltMaximums[i][intSlice] = Math.max(fltMaximums[i][intSlice], (float) dblUsage);
+        }
+    }
+
+    /**
+     * Removes the slices of the given window that have slid out of the window, including the ones
+     * that weren't overwritten because there were no updates for a while
+     *
+     * @param intWindow The index of the window
+     * @param lngNumber The number of the current slice since the epoch
+     */
+    private void expire(int intWindow, long lngNumber) {
+        for (int j = 0; j < SLICES[intWindow]; j++) {
+            long lngHeld = lngNumbers[intWindow][j];
+            if (lngHeld == Long.MIN_VALUE || (lngHeld > lngNumber - SLICES[intWindow] && lngHeld <= lngNumber)) {
+                continue;
+            }
+
+            int[] intSlice = intSlices[intWindow][j];
+            for (int k = 0; k < BUCKETS; k++) {
+                intTotals[intWindow][k] -= intSlice[k];
+                intCounts[intWindow] -= intSlice[k];
+                intSlice[k] = 0;
+            }
+            fltMaximums[intWindow][j] = -1F;
+            lngNumbers[intWindow][j] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Sets the half-life of the smoothing
+     *
+     * @param lngHalfLife The time in milliseconds after which an update has half of its weight or
+     *                    zero to disable the smoothing
+     */
+    public void setHalfLife(long lngHalfLife) {
+        this.lngHalfLife = lngHalfLife;
+    }
+
+    /**
+     * Returns the smoothed usage as of the last update, which is the usage of the last update if
+     * the smoothing is disabled
+     *
+     * @return The smoothed usage as a percentage
+     */
+    public synchronized double getSmoothed() {
+        return lngHalfLife > 0L ? dblSmoothed : dblLatest;
+    }
+
+    /**
+     * Returns the given percentile of the usage over the given window as of the last update
+     *
+     * @param intWindow   The index of the window
+     * @param dblFraction The percentile as a fraction between zero and one
+     * @return The percentile as a whole percentage or zero if the window is empty
+     */
+    public synchronized int getPercentile(int intWindow, double dblFraction) {
+        int intCount = intCounts[intWindow];
+        if (intCount == 0) {
+            return 0;
+        }
+
+        long lngRank = Math.max(1L, (long) Math.ceil(dblFraction * intCount));
+        long lngSeen = 0L;
+        for (int k = 0; k < BUCKETS; k++) {
+            lngSeen = lngSeen + intTotals[intWindow][k];
+            if (lngSeen >= lngRank) {
+                return k;
+            }
+        }
+        return BUCKETS - 1;
+    }
+
+    /**
+     * Returns the highest usage over the given window as of the last update
+     *
+     * @param intWindow The index of the window
+     * @return The highest usage as a percentage or zero if the window is empty
+     */
+    public synchronized double getMaximum(int intWindow) {
+        float fltMaximum = 0F;
+        for (float fltSlice : fltMaximums[intWindow]) {
+            fltMaximum = Math.max(fltMaximum, fltSlice);
+        }
+        return fltMaximum;
+    }
+
+    /**
+     * Returns the number of updates in the given window as of the last update
+     *
+     * @param intWindow The index of the window
+     * @return The number of updates
+     */
+    public synchronized int getCount(int intWindow) {
+        return intCounts[intWindow];
+    }
+}
@@ -0,0 +1,39 @@
+package android.util;
+
+/**
+ * Stand-in for the Android logging class so that the collectors can be benchmarked on a plain JVM.
+ * All the messages are discarded.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int v(String strTag, String strMessage) {
+        return 0;
+    }
+
+    public static int d(String strTag, String strMessage) {
+        return 0;
+    }
+
+    public static int i(String strTag, String strMessage) {
+        return 0;
+    }
+
+    public static int w(String strTag, String strMessage) {
+        return 0;
+    }
+
+    public static int w(String strTag, String strMessage, Throwable thrError) {
+        return 0;
+    }
+
+    public static int e(String strTag, String strMessage) {
+        return 0;
+    }
+
+    public static int e(String strTag, String strMessage, Throwable thrError) {
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mridang.throttle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a whole sampling tick of the memory, processor and frequency managers, comparing the
+ * files being read in a single batch by the sampling engine against every manager reading its own
+ * files from the disk source
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineBenchmark {
+
+    /**
+     * The root under which the files are read
+     */
+    @Param({"fixtures/", "/"})
+    public String strRoot;
+    /**
+     * The flag indicating whether the files are read by the sampling engine
+     */
+    @Param({"true", "false"})
+    public boolean booBatched;
+    /**
+     * The instance of the engine that reads all the files in a single batch or null if unused
+     */
+    private SamplingEngine engSampling;
+    /**
+     * The instance of the manager of the memory usage
+     */
+    private MemoryManager mgrMemory;
+    /**
+     * The instance of the manager of the processor usage
+     */
+    private ProcessorManager mgrProcessor;
+    /**
+     * The instance of the manager of the clock frequency
+     */
+    private FrequencyManager mgrFrequency;
+
+    @Setup
+    public void setup() {
+        FileSource srcFiles = new DiskSource(strRoot);
+        if (booBatched) {
+            engSampling = new SamplingEngine(strRoot);
+            srcFiles = engSampling;
+        }
+        mgrMemory = new MemoryManager(srcFiles);
+        mgrProcessor = new ProcessorManager(srcFiles);
+        mgrFrequency = new FrequencyManager(srcFiles, engSampling != null ? engSampling.getDirect() : srcFiles);
+    }
+
+    @Benchmark
+    public double tick() {
+        if (engSampling != null) {
+            engSampling.tick();
+        }
+        mgrMemory.update();
+        mgrFrequency.update();
+        return mgrProcessor.getUsage() + mgrMemory.getAvailable() + mgrFrequency.getFastest();
+    }
+
+    @TearDown
+    public void teardown() {
+        mgrMemory.destroy();
+        mgrProcessor.destroy();
+        mgrFrequency.destroy();
+        if (engSampling != null) {
+            engSampling.destroy();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mridang.throttle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a single update of the clock frequencies, reading either the recorded cpufreq files
+ * of a device with two clusters or the real cpufreq files of the host. The host must expose cpufreq
+ * for the second variant to run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FrequencyBenchmark {
+
+    /**
+     * The root under which the cpufreq files are read
+     */
+    @Param({"fixtures/", "/"})
+    public String strRoot;
+    /**
+     * The instance of the manager of the clock frequency
+     */
+    private FrequencyManager mgrFrequency;
+
+    @Setup
+    public void setup() {
+        mgrFrequency = new FrequencyManager(new DiskSource(strRoot));
+    }
+
+    @Benchmark
+    public long update() {
+        mgrFrequency.update();
+        return mgrFrequency.getFastest();
+    }
+
+    @Benchmark
+    public String getFrequency() {
+        return mgrFrequency.getFrequency();
+    }
+
+    @TearDown
+    public void teardown() {
+        mgrFrequency.destroy();
+    }
+}
@@ -0,0 +1,49 @@
+package com.mridang.throttle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a single update of the memory usage, reading either the recorded memory statistics
+ * file of a device or the real memory statistics file of the host
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MemoryBenchmark {
+
+    /**
+     * The root under which the memory statistics file is read
+     */
+    @Param({"fixtures/", "/"})
+    public String strRoot;
+    /**
+     * The instance of the manager of the memory usage
+     */
+    private MemoryManager mgrMemory;
+
+    @Setup
+    public void setup() {
+        mgrMemory = new MemoryManager(new DiskSource(strRoot));
+    }
+
+    @Benchmark
+    public long update() {
+        mgrMemory.update();
+        return mgrMemory.getAvailable() + mgrMemory.getSwapUsed();
+    }
+
+    @TearDown
+    public void teardown() {
+        mgrMemory.destroy();
+    }
+}
@@ -0,0 +1,48 @@
+package com.mridang.throttle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a single update of the processor usage, reading either the recorded statistics file
+ * of an eight-core device or the real statistics file of the host
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessorBenchmark {
+
+    /**
+     * The root under which the statistics file is read
+     */
+    @Param({"fixtures/", "/"})
+    public String strRoot;
+    /**
+     * The instance of the manager of the processor usage
+     */
+    private ProcessorManager mgrProcessor;
+
+    @Setup
+    public void setup() {
+        mgrProcessor = new ProcessorManager(new DiskSource(strRoot));
+    }
+
+    @Benchmark
+    public double getUsage() {
+        return mgrProcessor.getUsage() + mgrProcessor.getBusiest();
+    }
+
+    @TearDown
+    public void teardown() {
+        mgrProcessor.destroy();
+    }
+}
@@ -0,0 +1,98 @@
+package com.mridang.throttle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the render step of the notification handler without the notification itself: the
+ * notification renderer filling the render state, diffing it against the posted one and the
+ * formatting of the texts when it is due. The steady variant sees the same figures on every update,
+ * which is the common case, while the changing variant sees new figures on every update and so
+ * formats all the texts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RenderBenchmark {
+
+    /**
+     * The format of the content text as defined in the string resources
+     */
+    private static final String MEMORY = "%1$dMB of %2$dMB memory free";
+    /**
+     * The number of the different snapshots that the changing variant cycles through
+     */
+    private static final int SNAPSHOTS = 64;
+    /**
+     * The statistics of the usage that are shared with the renderer
+     */
+    private final UsageStatistics stsUsage = new UsageStatistics();
+    /**
+     * The instance of the renderer under test
+     */
+    private final NotificationRenderer ntrRenderer = new NotificationRenderer(0, stsUsage);
+    /**
+     * The snapshot that the steady variant renders on every update
+     */
+    private Snapshot snpSteady;
+    /**
+     * The snapshots that the changing variant cycles through
+     */
+    private final Snapshot[] snpChanging = new Snapshot[SNAPSHOTS];
+    /**
+     * The counter used to vary the figures between the updates
+     */
+    private int intTick = 0;
+
+    @Setup
+    public void setup() {
+        float[] fltCores = {40F, 45F, 38F, 47F};
+        snpSteady = new Snapshot.Builder(0L, 2000000000L).setProcessor(42.5D, 47D, fltCores)
+                .setFrequency(1804800L).setMemory(1536L, 3809L).build();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            snpChanging[i] = new Snapshot.Builder(i * 2000L, 2000000000L).setProcessor(i % 100, (i * 7) % 100, fltCores)
+                    .setFrequency(1804800L + (i % 3) * 100000L).setMemory(1536L + i, 3809L).build();
+        }
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            stsUsage.insert(i * 2000L, i % 100);
+        }
+    }
+
+    /**
+     * Renders the given figures in the same way as the notification handler
+     *
+     * @param snpFigures The snapshot of the figures to be shown
+     * @return The content text or null if nothing visible changed
+     */
+    private String render(Snapshot snpFigures) {
+        ntrRenderer.render(snpFigures, true, true, false, 0L);
+        if (!ntrRenderer.isDue(false, 0L, 0L)) {
+            return null;
+        }
+
+        RenderState rdsCurrent = ntrRenderer.getState();
+        String strInfo = rdsCurrent.getInfo();
+        String strText = String.format(Locale.US, MEMORY, rdsCurrent.getFree(), rdsCurrent.getTotal());
+        ntrRenderer.posted(0L);
+        return strInfo + strText;
+    }
+
+    @Benchmark
+    public String steady() {
+        return render(snpSteady);
+    }
+
+    @Benchmark
+    public String changing() {
+        intTick++;
+        return render(snpChanging[intTick % SNAPSHOTS]);
+    }
+}
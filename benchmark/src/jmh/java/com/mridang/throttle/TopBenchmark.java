@@ -0,0 +1,45 @@
+package com.mridang.throttle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a single scan of the busiest processes of the host. The processes are tracked by the
+ * setup so the benchmark measures the steady state in which only the files of new processes are
+ * opened.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopBenchmark {
+
+    /**
+     * The instance of the manager of the busiest processes
+     */
+    private TopManager mgrTop;
+
+    @Setup
+    public void setup() {
+        mgrTop = new TopManager(new DiskSource(), Runtime.getRuntime().availableProcessors());
+        mgrTop.scan();
+    }
+
+    @Benchmark
+    public int scan() {
+        mgrTop.scan();
+        return mgrTop.getTracked();
+    }
+
+    @TearDown
+    public void teardown() {
+        mgrTop.destroy();
+    }
+}
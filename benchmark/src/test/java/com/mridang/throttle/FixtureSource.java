@@ -0,0 +1,195 @@
+package com.mridang.throttle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source of the files that plays a recorded sequence of ticks over the fixtures. The files that
+ * change from one tick to the next hold the contents of every tick one after the other, each
+ * separated from the next by an empty line, while all the other files are read from the fixtures as
+ * they are. The sequences are loaded when the files are opened and the handles copy the contents of
+ * the current tick into their own buffer, so that reading doesn't allocate just like on the device.
+ */
+class FixtureSource implements FileSource {
+
+    /**
+     * The source of the files that don't change from one tick to the next
+     */
+    private final DiskSource srcFixtures;
+    /**
+     * The directory ending with a slash under which the sequences of the files are kept
+     */
+    private final String strTicks;
+    /**
+     * The monotonic time in milliseconds of each of the ticks
+     */
+    private final long[] lngTimes;
+    /**
+     * The index of the current tick
+     */
+    private int intTick = 0;
+
+    /**
+     * Creates a source that plays the ticks under the given directory over the given fixtures. The
+     * times of the ticks are read from the file named times, one per line.
+     *
+     * @param strFixtures The directory ending with a slash under which the fixtures are read
+     * @param strTicks    The directory ending with a slash under which the sequences are kept
+     * @throws IOException If the times of the ticks couldn't be read
+     */
+    FixtureSource(String strFixtures, String strTicks) throws IOException {
+        this.srcFixtures = new DiskSource(strFixtures);
+        this.strTicks = strTicks;
+
+        List<Long> lstTimes = new ArrayList<Long>();
+        BufferedReader rdrTimes = new BufferedReader(new FileReader(strTicks + "times"));
+        try {
+            String strLine;
+            while ((strLine = rdrTimes.readLine()) != null) {
+                lstTimes.add(Long.parseLong(strLine.trim()));
+            }
+        } finally {
+            rdrTimes.close();
+        }
+        lngTimes = new long[lstTimes.size()];
+        for (int i = 0; i < lngTimes.length; i++) {
+            lngTimes[i] = lstTimes.get(i);
+        }
+    }
+
+    /**
+     * Moves on to the next tick unless the current tick is the last one
+     *
+     * @return True if there was another tick to move on to
+     */
+    boolean advance() {
+        if (intTick + 1 >= lngTimes.length) {
+            return false;
+        }
+        intTick++;
+        return true;
+    }
+
+    /**
+     * Returns the monotonic time of the current tick
+     *
+     * @return The time in milliseconds
+     */
+    long getTime() {
+        return lngTimes[intTick];
+    }
+
+    /**
+     * Returns the number of the ticks of the sequence
+     *
+     * @return The number of ticks
+     */
+    int getTicks() {
+        return lngTimes.length;
+    }
+
+    @Override
+    public Handle open(String strPath, int intCapacity) throws FileNotFoundException {
+        File filSequence = new File(strTicks + strPath);
+        if (!filSequence.isFile()) {
+            return srcFixtures.open(strPath, intCapacity);
+        }
+
+        try {
+            return new SequenceHandle(split(filSequence), intCapacity);
+        } catch (IOException e) {
+            FileNotFoundException exeMissing = new FileNotFoundException("Unable to read " + filSequence);
+            exeMissing.initCause(e);
+            throw exeMissing;
+        }
+    }
+
+    @Override
+    public String[] list(String strPath) {
+        return srcFixtures.list(strPath);
+    }
+
+    @Override
+    public boolean exists(String strPath) {
+        return new File(strTicks + strPath).exists() || srcFixtures.exists(strPath);
+    }
+
+    /**
+     * Reads the given sequence and splits it into the contents of each of the ticks
+     *
+     * @param filSequence The file holding the contents of every tick separated by empty lines
+     * @return The contents of each of the ticks
+     * @throws IOException If the file couldn't be read or doesn't hold every tick
+     */
+    private byte[][] split(File filSequence) throws IOException {
+        byte[] bytSequence = new byte[(int) filSequence.length()];
+        RandomAccessFile rafSequence = new RandomAccessFile(filSequence, "r");
+        try {
+            rafSequence.readFully(bytSequence);
+        } finally {
+            rafSequence.close();
+        }
+
+        List<byte[]> lstTicks = new ArrayList<byte[]>();
+        int intStart = 0;
+        for (int i = 0; i <= bytSequence.length; i++) {
+            boolean booEnd = i == bytSequence.length;
+            if (booEnd || (bytSequence[i] == '\n' && i > intStart && bytSequence[i - 1] == '\n')) {
+                byte[] bytTick = new byte[i - intStart];
+                System.arraycopy(bytSequence, intStart, bytTick, 0, bytTick.length);
+                lstTicks.add(bytTick);
+                intStart = i + 1;
+            }
+        }
+        if (lstTicks.size() != lngTimes.length) {
+            throw new IOException("Found " + lstTicks.size() + " ticks instead of " + lngTimes.length);
+        }
+        return lstTicks.toArray(new byte[lstTicks.size()][]);
+    }
+
+    /**
+     * Handle of a sequence that copies the contents of the current tick into its buffer
+     */
+    private class SequenceHandle implements Handle {
+
+        /**
+         * The contents of each of the ticks
+         */
+        private final byte[][] bytTicks;
+        /**
+         * The reusable buffer into which the contents of the current tick are copied
+         */
+        private final ByteBuffer bufContents;
+
+        /**
+         * Creates a handle reading the given contents
+         *
+         * @param bytTicks    The contents of each of the ticks
+         * @param intCapacity The maximum number of bytes of the contents that are read
+         */
+        SequenceHandle(byte[][] bytTicks, int intCapacity) {
+            this.bytTicks = bytTicks;
+            this.bufContents = ByteBuffer.allocate(intCapacity);
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            byte[] bytTick = bytTicks[intTick];
+            bufContents.clear();
+            bufContents.put(bytTick, 0, Math.min(bytTick.length, bufContents.capacity()));
+            bufContents.flip();
+            return bufContents;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
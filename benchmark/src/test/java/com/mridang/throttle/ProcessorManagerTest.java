@@ -0,0 +1,161 @@
+package com.mridang.throttle;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the processor manager driven over the recorded ticks of an eight core device, two of whose
+ * cores are taken offline for a few ticks halfway through
+ */
+public class ProcessorManagerTest {
+
+    /**
+     * The number of times that the first tick is read before the allocations are measured, so that
+     * the methods have been compiled as the virtual machine allocates a little while it switches
+     * between the interpreted and the compiled versions of a method
+     */
+    private static final int WARMUP = 200000;
+    /**
+     * The number of times that the last tick is read again after all the ticks have been read
+     */
+    private static final int REPEATS = 10000;
+    /**
+     * The source playing the recorded ticks over the fixtures
+     */
+    private FixtureSource srcTicks;
+    /**
+     * The instance of the manager under test
+     */
+    private ProcessorManager mgrProcessor;
+
+    @Before
+    public void setup() throws IOException {
+        srcTicks = new FixtureSource("fixtures/", "src/test/fixtures/");
+        mgrProcessor = new ProcessorManager(srcTicks);
+    }
+
+    @Test
+    public void testUsage() throws IOException {
+        FileSource.Handle hndStat = srcTicks.open("proc/stat", 16384);
+        long[][] lngPrevious = new long[9][];
+        do {
+            String[] strRows = read(hndStat).split("\n");
+            long[][] lngCurrent = new long[9][];
+            for (String strRow : strRows) {
+                if (strRow.startsWith("cpu")) {
+                    String[] strColumns = strRow.split(" +");
+                    int intRow = strColumns[0].length() == 3 ? 0 : Integer.parseInt(strColumns[0].substring(3)) + 1;
+                    lngCurrent[intRow] = new long[]{0L, 0L};
+                    for (int i = 1; i <= 8; i++) {
+                        long lngValue = Long.parseLong(strColumns[i]);
+                        lngCurrent[intRow][0] += lngValue;
+                        lngCurrent[intRow][1] += i == 4 ? lngValue : 0L;
+                    }
+                }
+            }
+
+            long lngTotal = lngCurrent[0][0] - (lngPrevious[0] == null ? 0L : lngPrevious[0][0]);
+            long lngIdle = lngCurrent[0][1] - (lngPrevious[0] == null ? 0L : lngPrevious[0][1]);
+            assertEquals(100.0 * ((lngTotal - lngIdle) / (lngTotal + 0.01)), mgrProcessor.getUsage(), 1E-9);
+            for (int i = 1; i < 9; i++) {
+                double dblExpected = 0D;
+                if (lngCurrent[i] != null && lngPrevious[i] != null) {
+                    long lngCore = lngCurrent[i][0] - lngPrevious[i][0];
+                    dblExpected = 100.0 * (lngCore - (lngCurrent[i][1] - lngPrevious[i][1])) / lngCore;
+                }
+                assertEquals(lngCurrent[i] != null, mgrProcessor.isOnline(i - 1));
+                assertEquals(dblExpected, mgrProcessor.getUsage(i - 1), 1E-9);
+            }
+            lngPrevious = lngCurrent;
+        } while (srcTicks.advance());
+        assertEquals(8, mgrProcessor.getCores());
+    }
+
+    @Test
+    public void testAllocations() {
+        java.lang.management.ThreadMXBean mxbThreads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mxbThreads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mxbAllocations = (com.sun.management.ThreadMXBean) mxbThreads;
+        Assume.assumeTrue(mxbAllocations.isThreadAllocatedMemorySupported());
+        mxbAllocations.setThreadAllocatedMemoryEnabled(true);
+        long lngThread = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            mgrProcessor.getUsage();
+        }
+        long lngBefore = mxbAllocations.getThreadAllocatedBytes(lngThread);
+        long lngOverhead = mxbAllocations.getThreadAllocatedBytes(lngThread) - lngBefore;
+
+        double dblUsages = 0D;
+        lngBefore = mxbAllocations.getThreadAllocatedBytes(lngThread);
+        while (srcTicks.advance()) {
+            dblUsages = dblUsages + mgrProcessor.getUsage();
+        }
+        for (int i = 0; i < REPEATS; i++) {
+            dblUsages = dblUsages + mgrProcessor.getUsage();
+        }
+        long lngAllocated = mxbAllocations.getThreadAllocatedBytes(lngThread) - lngBefore;
+
+        assertTrue(dblUsages > 0D);
+        assertTrue("Allocated " + lngAllocated + " bytes while updating", lngAllocated <= lngOverhead);
+    }
+
+    @Test
+    public void testLargeStatistics() throws IOException {
+        File filRoot = Files.createTempDirectory("stat").toFile();
+        File filStat = new File(filRoot, "proc/stat");
+        assertTrue(filStat.getParentFile().mkdirs());
+        StringBuilder sbStat = new StringBuilder("cpu  10 0 10 80 0 0 0 0 0 0\n");
+        sbStat.append("cpu0 10 0 10 80 0 0 0 0 0 0\nintr 123456");
+        for (int i = 0; i < 10000; i++) {
+            sbStat.append(" 12");
+        }
+        sbStat.append("\nctxt 654321\nprocs_running 3\nprocs_blocked 1\n");
+        FileOutputStream fosStat = new FileOutputStream(filStat);
+        try {
+            fosStat.write(sbStat.toString().getBytes("US-ASCII"));
+        } finally {
+            fosStat.close();
+        }
+
+        ProcessorManager mgrLarge = new ProcessorManager(new DiskSource(filRoot.getPath() + "/"));
+        try {
+            mgrLarge.getUsage();
+            assertEquals(3L, mgrLarge.getCounter(ProcessorManager.RUNNING));
+            assertEquals(1L, mgrLarge.getCounter(ProcessorManager.BLOCKED));
+        } finally {
+            mgrLarge.destroy();
+            assertTrue(filStat.delete() && filStat.getParentFile().delete() && filRoot.delete());
+        }
+    }
+
+    @After
+    public void teardown() {
+        mgrProcessor.destroy();
+    }
+
+    /**
+     * Reads the contents of the current tick of the given file as text
+     *
+     * @param hndFile The handle of the file
+     * @return The contents of the file
+     * @throws IOException If the file couldn't be read
+     */
+    private static String read(FileSource.Handle hndFile) throws IOException {
+        ByteBuffer bufContents = hndFile.read();
+        return new String(bufContents.array(), 0, bufContents.limit(), Charset.forName("US-ASCII"));
+    }
+}
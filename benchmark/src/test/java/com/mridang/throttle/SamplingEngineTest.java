@@ -0,0 +1,177 @@
+package com.mridang.throttle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the sampling engine over the fixtures which check that every tick makes exactly one read
+ * per open slot, no matter how often the handles are read in between, whether the files are read from
+ * the disk or through the handles of another source
+ */
+public class SamplingEngineTest {
+
+    /**
+     * The directory ending with a slash under which the fixtures are read
+     */
+    private static final String FIXTURES = "fixtures/";
+    /**
+     * The number of ticks over which the reads are counted
+     */
+    private static final int TICKS = 5;
+    /**
+     * The instance of the engine under test
+     */
+    private SamplingEngine engSampling;
+
+    @Before
+    public void setup() {
+        engSampling = new SamplingEngine(FIXTURES);
+    }
+
+    @Test
+    public void testReads() throws IOException {
+        String[] strPaths = new String[10];
+        strPaths[0] = "proc/stat";
+        strPaths[1] = "proc/meminfo";
+        for (int i = 0; i < 8; i++) {
+            strPaths[i + 2] = "sys/devices/system/cpu/cpu" + i + "/cpufreq/scaling_cur_freq";
+        }
+        FileSource.Handle[] hndFiles = new FileSource.Handle[strPaths.length];
+        for (int i = 0; i < strPaths.length; i++) {
+            hndFiles[i] = engSampling.open(strPaths[i], 16384);
+        }
+
+        for (int i = 0; i < TICKS; i++) {
+            engSampling.tick();
+            for (int j = 0; j < hndFiles.length; j++) {
+                assertArrayEquals(contents(strPaths[j]), copy(hndFiles[j].read()));
+                hndFiles[j].read();
+            }
+            assertEquals(strPaths.length, engSampling.getReads());
+        }
+        assertEquals(strPaths.length, engSampling.getFiles());
+        assertEquals(TICKS * strPaths.length, engSampling.getTotalReads());
+
+        hndFiles[0].close();
+        hndFiles[1].close();
+        engSampling.tick();
+        assertEquals(strPaths.length - 2, engSampling.getFiles());
+        assertEquals(strPaths.length - 2, engSampling.getReads());
+        try {
+            hndFiles[0].read();
+            throw new AssertionError("A closed handle could still be read");
+        } catch (IOException e) {
+            assertEquals(strPaths.length - 2, engSampling.getReads());
+        }
+
+        hndFiles[0] = engSampling.open(strPaths[0], 16384);
+        hndFiles[0].read();
+        hndFiles[0].read();
+        assertEquals(strPaths.length - 1, engSampling.getReads());
+        engSampling.tick();
+        assertEquals(strPaths.length - 1, engSampling.getFiles());
+        assertEquals(strPaths.length - 1, engSampling.getReads());
+    }
+
+    @Test
+    public void testManagers() {
+        ProcessorManager mgrProcessor = new ProcessorManager(engSampling);
+        MemoryManager mgrMemory = new MemoryManager(engSampling);
+        FrequencyManager mgrFrequency = new FrequencyManager(engSampling, engSampling.getDirect());
+        long lngReads = engSampling.getTotalReads();
+        engSampling.tick();
+        mgrProcessor.getUsage();
+        mgrMemory.update();
+        mgrFrequency.update();
+        assertTrue(engSampling.getTotalReads() > lngReads);
+
+        for (int i = 0; i < TICKS; i++) {
+            engSampling.tick();
+            mgrProcessor.getUsage();
+            mgrMemory.update();
+            mgrFrequency.update();
+            assertEquals(4, engSampling.getFiles());
+            assertEquals(4, engSampling.getReads());
+        }
+
+        mgrProcessor.destroy();
+        mgrMemory.destroy();
+        mgrFrequency.destroy();
+        assertEquals(0, engSampling.getFiles());
+    }
+
+    @Test
+    public void testSampler() throws IOException {
+        final FixtureSource srcTicks = new FixtureSource(FIXTURES, "src/test/fixtures/");
+        FixtureSource srcExpected = new FixtureSource(FIXTURES, "src/test/fixtures/");
+        SamplingEngine engTicks = new SamplingEngine(srcTicks);
+        Sampler smpSampler = new Sampler(engTicks, new Sampler.Clock() {
+
+            /**
+             * Clock method that returns the recorded time of the current tick
+             */
+            @Override
+            public long now() {
+                return srcTicks.getTime();
+            }
+        });
+        ProcessorManager mgrExpected = new ProcessorManager(srcExpected);
+        try {
+            assertEquals(mgrExpected.getUsage(), smpSampler.sample(0L).getUsage(), 1E-9);
+            while (srcTicks.advance() && srcExpected.advance()) {
+                Snapshot snpSample = smpSampler.sample(0L);
+                assertEquals(srcTicks.getTime(), snpSample.getTime());
+                assertEquals(mgrExpected.getUsage(), snpSample.getUsage(), 1E-9);
+                assertEquals(engTicks.getFiles(), engTicks.getReads());
+            }
+        } finally {
+            smpSampler.destroy();
+            mgrExpected.destroy();
+        }
+        assertEquals(0, engTicks.getFiles());
+    }
+
+    @After
+    public void teardown() {
+        engSampling.destroy();
+    }
+
+    /**
+     * Reads the contents of the given fixture directly from the disk
+     *
+     * @param strPath The path of the fixture relative to the fixtures
+     * @return The contents of the fixture
+     * @throws IOException If the fixture couldn't be read
+     */
+    private static byte[] contents(String strPath) throws IOException {
+        RandomAccessFile rafFile = new RandomAccessFile(FIXTURES + strPath, "r");
+        try {
+            byte[] bytContents = new byte[(int) rafFile.length()];
+            rafFile.readFully(bytContents);
+            return bytContents;
+        } finally {
+            rafFile.close();
+        }
+    }
+
+    /**
+     * Copies the contents of the given buffer from index zero up to its limit
+     *
+     * @param bufContents The buffer returned by a handle
+     * @return The copied contents
+     */
+    private static byte[] copy(ByteBuffer bufContents) {
+        byte[] bytContents = new byte[bufContents.limit()];
+        bufContents.get(bytContents);
+        return bytContents;
+    }
+}
@@ -0,0 +1,265 @@
+package com.mridang.throttle;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the series encoder and decoder which round-trip the figures that the processor and the
+ * frequency managers derive from the recorded ticks, along with the edges of each of the encodings
+ */
+public class SeriesCodecTest {
+
+    /**
+     * The kind of the columns holding an integral counter
+     */
+    private static final char COUNTER = 'C';
+    /**
+     * The kind of the columns holding a floating point figure
+     */
+    private static final char DOUBLE = 'D';
+    /**
+     * The kind of the columns holding a single precision floating point figure
+     */
+    private static final char FLOAT = 'F';
+    /**
+     * The smallest ratio of the raw size of a recorded trace to the size of its stream. The shares
+     * and the usages change on every tick and keep most of the bits of their mantissa, so the
+     * traces compress far less than the steady timestamps and counters alone would.
+     */
+    private static final double RATIO = 1.5D;
+
+    @Test
+    public void testProcessorTrace() throws IOException {
+        FixtureSource srcTicks = new FixtureSource("fixtures/", "src/test/fixtures/");
+        ProcessorManager mgrProcessor = new ProcessorManager(srcTicks);
+        char[] chrKinds = kinds(DOUBLE, 2, FLOAT, 8, COUNTER, ProcessorManager.COUNTERS, FLOAT,
+                ProcessorManager.SHARES);
+
+        long[] lngTimes = new long[srcTicks.getTicks()];
+        long[][] lngTrace = new long[lngTimes.length][chrKinds.length];
+        for (int i = 0; i < lngTimes.length; i++, srcTicks.advance()) {
+            lngTimes[i] = srcTicks.getTime();
+            long[] lngRecord = lngTrace[i];
+            int intColumn = 0;
+            lngRecord[intColumn++] = Double.doubleToRawLongBits(mgrProcessor.getUsage());
+            lngRecord[intColumn++] = Double.doubleToRawLongBits(mgrProcessor.getBusiest());
+            for (int j = 0; j < 8; j++) {
+                lngRecord[intColumn++] = Float.floatToRawIntBits((float) mgrProcessor.getUsage(j));
+            }
+            for (int j = 0; j < ProcessorManager.COUNTERS; j++) {
+                lngRecord[intColumn++] = mgrProcessor.getCounter(j);
+            }
+            for (int j = 0; j < ProcessorManager.SHARES; j++) {
+                lngRecord[intColumn++] = Float.floatToRawIntBits(mgrProcessor.getShare(j));
+            }
+        }
+        mgrProcessor.destroy();
+
+        assertRatio(chrKinds, lngTimes, lngTrace, roundtrip(chrKinds, lngTimes, lngTrace));
+    }
+
+    @Test
+    public void testFrequencyTrace() throws IOException {
+        FixtureSource srcTicks = new FixtureSource("fixtures/", "src/test/fixtures/");
+        FrequencyManager mgrFrequency = new FrequencyManager(srcTicks);
+        mgrFrequency.update();
+        assertEquals(2, mgrFrequency.getClusters());
+        int intStates = mgrFrequency.getStates(0) + mgrFrequency.getStates(1);
+        char[] chrKinds = kinds(COUNTER, 2, DOUBLE, 3, FLOAT, intStates);
+
+        long[] lngTimes = new long[srcTicks.getTicks()];
+        long[][] lngTrace = new long[lngTimes.length][chrKinds.length];
+        for (int i = 0; i < lngTimes.length; i++) {
+            lngTimes[i] = srcTicks.getTime();
+            long[] lngRecord = lngTrace[i];
+            int intColumn = 0;
+            lngRecord[intColumn++] = mgrFrequency.getCurrent(0);
+            lngRecord[intColumn++] = mgrFrequency.getCurrent(1);
+            lngRecord[intColumn++] = Double.doubleToRawLongBits(mgrFrequency.getTransitions(0));
+            lngRecord[intColumn++] = Double.doubleToRawLongBits(mgrFrequency.getTransitions(1));
+            lngRecord[intColumn++] = Double.doubleToRawLongBits(mgrFrequency.getRatio());
+            for (int j = 0; j < 2; j++) {
+                for (int k = 0; k < mgrFrequency.getStates(j); k++) {
+                    lngRecord[intColumn++] = Float.floatToRawIntBits(mgrFrequency.getResidency(j, k));
+                }
+            }
+            if (srcTicks.advance()) {
+                mgrFrequency.update();
+            }
+        }
+        mgrFrequency.destroy();
+
+        assertTrue(Double.longBitsToDouble(lngTrace[lngTimes.length - 1][2]) > 0D);
+        assertRatio(chrKinds, lngTimes, lngTrace, roundtrip(chrKinds, lngTimes, lngTrace));
+    }
+
+    @Test
+    public void testTimeBuckets() {
+        long[] lngDifferences = {0L, 1L, -1L, 63L, -64L, 64L, -65L, 255L, -256L, 256L, -257L, 2047L, -2048L,
+                2048L, -2049L, 1L << 40, -(1L << 40)};
+        int[] intBits = {1, 9, 9, 9, 9, 12, 12, 12, 12, 16, 16, 16, 16, 68, 68, 68, 68};
+        char[] chrKinds = new char[0];
+        for (int i = 0; i < lngDifferences.length; i++) {
+            long[] lngTimes = new long[9];
+            long lngDelta = 0L;
+            lngTimes[0] = 1697510400000L;
+            for (int j = 1; j < lngTimes.length; j++) {
+                lngDelta = lngDelta + lngDifferences[i];
+                lngTimes[j] = lngTimes[j - 1] + lngDelta;
+            }
+
+            int intLength = roundtrip(chrKinds, lngTimes, new long[lngTimes.length][0]);
+            assertEquals("Delta of delta " + lngDifferences[i], (64 + 8 * intBits[i] + 7) / 8, intLength);
+        }
+
+        long[] lngTimes = {Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L, Long.MIN_VALUE, Long.MIN_VALUE, 1L};
+        roundtrip(chrKinds, lngTimes, new long[lngTimes.length][0]);
+    }
+
+    @Test
+    public void testWindows() {
+        char[] chrKinds = {DOUBLE};
+        long[] lngTimes = {0L, 0L, 0L, 0L};
+        long[][] lngTrace = {{0L}, {0xFFL << 36}, {0x81L << 36}, {(0x81L << 36) | (1L << 48)}};
+
+        int intLength = roundtrip(chrKinds, lngTimes, lngTrace);
+        assertEquals((64 + 3 + 1 + 21 + 10 + 14 + 7) / 8, intLength);
+
+        long[] lngBits = {0L, 1L, 3L, 2L, Long.MIN_VALUE | 1L, Long.MIN_VALUE, -1L, 1L << 63 >>> 31,
+                Double.doubleToRawLongBits(Double.NaN) | 1L, Double.doubleToRawLongBits(-0D),
+                Double.doubleToRawLongBits(Double.POSITIVE_INFINITY), Double.doubleToRawLongBits(Double.MIN_VALUE),
+                Double.doubleToRawLongBits(Double.MAX_VALUE), Double.doubleToRawLongBits(100D),
+                Double.doubleToRawLongBits(99.99999999999999D), Double.doubleToRawLongBits(100D)};
+        chrKinds = new char[]{DOUBLE, FLOAT};
+        lngTimes = new long[lngBits.length];
+        lngTrace = new long[lngBits.length][];
+        for (int i = 0; i < lngBits.length; i++) {
+            lngTimes[i] = i * 2000L;
+            lngTrace[i] = new long[]{lngBits[i], (int) (lngBits[i] >>> 32) ^ (int) lngBits[i]};
+        }
+        roundtrip(chrKinds, lngTimes, lngTrace);
+    }
+
+    @Test
+    public void testZigzag() {
+        char[] chrKinds = {COUNTER};
+        long[] lngDifferences = {Long.MIN_VALUE, Long.MAX_VALUE, -1L, 0L, 63L, -64L, 64L, -65L, 8191L, 8192L};
+        int[] intLengths = {10, 10, 1, 1, 1, 1, 2, 2, 2, 3};
+        for (int i = 0; i < lngDifferences.length; i++) {
+            SeriesEncoder encSeries = new SeriesEncoder(1);
+            encSeries.reset(new byte[16]);
+            encSeries.putCounter(0, lngDifferences[i]);
+            assertEquals("Delta " + lngDifferences[i], intLengths[i], encSeries.getLength());
+        }
+
+        long[] lngValues = {0L, Long.MIN_VALUE, Long.MAX_VALUE, 0L, Long.MAX_VALUE, -1L, Long.MIN_VALUE, 1L};
+        long[] lngTimes = new long[lngValues.length];
+        long[][] lngTrace = new long[lngValues.length][];
+        for (int i = 0; i < lngValues.length; i++) {
+            lngTimes[i] = i * 2000L;
+            lngTrace[i] = new long[]{lngValues[i]};
+        }
+        roundtrip(chrKinds, lngTimes, lngTrace);
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void testUnderflow() {
+        byte[] bytStream = new byte[64];
+        SeriesEncoder encSeries = new SeriesEncoder(1);
+        encSeries.reset(bytStream);
+        encSeries.putTime(2000L);
+        encSeries.putCounter(0, Long.MIN_VALUE);
+
+        SeriesDecoder decSeries = new SeriesDecoder(1);
+        decSeries.reset(bytStream, 0, encSeries.getLength() - 1);
+        decSeries.getTime();
+        decSeries.getCounter(0);
+    }
+
+    /**
+     * Builds the kinds of the columns of a trace from pairs of a kind and a number of columns
+     *
+     * @param objColumns The kind and the number of each of the runs of columns
+     * @return The kind of each of the columns
+     */
+    private static char[] kinds(Object... objColumns) {
+        StringBuilder sbfKinds = new StringBuilder();
+        for (int i = 0; i < objColumns.length; i += 2) {
+            for (int j = 0; j < (Integer) objColumns[i + 1]; j++) {
+                sbfKinds.append((char) (Character) objColumns[i]);
+            }
+        }
+        return sbfKinds.toString().toCharArray();
+    }
+
+    /**
+     * Encodes the given trace, decodes it again and checks that every timestamp and the raw bits of
+     * every column came back unchanged
+     *
+     * @param chrKinds The kind of each of the columns
+     * @param lngTimes The timestamp of each of the records
+     * @param lngTrace The values or the raw bits of the columns of each of the records
+     * @return The length of the stream in bytes
+     */
+    private static int roundtrip(char[] chrKinds, long[] lngTimes, long[][] lngTrace) {
+        byte[] bytStream = new byte[lngTimes.length * (8 + 10 * chrKinds.length) + 16];
+        SeriesEncoder encSeries = new SeriesEncoder(chrKinds.length);
+        encSeries.reset(bytStream);
+        for (int i = 0; i < lngTimes.length; i++) {
+            encSeries.putTime(lngTimes[i]);
+            for (int j = 0; j < chrKinds.length; j++) {
+                if (chrKinds[j] == COUNTER) {
+                    encSeries.putCounter(j, lngTrace[i][j]);
+                } else if (chrKinds[j] == DOUBLE) {
+                    encSeries.putDouble(j, Double.longBitsToDouble(lngTrace[i][j]));
+                } else {
+                    encSeries.putFloat(j, Float.intBitsToFloat((int) lngTrace[i][j]));
+                }
+            }
+        }
+        assertEquals(lngTimes.length, encSeries.getRecords());
+
+        SeriesDecoder decSeries = new SeriesDecoder(chrKinds.length);
+        decSeries.reset(bytStream, 0, encSeries.getLength());
+        for (int i = 0; i < lngTimes.length; i++) {
+            assertEquals("Timestamp of record " + i, lngTimes[i], decSeries.getTime());
+            for (int j = 0; j < chrKinds.length; j++) {
+                long lngActual;
+                if (chrKinds[j] == COUNTER) {
+                    lngActual = decSeries.getCounter(j);
+                } else if (chrKinds[j] == DOUBLE) {
+                    lngActual = Double.doubleToRawLongBits(decSeries.getDouble(j));
+                } else {
+                    lngActual = Float.floatToRawIntBits(decSeries.getFloat(j));
+                }
+                assertEquals("Column " + j + " of record " + i, lngTrace[i][j], lngActual);
+            }
+        }
+        return encSeries.getLength();
+    }
+
+    /**
+     * Checks that the stream of the given trace is at least the expected ratio smaller than the raw
+     * figures, i.e. eight bytes for each timestamp, counter and double and four for each float
+     *
+     * @param chrKinds  The kind of each of the columns
+     * @param lngTimes  The timestamp of each of the records
+     * @param lngTrace  The values or the raw bits of the columns of each of the records
+     * @param intLength The length of the stream in bytes
+     */
+    private static void assertRatio(char[] chrKinds, long[] lngTimes, long[][] lngTrace, int intLength) {
+        long lngRaw = 0L;
+        for (int i = 0; i < lngTimes.length; i++) {
+            lngRaw = lngRaw + 8L;
+            for (int j = 0; j < lngTrace[i].length; j++) {
+                lngRaw = lngRaw + (chrKinds[j] == FLOAT ? 4L : 8L);
+            }
+        }
+        assertTrue("Compressed " + lngRaw + " bytes into " + intLength, lngRaw >= RATIO * intLength);
+    }
+}